@@ -0,0 +1,201 @@
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Sorts many independent int arrays on a fork join pool, for when each request
+ * brings its own small array. Small arrays are grouped so that one task sorts
+ * a batch of them, instead of paying for a task (or a thread) per array. Every
+ * worker thread keeps its own radix sort buffer and histograms, so sorting does
+ * not allocate once the buffers have grown to the usual array size.
+ *
+ * Arrays are sorted in place: insertion sort up to 32 values, quickSort up to
+ * 4096, and LSD radix sort with the pooled buffers above that. Thread safe.
+ */
+public class BatchSorter {
+
+    /** Values sorted by one task before the rest of a batch goes to another. */
+    private static final int BATCH_VALUES = 1 << 14;
+    private static final int INSERTION_THRESHOLD = 32;
+    private static final int RADIX_THRESHOLD = 1 << 12;
+    /** Larger buffers are not kept, so one huge array does not pin the memory. */
+    private static final int MAX_POOLED_BUFFER = 1 << 20;
+    /** Arrays this large are handed to Sorts.sort(int[]), which may sort them in parallel. */
+    private static final int LARGE_ARRAY = 1 << 20;
+
+    private static final ThreadLocal<Scratch> SCRATCH = ThreadLocal.withInitial(Scratch::new);
+
+    private final ForkJoinPool pool;
+    private final int maxDrainers;
+    private final ConcurrentLinkedQueue<Pending> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger drainers = new AtomicInteger();
+
+    /**
+     * Creates a sorter that runs on the common fork join pool.
+     */
+    public BatchSorter() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    /**
+     * @param pool the pool to sort on
+     */
+    public BatchSorter(ForkJoinPool pool) {
+        this.pool = pool;
+        this.maxDrainers = pool.getParallelism();
+    }
+
+    /**
+     * Sorts every array in place and waits for them all. Consecutive arrays are
+     * grouped until a group holds about 16384 values, and the groups are sorted in
+     * parallel.
+     * @param arrays the arrays to sort
+     */
+    public void sortAll(List<int[]> arrays) {
+        int[][] all = arrays.toArray(new int[0][]);
+        if (all.length == 0)
+            return;
+        // groupStarts[g] is the first array of group g, the last entry is the end
+        int[] groupStarts = new int[all.length + 1];
+        int groups = 0;
+        long values = BATCH_VALUES;
+        for (int i = 0; i < all.length; i++) {
+            if (values >= BATCH_VALUES) {
+                groupStarts[groups++] = i;
+                values = 0;
+            }
+            values += all[i].length;
+        }
+        groupStarts[groups] = all.length;
+        pool.invoke(new GroupTask(all, groupStarts, 0, groups));
+    }
+
+    /**
+     * Queues the array to be sorted in place. Queued arrays are taken in batches
+     * by up to one task per pool thread, so a burst of tiny arrays is sorted by a
+     * few workers rather than a task each.
+     * @param array the array to sort
+     * @return a future completed with the same array once it is sorted
+     */
+    public CompletableFuture<int[]> submit(int[] array) {
+        Pending pending = new Pending(array);
+        queue.add(pending);
+        if (tryAddDrainer())
+            pool.execute(this::drain);
+        return pending.future;
+    }
+
+    /**
+     * Sorts queued arrays until the queue is empty.
+     */
+    private void drain() {
+        while (true) {
+            Pending pending;
+            while ((pending = queue.poll()) != null) {
+                try {
+                    sort(pending.array);
+                    pending.future.complete(pending.array);
+                } catch (Throwable t) {
+                    pending.future.completeExceptionally(t);
+                }
+            }
+            drainers.decrementAndGet();
+            // an array queued after the poll above may have seen every drainer still
+            // busy, so take the drainer slot back if there is more to do
+            if (queue.isEmpty() || !tryAddDrainer())
+                return;
+        }
+    }
+
+    /**
+     * Takes a drainer slot if fewer than one per pool thread are running.
+     * @return true if the caller should drain the queue
+     */
+    private boolean tryAddDrainer() {
+        int active;
+        do {
+            active = drainers.get();
+            if (active >= maxDrainers)
+                return false;
+        } while (!drainers.compareAndSet(active, active + 1));
+        return true;
+    }
+
+    /**
+     * Sorts one array with this thread's scratch space.
+     */
+    private static void sort(int[] array) {
+        int n = array.length;
+        if (n <= INSERTION_THRESHOLD) {
+            Sorts.insertionSort(array, 0, n);
+        } else if (n < RADIX_THRESHOLD) {
+            Sorts.quickSort(array, 0, n);
+        } else if (n < LARGE_ARRAY) {
+            Scratch scratch = SCRATCH.get();
+            Sorts.lsdRadixSort(array, scratch.buffer(n), scratch.counts);
+        } else {
+            Sorts.sort(array);
+        }
+    }
+
+    /**
+     * A worker thread's radix sort buffer and histograms.
+     */
+    private static class Scratch {
+        final int[][] counts = new int[Integer.BYTES][256];
+        private int[] buffer = new int[0];
+
+        int[] buffer(int n) {
+            if (buffer.length >= n)
+                return buffer;
+            int[] grown = new int[Math.max(n, Math.min(MAX_POOLED_BUFFER, buffer.length * 2))];
+            if (grown.length <= MAX_POOLED_BUFFER)
+                buffer = grown;
+            return grown;
+        }
+    }
+
+    /**
+     * An array waiting in the queue and the future for it.
+     */
+    private static class Pending {
+        final int[] array;
+        final CompletableFuture<int[]> future = new CompletableFuture<>();
+
+        Pending(int[] array) {
+            this.array = array;
+        }
+    }
+
+    /**
+     * Sorts the groups [lo, hi), splitting in half until there is one group.
+     */
+    private static class GroupTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final int[][] arrays;
+        private final int[] groupStarts;
+        private final int lo;
+        private final int hi;
+
+        GroupTask(int[][] arrays, int[] groupStarts, int lo, int hi) {
+            this.arrays = arrays;
+            this.groupStarts = groupStarts;
+            this.lo = lo;
+            this.hi = hi;
+        }
+
+        @Override
+        protected void compute() {
+            if (hi - lo == 1) {
+                for (int i = groupStarts[lo]; i < groupStarts[hi]; i++)
+                    sort(arrays[i]);
+                return;
+            }
+            int mid = (lo + hi) >>> 1;
+            invokeAll(new GroupTask(arrays, groupStarts, lo, mid), new GroupTask(arrays, groupStarts, mid, hi));
+        }
+    }
+}
@@ -0,0 +1,294 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Sorts binary files of 4 byte ints that are too large to fit in memory.
+ *
+ * First the input is memory mapped a chunk at a time, each chunk is sorted with
+ * Sorts.lsdRadixSort(int[]) and spilled to a temporary sorted run file. Chunks are
+ * sized so that the chunk and the radix sort's buffer fit in the memory budget,
+ * divided between the threads if runs are generated in parallel. Then the runs are
+ * k-way merged by a MergeIterator, reading and writing through large direct
+ * buffers. If there are more runs than the merge fan-in, groups of runs are merged
+ * into longer runs first, so at most fanIn files are open at once.
+ */
+public class ExternalSort {
+
+    private static final int DEFAULT_FAN_IN = 64;
+    private static final int MIN_BUFFER_BYTES = 1 << 12;
+    private static final int MAX_BUFFER_BYTES = 1 << 26;
+    // a single mapping can not be larger than 2GB
+    private static final int MAX_CHUNK_INTS = Integer.MAX_VALUE / Integer.BYTES;
+
+    private final long memoryBudget;
+    private final int fanIn;
+    private final int threads;
+    private final Path tempDir;
+    private final ByteOrder order;
+
+    /**
+     * Creates an external sort with a fan-in of 64 that generates runs on a single
+     * thread, spills to the system temp directory and reads big endian ints.
+     * @param memoryBudget the bytes of memory the sort may use
+     */
+    public ExternalSort(long memoryBudget) {
+        this(memoryBudget, DEFAULT_FAN_IN, 1, Paths.get(System.getProperty("java.io.tmpdir")),
+                ByteOrder.BIG_ENDIAN);
+    }
+
+    /**
+     * @param memoryBudget the bytes of memory the sort may use
+     * @param fanIn the most runs merged at once, at least 2
+     * @param threads the number of runs generated in parallel
+     * @param tempDir the directory to spill the runs to
+     * @param order the byte order of the ints in the files
+     */
+    public ExternalSort(long memoryBudget, int fanIn, int threads, Path tempDir, ByteOrder order) {
+        if (memoryBudget < 1)
+            throw new IllegalArgumentException("memoryBudget must be positive: " + memoryBudget);
+        if (fanIn < 2)
+            throw new IllegalArgumentException("fanIn must be at least 2: " + fanIn);
+        if (threads < 1)
+            throw new IllegalArgumentException("threads must be positive: " + threads);
+        this.memoryBudget = memoryBudget;
+        this.fanIn = fanIn;
+        this.threads = threads;
+        this.tempDir = tempDir;
+        this.order = order;
+    }
+
+    /**
+     * Sorts the ints in input and writes them to output. The input is not changed.
+     * @param input the file to sort
+     * @param output the file to write, replaced if it exists
+     * @throws IOException if reading, writing or spilling fails
+     */
+    public void sort(Path input, Path output) throws IOException {
+        Set<Path> temps = new LinkedHashSet<>();
+        try {
+            List<Path> runs = createRuns(input, temps);
+            while (runs.size() > fanIn) {
+                List<Path> merged = new ArrayList<>();
+                for (int i = 0; i < runs.size(); i += fanIn) {
+                    List<Path> group = runs.subList(i, Math.min(i + fanIn, runs.size()));
+                    if (group.size() == 1) {
+                        merged.add(group.get(0));
+                        continue;
+                    }
+                    Path run = createTemp(temps);
+                    merge(group, run);
+                    for (Path done : group) {
+                        Files.delete(done);
+                        temps.remove(done);
+                    }
+                    merged.add(run);
+                }
+                runs = merged;
+            }
+            merge(runs, output);
+        } finally {
+            for (Path temp : temps)
+                Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Splits the input into chunks that fit in memory, sorts each and writes it
+     * to its own run file.
+     * @return the run files, in input order
+     */
+    private List<Path> createRuns(Path input, Set<Path> temps) throws IOException {
+        long bytes = Files.size(input);
+        if (bytes % Integer.BYTES != 0)
+            throw new IOException(input + " is " + bytes + " bytes, not a whole number of ints");
+        long total = bytes / Integer.BYTES;
+        // the chunk and the radix sort buffer for every thread
+        int chunkInts = (int) Math.max(1, Math.min(MAX_CHUNK_INTS, memoryBudget / (2L * Integer.BYTES * threads)));
+        int chunks = (int) ((total + chunkInts - 1) / chunkInts);
+
+        List<Path> runs = new ArrayList<>(chunks);
+        for (int c = 0; c < chunks; c++)
+            runs.add(createTemp(temps));
+
+        try (FileChannel in = FileChannel.open(input, StandardOpenOption.READ)) {
+            if (threads == 1) {
+                for (int c = 0; c < chunks; c++)
+                    sortChunk(in, (long) c * chunkInts, (int) Math.min(chunkInts, total - (long) c * chunkInts),
+                            runs.get(c));
+                return runs;
+            }
+            ExecutorService pool = Executors.newFixedThreadPool(threads);
+            try {
+                List<Future<?>> futures = new ArrayList<>(chunks);
+                for (int c = 0; c < chunks; c++) {
+                    long start = (long) c * chunkInts;
+                    int count = (int) Math.min(chunkInts, total - start);
+                    Path run = runs.get(c);
+                    futures.add(pool.submit(() -> {
+                        sortChunk(in, start, count, run);
+                        return null;
+                    }));
+                }
+                for (Future<?> future : futures)
+                    future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("interrupted while generating runs", e);
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof IOException)
+                    throw (IOException) e.getCause();
+                throw new IOException("failed to generate a run", e.getCause());
+            } finally {
+                pool.shutdownNow();
+            }
+        }
+        return runs;
+    }
+
+    /**
+     * Reads count ints starting at the int index start, sorts them and writes
+     * them to run.
+     */
+    private void sortChunk(FileChannel in, long start, int count, Path run) throws IOException {
+        int[] keys = new int[count];
+        MappedByteBuffer map = in.map(FileChannel.MapMode.READ_ONLY, start * Integer.BYTES,
+                (long) count * Integer.BYTES);
+        map.order(order).asIntBuffer().get(keys);
+        Sorts.lsdRadixSort(keys);
+        try (FileChannel out = FileChannel.open(run, StandardOpenOption.READ, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            MappedByteBuffer runMap = out.map(FileChannel.MapMode.READ_WRITE, 0, (long) count * Integer.BYTES);
+            // a temporary run is only read back by this sort, so it is not forced to disk
+            runMap.order(order).asIntBuffer().put(keys);
+        }
+    }
+
+    /**
+     * Merges the sorted runs into output through a MergeIterator.
+     */
+    private void merge(List<Path> runs, Path output) throws IOException {
+        int bufferBytes = bufferBytes(memoryBudget, runs.size());
+        List<RunReader> readers = new ArrayList<>(runs.size());
+        try {
+            for (Path run : runs)
+                readers.add(new RunReader(run, bufferBytes, order));
+            writeRun(new MergeIterator(readers), output, bufferBytes, order);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            for (RunReader reader : readers)
+                reader.close();
+        }
+    }
+
+    private static void flush(FileChannel out, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining())
+            out.write(buffer);
+        buffer.clear();
+    }
+
+    /**
+     * Writes the values to a run file through a direct buffer.
+     * @param values the values, in the order they go in the run
+     * @param run the file to write, replaced if it exists
+     * @param bufferBytes the size of the buffer, a multiple of 4
+     * @param order the byte order of the ints in the file
+     * @throws IOException if writing fails
+     */
+    static void writeRun(PrimitiveIterator.OfInt values, Path run, int bufferBytes, ByteOrder order)
+            throws IOException {
+        try (FileChannel out = FileChannel.open(run, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(bufferBytes).order(order);
+            while (values.hasNext()) {
+                if (!buffer.hasRemaining())
+                    flush(out, buffer);
+                buffer.putInt(values.nextInt());
+            }
+            flush(out, buffer);
+        }
+    }
+
+    /**
+     * Splits the memory budget between the k readers and the writer.
+     * @return the bytes for each buffer, a multiple of 4
+     */
+    static int bufferBytes(long memoryBudget, int k) {
+        long share = memoryBudget / (k + 1);
+        long bytes = Math.max(MIN_BUFFER_BYTES, Math.min(MAX_BUFFER_BYTES, share));
+        return (int) (bytes - bytes % Integer.BYTES);
+    }
+
+    private Path createTemp(Set<Path> temps) throws IOException {
+        Path temp = Files.createTempFile(tempDir, "sort-run-", ".bin");
+        temps.add(temp);
+        return temp;
+    }
+
+    /**
+     * Reads the ints of a run file through a direct buffer. A failed read throws
+     * UncheckedIOException.
+     */
+    static class RunReader implements PrimitiveIterator.OfInt, Closeable {
+        private final FileChannel channel;
+        private final ByteBuffer buffer;
+        private final IntBuffer ints;
+
+        RunReader(Path run, int bufferBytes, ByteOrder order) throws IOException {
+            channel = FileChannel.open(run, StandardOpenOption.READ);
+            buffer = ByteBuffer.allocateDirect(bufferBytes).order(order);
+            ints = buffer.asIntBuffer();
+            ints.limit(0);
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (ints.hasRemaining())
+                return true;
+            buffer.clear();
+            try {
+                while (buffer.hasRemaining() && channel.read(buffer) > 0) {
+                    // keep filling until the buffer is full or the run is done
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            ints.clear();
+            ints.limit(buffer.position() / Integer.BYTES);
+            return ints.hasRemaining();
+        }
+
+        @Override
+        public int nextInt() {
+            if (!hasNext())
+                throw new NoSuchElementException();
+            return ints.get();
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+}
@@ -0,0 +1,64 @@
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+
+/**
+ * K-way merge of sorted sources of ints. A min-heap holds the next value of every
+ * source packed with the index of its source into a long, value in the high 32
+ * bits, so the longs order by value first (see Sorts.minHeapify). The first value
+ * is ready after O(k) work for k sources and each later one costs O(logk). A
+ * source is let go of as soon as it runs out. Used by ExternalSort,
+ * StreamingSorter and SortedRunFile. Not thread safe.
+ */
+final class MergeIterator implements PrimitiveIterator.OfInt {
+
+    private final PrimitiveIterator.OfInt[] sources;
+    private final long[] heap;
+    private int heapSize = 0;
+
+    /**
+     * Takes the first value of every source.
+     * @param sources the sources, each in ascending order
+     */
+    MergeIterator(List<? extends PrimitiveIterator.OfInt> sources) {
+        this.sources = sources.toArray(new PrimitiveIterator.OfInt[0]);
+        heap = new long[this.sources.length];
+        for (int s = 0; s < this.sources.length; s++) {
+            if (this.sources[s].hasNext())
+                heap[heapSize++] = entry(this.sources[s].nextInt(), s);
+            else
+                this.sources[s] = null;
+        }
+        for (int i = heapSize / 2 - 1; i >= 0; i--)
+            Sorts.minHeapify(heap, heapSize, i);
+    }
+
+    @Override
+    public boolean hasNext() {
+        return heapSize > 0;
+    }
+
+    @Override
+    public int nextInt() {
+        if (heapSize == 0)
+            throw new NoSuchElementException();
+        long top = heap[0];
+        int s = (int) top;
+        PrimitiveIterator.OfInt source = sources[s];
+        if (source.hasNext()) {
+            heap[0] = entry(source.nextInt(), s);
+        } else {
+            sources[s] = null;
+            heap[0] = heap[--heapSize];
+        }
+        Sorts.minHeapify(heap, heapSize, 0);
+        return (int) (top >> 32);
+    }
+
+    /**
+     * Packs a value and the source it came from so that longs order by value first.
+     */
+    private static long entry(int value, int source) {
+        return (long) value << 32 | source;
+    }
+}
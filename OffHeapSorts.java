@@ -0,0 +1,504 @@
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+
+/**
+ * Versions of the main sorts in Sorts that work in place on int and long keys in
+ * NIO buffers, so data in direct (off heap) memory such as network or file
+ * buffers does not have to be copied into a heap array and back. To sort the
+ * keys in a direct ByteBuffer use its asIntBuffer() or asLongBuffer() view, which
+ * writes through to the bytes in the buffer's byte order. Each sort works on the
+ * elements between the buffer's position and limit, and does not move either.
+ * Scratch space for the radix and merge sorts is also allocated off heap.
+ */
+public class OffHeapSorts {
+
+    /**
+     * LSD radix sort of the ints in the buffer on 8 bit digits, with the sign bit
+     * flipped so negatives come first. Histograms for every pass are built in one
+     * pass up front, and passes where every key has the same digit are skipped.
+     * Uses a direct scratch buffer of the same size. Stable.
+     * @param buffer the ints to sort, from its position to its limit
+     */
+    public static void radixSort(IntBuffer buffer) {
+        int lo = buffer.position();
+        int n = buffer.remaining();
+        if (n < 2)
+            return;
+        int passes = Integer.BYTES;
+        int[][] counts = new int[passes][Sorts.RADIX];
+        for (int k = 0; k < n; k++) {
+            int key = buffer.get(lo + k) ^ Integer.MIN_VALUE;
+            for (int p = 0; p < passes; p++)
+                counts[p][(key >>> (p * 8)) & 0xFF]++;
+        }
+
+        IntBuffer src = buffer;
+        IntBuffer dst = scratchInts(n);
+        int srcBase = lo;
+        int dstBase = 0;
+        for (int p = 0; p < passes; p++) {
+            int[] count = counts[p];
+            int shift = p * 8;
+            if (count[((buffer.get(lo) ^ Integer.MIN_VALUE) >>> shift) & 0xFF] == n)
+                continue;
+            Sorts.countsToEndpoints(count);
+            for (int k = n - 1; k >= 0; k--) {
+                int value = src.get(srcBase + k);
+                dst.put(dstBase + --count[((value ^ Integer.MIN_VALUE) >>> shift) & 0xFF], value);
+            }
+            IntBuffer temp = src;
+            src = dst;
+            dst = temp;
+            int tempBase = srcBase;
+            srcBase = dstBase;
+            dstBase = tempBase;
+        }
+        if (src != buffer)
+            copy(src, 0, buffer, lo, n);
+    }
+
+    /**
+     * Introsort of the ints in the buffer, the same as Sorts.quickSort(int[]):
+     * median of three or ninther pivots, three way partitioning, recursion on the
+     * smaller side only, and heap sort once the depth passes 2*log(n). O(nlogn), in
+     * place.
+     * @param buffer the ints to sort, from its position to its limit
+     */
+    public static void quickSort(IntBuffer buffer) {
+        int lo = buffer.position();
+        quickSort(buffer, lo, buffer.limit(), Sorts.depthLimit(buffer.remaining()));
+    }
+
+    private static void quickSort(IntBuffer buffer, int lo, int hi, int depthLimit) {
+        while (hi - lo > Sorts.INSERTION_THRESHOLD) {
+            if (depthLimit-- == 0) {
+                heapSort(buffer, lo, hi);
+                return;
+            }
+            int pivot = buffer.get(choosePivot(buffer, lo, hi));
+            int lt = lo, i = lo, gt = hi - 1;
+            while (i <= gt) {
+                int value = buffer.get(i);
+                if (value < pivot)
+                    swap(buffer, lt++, i++);
+                else if (value > pivot)
+                    swap(buffer, i, gt--);
+                else
+                    i++;
+            }
+            // buffer[lt, gt] now all equal the pivot
+            if (lt - lo < hi - gt - 1) {
+                quickSort(buffer, lo, lt, depthLimit);
+                lo = gt + 1;
+            } else {
+                quickSort(buffer, gt + 1, hi, depthLimit);
+                hi = lt;
+            }
+        }
+        insertionSort(buffer, lo, hi);
+    }
+
+    /**
+     * Bottom up merge sort of the ints in the buffer. Runs of 32 are insertion
+     * sorted in place, then merged in passes that swap between the buffer and a
+     * direct scratch buffer of the same size. Stable. O(nlogn).
+     * @param buffer the ints to sort, from its position to its limit
+     */
+    public static void mergeSort(IntBuffer buffer) {
+        int lo = buffer.position();
+        int n = buffer.remaining();
+        for (int i = 0; i < n; i += Sorts.INSERTION_THRESHOLD)
+            insertionSort(buffer, lo + i, lo + Math.min(i + Sorts.INSERTION_THRESHOLD, n));
+        if (n <= Sorts.INSERTION_THRESHOLD)
+            return;
+
+        IntBuffer src = buffer;
+        IntBuffer dst = scratchInts(n);
+        int srcBase = lo;
+        int dstBase = 0;
+        for (long width = Sorts.INSERTION_THRESHOLD; width < n; width <<= 1) {
+            for (long i = 0; i < n; i += 2 * width) {
+                int mid = (int) Math.min(i + width, n);
+                int end = (int) Math.min(i + 2 * width, n);
+                merge(src, srcBase + (int) i, srcBase + mid, srcBase + end, dst, dstBase + (int) i);
+            }
+            IntBuffer temp = src;
+            src = dst;
+            dst = temp;
+            int tempBase = srcBase;
+            srcBase = dstBase;
+            dstBase = tempBase;
+        }
+        if (src != buffer)
+            copy(src, 0, buffer, lo, n);
+    }
+
+    /**
+     * Heap sort of the ints in the buffer with an iterative sift down. In place,
+     * not stable. O(nlogn).
+     * @param buffer the ints to sort, from its position to its limit
+     */
+    public static void heapSort(IntBuffer buffer) {
+        heapSort(buffer, buffer.position(), buffer.limit());
+    }
+
+    private static void heapSort(IntBuffer buffer, int lo, int hi) {
+        int n = hi - lo;
+        for (int i = n / 2 - 1; i >= 0; i--)
+            heapify(buffer, lo, n, i);
+        for (int i = n - 1; i > 0; i--) {
+            swap(buffer, lo, lo + i);
+            heapify(buffer, lo, i, 0);
+        }
+    }
+
+    /**
+     * Moves the largest value to the root of the heap at offset.
+     */
+    private static void heapify(IntBuffer buffer, int offset, int n, int i) {
+        int value = buffer.get(offset + i);
+        while (true) {
+            int largest = 2 * i + 1;
+            if (largest >= n)
+                break;
+            if (largest + 1 < n && buffer.get(offset + largest + 1) > buffer.get(offset + largest))
+                largest++;
+            if (buffer.get(offset + largest) <= value)
+                break;
+            buffer.put(offset + i, buffer.get(offset + largest));
+            i = largest;
+        }
+        buffer.put(offset + i, value);
+    }
+
+    /**
+     * Stable merge of src[lo, mid) and src[mid, hi) into dst starting at out.
+     */
+    private static void merge(IntBuffer src, int lo, int mid, int hi, IntBuffer dst, int out) {
+        int l = lo, r = mid;
+        while (l < mid && r < hi) {
+            int left = src.get(l);
+            int right = src.get(r);
+            if (left <= right) {
+                dst.put(out++, left);
+                l++;
+            } else {
+                dst.put(out++, right);
+                r++;
+            }
+        }
+        if (l < mid)
+            copy(src, l, dst, out, mid - l);
+        else if (r < hi)
+            copy(src, r, dst, out, hi - r);
+    }
+
+    private static void insertionSort(IntBuffer buffer, int lo, int hi) {
+        for (int i = lo + 1; i < hi; i++) {
+            int value = buffer.get(i);
+            int j = i - 1;
+            while (j >= lo && buffer.get(j) > value) {
+                buffer.put(j + 1, buffer.get(j));
+                j--;
+            }
+            buffer.put(j + 1, value);
+        }
+    }
+
+    /**
+     * Picks the pivot the same way as Sorts.choosePivot(int[], int, int): the
+     * median of the first, middle and last values, or of three such medians for
+     * large ranges.
+     */
+    private static int choosePivot(IntBuffer buffer, int lo, int hi) {
+        int last = hi - 1;
+        int mid = (lo + last) >>> 1;
+        if (hi - lo < Sorts.NINTHER_THRESHOLD)
+            return medianOf3(buffer, lo, mid, last);
+        int step = (hi - lo) / 8;
+        return medianOf3(buffer,
+                medianOf3(buffer, lo, lo + step, lo + 2 * step),
+                medianOf3(buffer, mid - step, mid, mid + step),
+                medianOf3(buffer, last - 2 * step, last - step, last));
+    }
+
+    private static int medianOf3(IntBuffer buffer, int a, int b, int c) {
+        int va = buffer.get(a), vb = buffer.get(b), vc = buffer.get(c);
+        if (va < vb) {
+            if (vb < vc)
+                return b;
+            return va < vc ? c : a;
+        }
+        if (va < vc)
+            return a;
+        return vb < vc ? c : b;
+    }
+
+    private static void swap(IntBuffer buffer, int i, int j) {
+        int temp = buffer.get(i);
+        buffer.put(i, buffer.get(j));
+        buffer.put(j, temp);
+    }
+
+    /**
+     * Bulk copies src[from, from + length) to dst starting at to.
+     */
+    private static void copy(IntBuffer src, int from, IntBuffer dst, int to, int length) {
+        IntBuffer source = src.duplicate();
+        source.limit(from + length).position(from);
+        IntBuffer target = dst.duplicate();
+        target.limit(to + length).position(to);
+        target.put(source);
+    }
+
+    private static IntBuffer scratchInts(int n) {
+        return ByteBuffer.allocateDirect(Math.multiplyExact(n, Integer.BYTES)).order(ByteOrder.nativeOrder())
+                .asIntBuffer();
+    }
+
+    /**
+     * LSD radix sort of the longs in the buffer on 8 bit digits, with the sign bit
+     * flipped so negatives come first. Histograms for every pass are built in one
+     * pass up front, and passes where every key has the same digit are skipped.
+     * Uses a direct scratch buffer of the same size. Stable.
+     * @param buffer the longs to sort, from its position to its limit
+     */
+    public static void radixSort(LongBuffer buffer) {
+        int lo = buffer.position();
+        int n = buffer.remaining();
+        if (n < 2)
+            return;
+        int passes = Long.BYTES;
+        int[][] counts = new int[passes][Sorts.RADIX];
+        for (int k = 0; k < n; k++) {
+            long key = buffer.get(lo + k) ^ Long.MIN_VALUE;
+            for (int p = 0; p < passes; p++)
+                counts[p][(int) (key >>> (p * 8)) & 0xFF]++;
+        }
+
+        LongBuffer src = buffer;
+        LongBuffer dst = scratchLongs(n);
+        int srcBase = lo;
+        int dstBase = 0;
+        for (int p = 0; p < passes; p++) {
+            int[] count = counts[p];
+            int shift = p * 8;
+            if (count[(int) ((buffer.get(lo) ^ Long.MIN_VALUE) >>> shift) & 0xFF] == n)
+                continue;
+            Sorts.countsToEndpoints(count);
+            for (int k = n - 1; k >= 0; k--) {
+                long value = src.get(srcBase + k);
+                dst.put(dstBase + --count[(int) ((value ^ Long.MIN_VALUE) >>> shift) & 0xFF], value);
+            }
+            LongBuffer temp = src;
+            src = dst;
+            dst = temp;
+            int tempBase = srcBase;
+            srcBase = dstBase;
+            dstBase = tempBase;
+        }
+        if (src != buffer)
+            copy(src, 0, buffer, lo, n);
+    }
+
+    /**
+     * Introsort of the longs in the buffer, the same as quickSort(IntBuffer):
+     * median of three or ninther pivots, three way partitioning, recursion on the
+     * smaller side only, and heap sort once the depth passes 2*log(n). O(nlogn), in
+     * place.
+     * @param buffer the longs to sort, from its position to its limit
+     */
+    public static void quickSort(LongBuffer buffer) {
+        int lo = buffer.position();
+        quickSort(buffer, lo, buffer.limit(), Sorts.depthLimit(buffer.remaining()));
+    }
+
+    private static void quickSort(LongBuffer buffer, int lo, int hi, int depthLimit) {
+        while (hi - lo > Sorts.INSERTION_THRESHOLD) {
+            if (depthLimit-- == 0) {
+                heapSort(buffer, lo, hi);
+                return;
+            }
+            long pivot = buffer.get(choosePivot(buffer, lo, hi));
+            int lt = lo, i = lo, gt = hi - 1;
+            while (i <= gt) {
+                long value = buffer.get(i);
+                if (value < pivot)
+                    swap(buffer, lt++, i++);
+                else if (value > pivot)
+                    swap(buffer, i, gt--);
+                else
+                    i++;
+            }
+            // buffer[lt, gt] now all equal the pivot
+            if (lt - lo < hi - gt - 1) {
+                quickSort(buffer, lo, lt, depthLimit);
+                lo = gt + 1;
+            } else {
+                quickSort(buffer, gt + 1, hi, depthLimit);
+                hi = lt;
+            }
+        }
+        insertionSort(buffer, lo, hi);
+    }
+
+    /**
+     * Bottom up merge sort of the longs in the buffer. Runs of 32 are insertion
+     * sorted in place, then merged in passes that swap between the buffer and a
+     * direct scratch buffer of the same size. Stable. O(nlogn).
+     * @param buffer the longs to sort, from its position to its limit
+     */
+    public static void mergeSort(LongBuffer buffer) {
+        int lo = buffer.position();
+        int n = buffer.remaining();
+        for (int i = 0; i < n; i += Sorts.INSERTION_THRESHOLD)
+            insertionSort(buffer, lo + i, lo + Math.min(i + Sorts.INSERTION_THRESHOLD, n));
+        if (n <= Sorts.INSERTION_THRESHOLD)
+            return;
+
+        LongBuffer src = buffer;
+        LongBuffer dst = scratchLongs(n);
+        int srcBase = lo;
+        int dstBase = 0;
+        for (long width = Sorts.INSERTION_THRESHOLD; width < n; width <<= 1) {
+            for (long i = 0; i < n; i += 2 * width) {
+                int mid = (int) Math.min(i + width, n);
+                int end = (int) Math.min(i + 2 * width, n);
+                merge(src, srcBase + (int) i, srcBase + mid, srcBase + end, dst, dstBase + (int) i);
+            }
+            LongBuffer temp = src;
+            src = dst;
+            dst = temp;
+            int tempBase = srcBase;
+            srcBase = dstBase;
+            dstBase = tempBase;
+        }
+        if (src != buffer)
+            copy(src, 0, buffer, lo, n);
+    }
+
+    /**
+     * Heap sort of the longs in the buffer with an iterative sift down. In place,
+     * not stable. O(nlogn).
+     * @param buffer the longs to sort, from its position to its limit
+     */
+    public static void heapSort(LongBuffer buffer) {
+        heapSort(buffer, buffer.position(), buffer.limit());
+    }
+
+    private static void heapSort(LongBuffer buffer, int lo, int hi) {
+        int n = hi - lo;
+        for (int i = n / 2 - 1; i >= 0; i--)
+            heapify(buffer, lo, n, i);
+        for (int i = n - 1; i > 0; i--) {
+            swap(buffer, lo, lo + i);
+            heapify(buffer, lo, i, 0);
+        }
+    }
+
+    /**
+     * Moves the largest value to the root of the heap at offset.
+     */
+    private static void heapify(LongBuffer buffer, int offset, int n, int i) {
+        long value = buffer.get(offset + i);
+        while (true) {
+            int largest = 2 * i + 1;
+            if (largest >= n)
+                break;
+            if (largest + 1 < n && buffer.get(offset + largest + 1) > buffer.get(offset + largest))
+                largest++;
+            if (buffer.get(offset + largest) <= value)
+                break;
+            buffer.put(offset + i, buffer.get(offset + largest));
+            i = largest;
+        }
+        buffer.put(offset + i, value);
+    }
+
+    /**
+     * Stable merge of src[lo, mid) and src[mid, hi) into dst starting at out.
+     */
+    private static void merge(LongBuffer src, int lo, int mid, int hi, LongBuffer dst, int out) {
+        int l = lo, r = mid;
+        while (l < mid && r < hi) {
+            long left = src.get(l);
+            long right = src.get(r);
+            if (left <= right) {
+                dst.put(out++, left);
+                l++;
+            } else {
+                dst.put(out++, right);
+                r++;
+            }
+        }
+        if (l < mid)
+            copy(src, l, dst, out, mid - l);
+        else if (r < hi)
+            copy(src, r, dst, out, hi - r);
+    }
+
+    private static void insertionSort(LongBuffer buffer, int lo, int hi) {
+        for (int i = lo + 1; i < hi; i++) {
+            long value = buffer.get(i);
+            int j = i - 1;
+            while (j >= lo && buffer.get(j) > value) {
+                buffer.put(j + 1, buffer.get(j));
+                j--;
+            }
+            buffer.put(j + 1, value);
+        }
+    }
+
+    /**
+     * Picks the pivot the same way as Sorts.choosePivot(int[], int, int): the
+     * median of the first, middle and last values, or of three such medians for
+     * large ranges.
+     */
+    private static int choosePivot(LongBuffer buffer, int lo, int hi) {
+        int last = hi - 1;
+        int mid = (lo + last) >>> 1;
+        if (hi - lo < Sorts.NINTHER_THRESHOLD)
+            return medianOf3(buffer, lo, mid, last);
+        int step = (hi - lo) / 8;
+        return medianOf3(buffer,
+                medianOf3(buffer, lo, lo + step, lo + 2 * step),
+                medianOf3(buffer, mid - step, mid, mid + step),
+                medianOf3(buffer, last - 2 * step, last - step, last));
+    }
+
+    private static int medianOf3(LongBuffer buffer, int a, int b, int c) {
+        long va = buffer.get(a), vb = buffer.get(b), vc = buffer.get(c);
+        if (va < vb) {
+            if (vb < vc)
+                return b;
+            return va < vc ? c : a;
+        }
+        if (va < vc)
+            return a;
+        return vb < vc ? c : b;
+    }
+
+    private static void swap(LongBuffer buffer, int i, int j) {
+        long temp = buffer.get(i);
+        buffer.put(i, buffer.get(j));
+        buffer.put(j, temp);
+    }
+
+    /**
+     * Bulk copies src[from, from + length) to dst starting at to.
+     */
+    private static void copy(LongBuffer src, int from, LongBuffer dst, int to, int length) {
+        LongBuffer source = src.duplicate();
+        source.limit(from + length).position(from);
+        LongBuffer target = dst.duplicate();
+        target.limit(to + length).position(to);
+        target.put(source);
+    }
+
+    private static LongBuffer scratchLongs(int n) {
+        return ByteBuffer.allocateDirect(Math.multiplyExact(n, Long.BYTES)).order(ByteOrder.nativeOrder())
+                .asLongBuffer();
+    }
+}
@@ -0,0 +1,25 @@
+/**
+ * Listener for what each call into the int sorts of Sorts cost. Install one with
+ * Sorts.setMetrics(SortMetrics). Nothing is counted unless the JVM is started with
+ * -Dsorts.metrics=true, so without that flag the sorts pay nothing for it.
+ *
+ * @see SortMetricsCollector
+ */
+@FunctionalInterface
+public interface SortMetrics {
+
+    /**
+     * Called on the sorting thread after every whole-array sort finishes. Must be
+     * cheap and thread safe, as sorts on different threads report at the same time.
+     * @param algorithm the sort that ran, e.g. quick or parallel_radix
+     * @param length the number of values sorted
+     * @param comparisons the comparisons made between values
+     * @param swaps the number of times two values were swapped
+     * @param allocatedBytes the bytes allocated on the sorting thread, 0 if the JVM
+     * can not measure it
+     * @param maxDepth the deepest the recursion went, 0 for sorts that do not recurse
+     * @param nanos the wall time of the call
+     */
+    void record(String algorithm, int length, long comparisons, long swaps, long allocatedBytes, int maxDepth,
+            long nanos);
+}
@@ -0,0 +1,138 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A SortMetrics that totals every recorded sort by algorithm and exports the
+ * totals in the Prometheus text format, so they can be served from any HTTP
+ * endpoint and scraped. Recording only adds to striped counters, so sorts on
+ * many threads do not contend.
+ */
+public class SortMetricsCollector implements SortMetrics {
+
+    private final ConcurrentHashMap<String, Totals> totals = new ConcurrentHashMap<>();
+
+    @Override
+    public void record(String algorithm, int length, long comparisons, long swaps, long allocatedBytes,
+            int maxDepth, long nanos) {
+        Totals t = totals.computeIfAbsent(algorithm, a -> new Totals());
+        t.calls.increment();
+        t.values.add(length);
+        t.comparisons.add(comparisons);
+        t.swaps.add(swaps);
+        t.allocatedBytes.add(allocatedBytes);
+        t.nanos.add(nanos);
+        t.maxDepth.accumulate(maxDepth);
+    }
+
+    /**
+     * @param algorithm the algorithm label, e.g. quick
+     * @return the number of calls recorded for it
+     */
+    public long calls(String algorithm) {
+        Totals t = totals.get(algorithm);
+        return t == null ? 0 : t.calls.sum();
+    }
+
+    /**
+     * @param algorithm the algorithm label, e.g. quick
+     * @return the comparisons recorded for it
+     */
+    public long comparisons(String algorithm) {
+        Totals t = totals.get(algorithm);
+        return t == null ? 0 : t.comparisons.sum();
+    }
+
+    /**
+     * Forgets everything recorded so far.
+     */
+    public void clear() {
+        totals.clear();
+    }
+
+    /**
+     * @return the totals in the Prometheus text exposition format
+     */
+    public String export() {
+        StringBuilder out = new StringBuilder();
+        try {
+            export(out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toString();
+    }
+
+    /**
+     * Writes the totals in the Prometheus text exposition format, with the
+     * algorithms in alphabetical order.
+     * @param out where to write them
+     * @throws IOException if out does
+     */
+    public void export(Appendable out) throws IOException {
+        Map<String, Totals> sorted = new TreeMap<>(totals);
+        counter(out, sorted, "sorts_calls_total", "Calls to each sort.", Metric.CALLS);
+        counter(out, sorted, "sorts_values_total", "Values sorted.", Metric.VALUES);
+        counter(out, sorted, "sorts_comparisons_total", "Comparisons between values.", Metric.COMPARISONS);
+        counter(out, sorted, "sorts_swaps_total", "Values swapped.", Metric.SWAPS);
+        counter(out, sorted, "sorts_allocated_bytes_total", "Bytes allocated while sorting.", Metric.ALLOCATED);
+        counter(out, sorted, "sorts_seconds_total", "Wall time spent sorting.", Metric.SECONDS);
+        header(out, "sorts_max_depth", "Deepest recursion of any call.", "gauge");
+        for (Map.Entry<String, Totals> e : sorted.entrySet())
+            sample(out, "sorts_max_depth", e.getKey(), Long.toString(e.getValue().maxDepth.get()));
+    }
+
+    private enum Metric {
+        CALLS, VALUES, COMPARISONS, SWAPS, ALLOCATED, SECONDS;
+    }
+
+    private static void counter(Appendable out, Map<String, Totals> sorted, String name, String help, Metric metric)
+            throws IOException {
+        header(out, name, help, "counter");
+        for (Map.Entry<String, Totals> e : sorted.entrySet())
+            sample(out, name, e.getKey(), e.getValue().value(metric));
+    }
+
+    private static void header(Appendable out, String name, String help, String type) throws IOException {
+        out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        out.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+    }
+
+    private static void sample(Appendable out, String name, String algorithm, String value) throws IOException {
+        out.append(name).append("{algorithm=\"").append(algorithm).append("\"} ").append(value).append('\n');
+    }
+
+    /**
+     * The running totals for one algorithm.
+     */
+    private static class Totals {
+        final LongAdder calls = new LongAdder();
+        final LongAdder values = new LongAdder();
+        final LongAdder comparisons = new LongAdder();
+        final LongAdder swaps = new LongAdder();
+        final LongAdder allocatedBytes = new LongAdder();
+        final LongAdder nanos = new LongAdder();
+        final LongAccumulator maxDepth = new LongAccumulator(Math::max, 0);
+
+        String value(Metric metric) {
+            switch (metric) {
+            case CALLS:
+                return Long.toString(calls.sum());
+            case VALUES:
+                return Long.toString(values.sum());
+            case COMPARISONS:
+                return Long.toString(comparisons.sum());
+            case SWAPS:
+                return Long.toString(swaps.sum());
+            case ALLOCATED:
+                return Long.toString(allocatedBytes.sum());
+            default:
+                return Double.toString(nanos.sum() / 1e9);
+            }
+        }
+    }
+}
@@ -0,0 +1,198 @@
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+
+/**
+ * A growable sorted collection of ints (duplicates allowed). Adding a value just
+ * appends it to an unsorted tail, growing the backing array by half when it is
+ * full, so adds are O(1) amortized with no boxing. The tail is only sorted and
+ * merged into the sorted values when the buffer is read, using
+ * Sorts.insert(int[], int, int). Not thread safe.
+ */
+public class SortedIntBuffer {
+
+    private static final int DEFAULT_CAPACITY = 16;
+
+    private int[] data;
+    private int size = 0;
+    // data[0, sortedSize) is sorted, data[sortedSize, size) has not been merged yet
+    private int sortedSize = 0;
+
+    /**
+     * Creates an empty buffer with room for 16 values.
+     */
+    public SortedIntBuffer() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Creates an empty buffer.
+     * @param capacity the number of values to make room for up front
+     */
+    public SortedIntBuffer(int capacity) {
+        if (capacity < 0)
+            throw new IllegalArgumentException("capacity must not be negative: " + capacity);
+        data = new int[capacity];
+    }
+
+    /**
+     * Adds a value. O(1) amortized.
+     * @param value the value to add
+     */
+    public void add(int value) {
+        if (size == data.length)
+            grow(size + 1);
+        data[size++] = value;
+    }
+
+    /**
+     * Adds all of the values. O(k) amortized.
+     * @param values the values to add
+     */
+    public void addAll(int[] values) {
+        if (data.length - size < values.length)
+            grow(size + values.length);
+        System.arraycopy(values, 0, data, size, values.length);
+        size += values.length;
+    }
+
+    /**
+     * Removes one occurrence of the value.
+     * @param value the value to remove
+     * @return true if the value was found and removed
+     */
+    public boolean remove(int value) {
+        int index = binarySearch(value);
+        if (index < 0)
+            return false;
+        System.arraycopy(data, index + 1, data, index, size - index - 1);
+        size--;
+        sortedSize--;
+        return true;
+    }
+
+    /**
+     * @param index the position in sorted order
+     * @return the value at the index
+     */
+    public int get(int index) {
+        if (index < 0 || index >= size)
+            throw new IndexOutOfBoundsException("index " + index + " out of bounds for size " + size);
+        sort();
+        return data[index];
+    }
+
+    /**
+     * @param value the value to rank
+     * @return the number of values less than value
+     */
+    public int rank(int value) {
+        sort();
+        int lo = 0, hi = size;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (data[mid] < value)
+                lo = mid + 1;
+            else
+                hi = mid;
+        }
+        return lo;
+    }
+
+    /**
+     * Searches for the value the same way as Arrays.binarySearch(int[], int).
+     * @param value the value to search for
+     * @return the index of the value, or (-(insertion point) - 1) if it is not
+     * in the buffer
+     */
+    public int binarySearch(int value) {
+        sort();
+        return Arrays.binarySearch(data, 0, size, value);
+    }
+
+    /**
+     * @param value the value to look for
+     * @return true if the buffer holds the value
+     */
+    public boolean contains(int value) {
+        return binarySearch(value) >= 0;
+    }
+
+    /**
+     * @return the number of values in the buffer
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return true if there are no values in the buffer
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Removes every value, keeping the capacity.
+     */
+    public void clear() {
+        size = 0;
+        sortedSize = 0;
+    }
+
+    /**
+     * @return a new array of the values in sorted order
+     */
+    public int[] toArray() {
+        sort();
+        return Arrays.copyOf(data, size);
+    }
+
+    /**
+     * Iterates the values in sorted order without boxing them. The buffer should
+     * not be changed while iterating.
+     * @return the iterator
+     */
+    public PrimitiveIterator.OfInt iterator() {
+        sort();
+        int[] values = data;
+        int end = size;
+        return new PrimitiveIterator.OfInt() {
+            private int next = 0;
+
+            @Override
+            public boolean hasNext() {
+                return next < end;
+            }
+
+            @Override
+            public int nextInt() {
+                if (next >= end)
+                    throw new NoSuchElementException();
+                return values[next++];
+            }
+        };
+    }
+
+    /**
+     * Sorts the unsorted tail and merges it into the sorted values.
+     */
+    private void sort() {
+        if (sortedSize == size)
+            return;
+        Sorts.insert(data, sortedSize, size);
+        sortedSize = size;
+    }
+
+    /**
+     * Grows the backing array by half, or to minCapacity if that is larger.
+     */
+    private void grow(int minCapacity) {
+        if (minCapacity < 0)
+            throw new OutOfMemoryError("SortedIntBuffer can not hold more than 2^31 - 1 values");
+        int newCapacity = data.length + (data.length >> 1) + 1;
+        if (newCapacity < minCapacity || newCapacity < 0)
+            newCapacity = minCapacity;
+        data = Arrays.copyOf(data, newCapacity);
+    }
+}
@@ -0,0 +1,536 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.function.IntConsumer;
+
+/**
+ * A file of sorted ints (duplicates allowed) that can be searched without reading
+ * it all back. The values are stored in blocks of 128 (by default): the first
+ * value of the block, then the gaps to each following value bit packed with just
+ * enough bits for the largest gap in the block (frame of reference on the
+ * deltas). Dense or heavily repeated keys take a few bits each instead of 32.
+ *
+ * An index of the first value and file offset of every block is kept at the end
+ * of the file and loaded into memory by open(Path), so contains and rank are a
+ * binary search of the index and a scan of one block of the memory mapped file,
+ * and a range scan only decodes the blocks it returns. Write a file from the
+ * output of any sort with write(Path, int[]) or a Writer (which takes the values
+ * of StreamingSorter.iterator() one at a time), and merge files into a new one
+ * with merge(List, Path), which streams the runs through a MergeIterator like
+ * ExternalSort.
+ *
+ * Layout, little endian: a 32 byte header (magic, version, block size, count,
+ * number of blocks, index offset), the blocks (first value, one byte of bit width,
+ * the packed gaps in longs), then the index (first value and offset per block).
+ * Files are mapped in one piece, so they can be at most 2GB. An open file is
+ * thread safe; its iterators are not.
+ */
+public final class SortedRunFile implements Closeable {
+
+    private static final int MAGIC = 0x4E555253; // "SRUN"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 32;
+    private static final int INDEX_ENTRY_BYTES = Integer.BYTES + Long.BYTES;
+    private static final int DEFAULT_BLOCK_SIZE = 128;
+    private static final int WRITE_BUFFER_BYTES = 1 << 16;
+    // the most values whose block still fits the write buffer with 32 bit gaps
+    private static final int MAX_BLOCK_SIZE = (WRITE_BUFFER_BYTES - Integer.BYTES - 1) / Long.BYTES * 2 + 1;
+
+    private final FileChannel channel;
+    private final MappedByteBuffer map;
+    private final int blockSize;
+    private final long count;
+    private final int blocks;
+    // the sparse index: the first value of each block and where the block starts
+    private final int[] firsts;
+    private final long[] offsets;
+
+    private SortedRunFile(FileChannel channel, MappedByteBuffer map) throws IOException {
+        this.channel = channel;
+        this.map = map;
+        map.order(ByteOrder.LITTLE_ENDIAN);
+        if (map.capacity() < HEADER_BYTES || map.getInt(0) != MAGIC)
+            throw new IOException("not a sorted run file");
+        if (map.getInt(4) != VERSION)
+            throw new IOException("unsupported sorted run file version " + map.getInt(4));
+        blockSize = map.getInt(8);
+        count = map.getLong(12);
+        blocks = map.getInt(20);
+        long indexOffset = map.getLong(24);
+        if (indexOffset + (long) blocks * INDEX_ENTRY_BYTES > map.capacity())
+            throw new IOException("sorted run file is truncated");
+        firsts = new int[blocks];
+        offsets = new long[blocks];
+        for (int b = 0; b < blocks; b++) {
+            int entry = (int) (indexOffset + (long) b * INDEX_ENTRY_BYTES);
+            firsts[b] = map.getInt(entry);
+            offsets[b] = map.getLong(entry + Integer.BYTES);
+        }
+    }
+
+    /**
+     * Memory maps a file written by a Writer and loads its block index.
+     * @param path the file to open
+     * @return the open file, to be closed when done
+     * @throws IOException if the file can not be read or is not a sorted run file
+     */
+    public static SortedRunFile open(Path path) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE)
+                throw new IOException(path + " is larger than 2GB");
+            return new SortedRunFile(channel, channel.map(FileChannel.MapMode.READ_ONLY, 0, size));
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Writes sorted values to a new sorted run file with blocks of 128.
+     * @param path the file to write, replaced if it exists
+     * @param sorted the values, in ascending order
+     * @throws IOException if writing fails
+     * @throws IllegalArgumentException if the values are not sorted
+     */
+    public static void write(Path path, int[] sorted) throws IOException {
+        Writer writer = new Writer(path);
+        try {
+            for (int value : sorted)
+                writer.accept(value);
+        } catch (RuntimeException e) {
+            writer.abort();
+            throw e;
+        }
+        writer.close();
+    }
+
+    /**
+     * Merges sorted run files into a new one, keeping every duplicate. Only one
+     * block of each input is decoded at a time, and the smallest next value is
+     * picked by a MergeIterator.
+     * @param runs the files to merge
+     * @param output the file to write, replaced if it exists, which must not be one
+     * of the runs
+     * @throws IOException if reading or writing fails
+     * @throws IllegalArgumentException if the output is one of the runs
+     */
+    public static void merge(List<Path> runs, Path output) throws IOException {
+        int k = runs.size();
+        SortedRunFile[] files = new SortedRunFile[k];
+        try {
+            // every input is open before the output is truncated
+            boolean replacing = Files.exists(output);
+            for (int r = 0; r < k; r++) {
+                files[r] = open(runs.get(r));
+                if (replacing && Files.isSameFile(runs.get(r), output))
+                    throw new IllegalArgumentException("the output " + output + " is also a run to merge");
+            }
+            Writer writer = new Writer(output);
+            try {
+                mergeInto(files, writer);
+            } catch (RuntimeException e) {
+                writer.abort();
+                throw e;
+            }
+            writer.close();
+        } finally {
+            for (SortedRunFile file : files) {
+                if (file != null)
+                    file.close();
+            }
+        }
+    }
+
+    /**
+     * Writes the values of every file to the writer in ascending order.
+     */
+    private static void mergeInto(SortedRunFile[] files, Writer writer) {
+        List<PrimitiveIterator.OfInt> iterators = new ArrayList<>(files.length);
+        for (SortedRunFile file : files)
+            iterators.add(file.iterator());
+        new MergeIterator(iterators).forEachRemaining(writer);
+    }
+
+    /**
+     * @return the number of values in the file
+     */
+    public long size() {
+        return count;
+    }
+
+    /**
+     * @param value the value to look for
+     * @return true if the file holds the value at least once
+     */
+    public boolean contains(int value) {
+        int b = findBlock(value, true);
+        if (b < 0)
+            return false;
+        long found = scan(b, value);
+        return (int) (found >>> 32) < blockLength(b) && (int) found == value;
+    }
+
+    /**
+     * @param value the value to rank
+     * @return the number of values in the file less than it, which is also the
+     * index of its first occurrence if it is there
+     */
+    public long rank(int value) {
+        int b = findBlock(value, false);
+        if (b < 0)
+            return 0;
+        return (long) b * blockSize + (scan(b, value) >>> 32);
+    }
+
+    /**
+     * Iterates every value in the file in ascending order.
+     * @return the iterator
+     */
+    public PrimitiveIterator.OfInt iterator() {
+        return new BlockIterator(0, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Iterates the values from min to max, both inclusive, in ascending order.
+     * Starts at rank(min), so only the blocks that hold the range are decoded.
+     * @param min the smallest value to return
+     * @param max the largest value to return
+     * @return the iterator
+     */
+    public PrimitiveIterator.OfInt range(int min, int max) {
+        if (min > max)
+            throw new IllegalArgumentException("min(" + min + ") > max(" + max + ")");
+        return new BlockIterator(rank(min), max);
+    }
+
+    /**
+     * Closes the file. The mapping itself is released when it is garbage collected.
+     */
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * Binary searches the index for the last block whose first value is less than
+     * value, or equal to it as well if inclusive.
+     * @return the block, or -1 if every block starts after value
+     */
+    private int findBlock(int value, boolean inclusive) {
+        int lo = 0, hi = blocks - 1, found = -1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            int first = firsts[mid];
+            if (first < value || (inclusive && first == value)) {
+                found = mid;
+                lo = mid + 1;
+            } else {
+                hi = mid - 1;
+            }
+        }
+        return found;
+    }
+
+    private int blockLength(int b) {
+        return b < blocks - 1 ? blockSize : (int) (count - (long) b * blockSize);
+    }
+
+    /**
+     * Decodes block b up to the first value that is not less than value, reading
+     * the packed gaps a long at a time.
+     * @return the number of values of the block less than value in the high int,
+     * and the value after them in the low int if there is one
+     */
+    private long scan(int b, int value) {
+        int length = blockLength(b);
+        int v = firsts[b];
+        if (v >= value)
+            return v & 0xFFFFFFFFL;
+        int at = (int) offsets[b] + Integer.BYTES;
+        int bits = map.get(at++);
+        if (bits == 0)
+            return (long) length << 32;
+        long mask = (1L << bits) - 1;
+        long word = map.getLong(at);
+        int available = Long.SIZE;
+        for (int i = 1; i < length; i++) {
+            long gap;
+            if (available >= bits) {
+                gap = word & mask;
+                word >>>= bits;
+                available -= bits;
+            } else {
+                // the gap straddles this long and the next
+                at += Long.BYTES;
+                long next = map.getLong(at);
+                gap = (word | next << available) & mask;
+                word = next >>> (bits - available);
+                available += Long.SIZE - bits;
+            }
+            v += (int) gap;
+            if (v >= value)
+                return (long) i << 32 | (v & 0xFFFFFFFFL);
+        }
+        return (long) length << 32;
+    }
+
+    /**
+     * Decodes one block at a time, from a starting index until a value is past max.
+     */
+    private class BlockIterator implements PrimitiveIterator.OfInt {
+        private final int max;
+        private final int[] values = new int[blockSize];
+        private int block;
+        private int length = 0;
+        private int position = 0;
+
+        BlockIterator(long start, int max) {
+            this.max = max;
+            block = (int) (start / blockSize);
+            if (block < blocks) {
+                decode(block);
+                position = (int) (start % blockSize);
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (position == length) {
+                if (block + 1 >= blocks)
+                    return false;
+                decode(++block);
+            }
+            return values[position] <= max;
+        }
+
+        @Override
+        public int nextInt() {
+            if (!hasNext())
+                throw new NoSuchElementException();
+            return values[position++];
+        }
+
+        private void decode(int b) {
+            length = blockLength(b);
+            position = 0;
+            int at = (int) offsets[b] + Integer.BYTES;
+            int bits = map.get(at++);
+            int v = firsts[b];
+            values[0] = v;
+            if (bits == 0) {
+                Arrays.fill(values, 1, length, v);
+                return;
+            }
+            long mask = (1L << bits) - 1;
+            long word = map.getLong(at);
+            int available = Long.SIZE;
+            for (int i = 1; i < length; i++) {
+                long gap;
+                if (available >= bits) {
+                    gap = word & mask;
+                    word >>>= bits;
+                    available -= bits;
+                } else {
+                    at += Long.BYTES;
+                    long next = map.getLong(at);
+                    gap = (word | next << available) & mask;
+                    word = next >>> (bits - available);
+                    available += Long.SIZE - bits;
+                }
+                v += (int) gap;
+                values[i] = v;
+            }
+        }
+    }
+
+    /**
+     * Writes ascending ints to a new sorted run file, a block at a time. The header
+     * and index are written by close(), so the file is not readable before that.
+     * If the values can not all be written (an accept throws, or the source of the
+     * values fails), call abort() instead of close() so no partial file is left
+     * that reads as complete. Not thread safe.
+     */
+    public static class Writer implements IntConsumer, Closeable {
+        private final Path path;
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(WRITE_BUFFER_BYTES)
+                .order(ByteOrder.LITTLE_ENDIAN);
+        private final int blockSize;
+        private final int[] block;
+        private int blockLength = 0;
+        private long count = 0;
+        private long position = HEADER_BYTES;
+        private int[] firsts = new int[16];
+        private long[] offsets = new long[16];
+        private int blocks = 0;
+        private int last;
+        private boolean closed = false;
+
+        /**
+         * Creates a writer with blocks of 128 values.
+         * @param path the file to write, replaced if it exists
+         * @throws IOException if the file can not be created
+         */
+        public Writer(Path path) throws IOException {
+            this(path, DEFAULT_BLOCK_SIZE);
+        }
+
+        /**
+         * @param path the file to write, replaced if it exists
+         * @param blockSize the values per block: smaller blocks make lookups scan
+         * less and the index larger, from 2 to 16383
+         * @throws IOException if the file can not be created
+         */
+        public Writer(Path path, int blockSize) throws IOException {
+            if (blockSize < 2 || blockSize > MAX_BLOCK_SIZE)
+                throw new IllegalArgumentException("blockSize must be from 2 to " + MAX_BLOCK_SIZE + ": "
+                        + blockSize);
+            this.path = path;
+            this.blockSize = blockSize;
+            block = new int[blockSize];
+            channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING);
+            // the header goes in front once the counts are known
+            channel.position(HEADER_BYTES);
+        }
+
+        /**
+         * Adds the next value, which must not be less than the one before.
+         * @param value the value to add
+         * @throws IllegalArgumentException if the value is out of order
+         * @throws UncheckedIOException if writing a full block fails
+         */
+        @Override
+        public void accept(int value) {
+            if (closed)
+                throw new IllegalStateException("the writer is closed");
+            if (count > 0 && value < last)
+                throw new IllegalArgumentException("values must be written in ascending order: " + value
+                        + " after " + last);
+            last = value;
+            block[blockLength++] = value;
+            count++;
+            if (blockLength == blockSize) {
+                try {
+                    writeBlock();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        }
+
+        /**
+         * Writes the last block, the index and the header, and closes the file. If
+         * that fails the file is deleted.
+         */
+        @Override
+        public void close() throws IOException {
+            if (closed)
+                return;
+            closed = true;
+            boolean written = false;
+            try {
+                if (blockLength > 0)
+                    writeBlock();
+                long indexOffset = position;
+                for (int b = 0; b < blocks; b++) {
+                    if (buffer.remaining() < INDEX_ENTRY_BYTES)
+                        flush();
+                    buffer.putInt(firsts[b]).putLong(offsets[b]);
+                }
+                flush();
+                ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+                header.putInt(MAGIC).putInt(VERSION).putInt(blockSize).putLong(count).putInt(blocks)
+                        .putLong(indexOffset);
+                header.flip();
+                long at = 0;
+                while (header.hasRemaining())
+                    at += channel.write(header, at);
+                written = true;
+            } finally {
+                channel.close();
+                if (!written)
+                    Files.deleteIfExists(path);
+            }
+        }
+
+        /**
+         * Closes and deletes the file without finishing it. Does nothing once the
+         * writer is closed.
+         * @throws IOException if the file can not be deleted
+         */
+        public void abort() throws IOException {
+            if (closed)
+                return;
+            closed = true;
+            try {
+                channel.close();
+            } finally {
+                Files.deleteIfExists(path);
+            }
+        }
+
+        /**
+         * Encodes block[0, blockLength): the first value, the bit width of the
+         * largest gap, then every gap packed into longs, low bits first.
+         */
+        private void writeBlock() throws IOException {
+            int n = blockLength;
+            int widest = 0;
+            for (int i = 1; i < n; i++)
+                widest |= block[i] - block[i - 1];
+            // the gaps are unsigned, up to 2^32 - 1 between MIN_VALUE and MAX_VALUE
+            int bits = Integer.SIZE - Integer.numberOfLeadingZeros(widest);
+            int bytes = Integer.BYTES + 1 + (int) (((long) (n - 1) * bits + 63) >>> 6) * Long.BYTES;
+            if (buffer.remaining() < bytes)
+                flush();
+
+            if (blocks == firsts.length) {
+                firsts = Arrays.copyOf(firsts, blocks * 2);
+                offsets = Arrays.copyOf(offsets, blocks * 2);
+            }
+            firsts[blocks] = block[0];
+            offsets[blocks++] = position;
+            buffer.putInt(block[0]).put((byte) bits);
+            if (bits > 0) {
+                long word = 0;
+                int filled = 0;
+                for (int i = 1; i < n; i++) {
+                    long gap = (block[i] - block[i - 1]) & 0xFFFFFFFFL;
+                    word |= gap << filled;
+                    filled += bits;
+                    if (filled >= Long.SIZE) {
+                        buffer.putLong(word);
+                        filled -= Long.SIZE;
+                        word = filled == 0 ? 0 : gap >>> (bits - filled);
+                    }
+                }
+                if (filled > 0)
+                    buffer.putLong(word);
+            }
+            position += bytes;
+            blockLength = 0;
+        }
+
+        private void flush() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining())
+                channel.write(buffer);
+            buffer.clear();
+        }
+    }
+}
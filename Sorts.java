@@ -1,11 +1,52 @@
+import java.lang.management.ManagementFactory;
 import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Locale;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.IntConsumer;
+import java.util.function.ToIntFunction;
+import java.util.function.ToLongFunction;
 
 public class Sorts {
 
-    private static boolean PRINT = false;
+    // the instrumentation is only compiled in when started with -Dsorts.metrics=true,
+    // otherwise every METRICS check is a constant false branch the JIT removes
+    static final boolean METRICS = Boolean.getBoolean("sorts.metrics");
+    private static volatile SortMetrics LISTENER = null;
+    private static final ThreadLocal<Probe> PROBES = ThreadLocal.withInitial(Probe::new);
+    private static final com.sun.management.ThreadMXBean ALLOCATIONS = allocationCounter();
+    private static int PARALLEL_THRESHOLD = 1 << 13;
+    static final int INSERTION_THRESHOLD = 32;
+    static final int NINTHER_THRESHOLD = 128;
+    private static final int SAMPLE_OVERSAMPLING = 32;
+    private static final int MAX_SAMPLE_BUCKETS = 1024;
+    static final int RADIX = 256;
+    // thresholds sort(int[]) uses to pick an algorithm, see the setters
+    private static int RADIX_SORT_THRESHOLD = 1 << 12;
+    private static int WIDE_RADIX_THRESHOLD = 1 << 16;
+    private static int PARALLEL_SORT_THRESHOLD = 1 << 20;
+    private static int COUNT_RANGE_FACTOR = 2;
+    private static int PRESORTED_RUN_LENGTH = 128;
+    private static int DISTINCT_PERCENT = 10;
+    private static final int DISTINCT_SAMPLE = 256;
+    private static final int MAX_COUNT_RANGE = 1 << 26;
+    // countSort(int[]) counts in an array up to this range, or a few times the length
+    private static final int DENSE_COUNT_RANGE = 1 << 16;
+    private static final int DENSE_COUNT_FACTOR = 4;
+    private static final int NETWORK_THRESHOLD = 16;
 
     private enum Type {
-        COUNT, RADIX, BUBBLE, MERGE, QUICK, INSERTION, SELECTION, HEAP;
+        SORT, COUNT, RADIX, LSD_RADIX, PARALLEL_RADIX, PARALLEL_MSD_RADIX, BUBBLE, MERGE, TIM, PARALLEL_MERGE,
+        QUICK, SAMPLE, INSERTION, SELECTION, HEAP, KEY, COMPARATOR;
+
+        /**
+         * @return the name the metrics are recorded under, e.g. parallel_radix
+         */
+        String label() {
+            return name().toLowerCase(Locale.ROOT);
+        }
     }
 
     /**
@@ -18,13 +59,34 @@ public class Sorts {
      * @param max the maximum value in the array
      */
     public static void countSort(int[] array, int min, int max) {
+        Call call = begin();
+        countSort(array, 0, array.length, min, max);
+        end(call, Type.COUNT, array.length);
+    }
+
+    /**
+     * Count sorts array[from, to), leaving the rest of the array alone.
+     * @param array the array to sort
+     * @param from the first index to sort
+     * @param to the index after the last one to sort
+     * @param min the minimum value in the range
+     * @param max the maximum value in the range
+     * @see #countSort(int[], int, int)
+     */
+    public static void countSort(int[] array, int from, int to, int min, int max) {
+        rangeCheck(array.length, from, to);
+        if (!denseCount(to - from, min, max)) {
+            // too many counters for the values, or max - min overflows an int
+            sparseCountSort(array, from, to);
+            return;
+        }
         // calculate the range
         int range = max - min;
         // make an array of values (dependent on range)
         int[] count = new int[range + 1];
 
         // count how many occurrences there are of each value O(n)
-        for (int i = 0; i < array.length; i++) {
+        for (int i = from; i < to; i++) {
             count[array[i] - min]++;
         }
 
@@ -33,19 +95,238 @@ public class Sorts {
         // I did this to save memory. It makes the cumulative complexity O(3n) = O(n)
         countsToEndpoints(count);
 
-        int[] sorted = new int[array.length];
+        int[] sorted = new int[to - from];
 
         // reloop backwards (to maintain a stable sort), sorting using endpoints (need to decrement
         // endpoints
         // before using them, firstly to make them an index, then afterword to
         // correctly sort them
-        for (int i = array.length - 1; i >= 0; i--) {
+        for (int i = to - 1; i >= from; i--) {
             // sorted[endpoint[arrayvalue - min]]
             sorted[--count[array[i] - min]] = array[i];
         }
 
-        deepCopy(array, sorted);
-        print(array, Type.COUNT);
+        System.arraycopy(sorted, 0, array, from, sorted.length);
+    }
+
+    /**
+     * Count sorts the array without being told its range. One pass finds the min
+     * and max; a range up to a few times the length is counted in an array as
+     * countSort(int[], int, int) does, and a wider one (e.g. ids anywhere in 0 to
+     * 2^31) is counted in a hash table of the distinct values, whose keys are then
+     * sorted. Either way the memory is proportional to the smaller of the range
+     * and the number of distinct values, never to max - min alone. The hash table
+     * pays off when values repeat a lot; for mostly distinct values over a wide
+     * range sort(int[]) is faster.
+     * @param array the array to sort
+     */
+    public static void countSort(int[] array) {
+        Call call = begin();
+        int n = array.length;
+        if (n > 1) {
+            int min = array[0];
+            int max = array[0];
+            for (int i = 1; i < n; i++) {
+                min = Math.min(min, array[i]);
+                max = Math.max(max, array[i]);
+            }
+            if (denseCount(n, min, max)) {
+                countSort(array, 0, n, min, max);
+            } else {
+                sparseCountSort(array, 0, n);
+            }
+        }
+        end(call, Type.COUNT, n);
+    }
+
+    /**
+     * Counts how many times each distinct value occurs in the array, which is left
+     * as it is. The result is the sorted array in run-length form: every distinct
+     * value in ascending order with its count. Small ranges are counted in an array
+     * and wide ones in a hash table, as in countSort(int[]), so the memory is
+     * proportional to the number of distinct values.
+     * @param array the values to count
+     * @return the distinct values and their counts
+     */
+    public static ValueCounts countDistinct(int[] array) {
+        return countDistinct(array, 0, array.length);
+    }
+
+    /**
+     * Counts the distinct values of array[from, to).
+     * @param array the values to count
+     * @param from the first index to count
+     * @param to the index after the last one to count
+     * @return the distinct values and their counts
+     * @see #countDistinct(int[])
+     */
+    public static ValueCounts countDistinct(int[] array, int from, int to) {
+        rangeCheck(array.length, from, to);
+        if (from == to)
+            return new ValueCounts(new int[0], new int[0]);
+        int min = array[from];
+        int max = array[from];
+        for (int i = from + 1; i < to; i++) {
+            min = Math.min(min, array[i]);
+            max = Math.max(max, array[i]);
+        }
+        if (denseCount(to - from, min, max)) {
+            int[] count = new int[max - min + 1];
+            for (int i = from; i < to; i++)
+                count[array[i] - min]++;
+            int distinct = 0;
+            for (int c : count) {
+                if (c != 0)
+                    distinct++;
+            }
+            int[] values = new int[distinct];
+            int[] counts = new int[distinct];
+            for (int v = 0, d = 0; d < distinct; v++) {
+                if (count[v] != 0) {
+                    values[d] = v + min;
+                    counts[d++] = count[v];
+                }
+            }
+            return new ValueCounts(values, counts);
+        }
+        Histogram histogram = new Histogram(to - from);
+        for (int i = from; i < to; i++)
+            histogram.add(array[i]);
+        int[] values = histogram.keys();
+        sortKeys(values);
+        int[] counts = new int[values.length];
+        for (int d = 0; d < values.length; d++)
+            counts[d] = histogram.count(values[d]);
+        return new ValueCounts(values, counts);
+    }
+
+    /**
+     * Whether n values between min and max are better counted in an array of
+     * max - min + 1 counters than in a hash table of the distinct values.
+     */
+    private static boolean denseCount(int n, int min, int max) {
+        long range = (long) max - min + 1;
+        return range <= Math.max(DENSE_COUNT_RANGE, (long) n * DENSE_COUNT_FACTOR) && range <= MAX_COUNT_RANGE;
+    }
+
+    /**
+     * Count sorts array[from, to) through a hash table of the distinct values:
+     * count them, sort the distinct values, and write each one out as many times
+     * as it was counted.
+     */
+    private static void sparseCountSort(int[] array, int from, int to) {
+        Histogram histogram = new Histogram(to - from);
+        for (int i = from; i < to; i++)
+            histogram.add(array[i]);
+        int[] values = histogram.keys();
+        sortKeys(values);
+        int k = from;
+        for (int value : values) {
+            int count = histogram.count(value);
+            Arrays.fill(array, k, k + count, value);
+            k += count;
+        }
+    }
+
+    /**
+     * Sorts the distinct values of a Histogram. Not with sort(int[]), which could
+     * pick count sort for them again and never get to the end.
+     */
+    private static void sortKeys(int[] keys) {
+        if (keys.length >= RADIX_SORT_THRESHOLD)
+            lsdRadixSort(keys);
+        else
+            quickSort(keys);
+    }
+
+    /**
+     * How many times each int occurs, in an open addressing hash table of two int
+     * arrays with linear probing. A count of 0 marks an empty slot. The table
+     * doubles whenever it is half full, so it stays at two to four slots per
+     * distinct value.
+     */
+    private static final class Histogram {
+        private static final int INITIAL_CAPACITY = 1 << 10;
+        private int[] keys;
+        private int[] counts;
+        // the slot is the top bits of key * golden ratio, so shift = 32 - log2(capacity)
+        private int shift;
+        private int size = 0;
+
+        /**
+         * @param n the number of values that will be added, which bounds the size
+         */
+        Histogram(int n) {
+            int capacity = Math.min(INITIAL_CAPACITY, Integer.highestOneBit(Math.max(n, 1)) << 1);
+            allocate(Math.max(capacity, 2));
+        }
+
+        void add(int key) {
+            int mask = keys.length - 1;
+            int i = slot(key);
+            while (counts[i] != 0) {
+                if (keys[i] == key) {
+                    counts[i]++;
+                    return;
+                }
+                i = (i + 1) & mask;
+            }
+            keys[i] = key;
+            counts[i] = 1;
+            if (++size > keys.length >> 1)
+                grow();
+        }
+
+        /**
+         * @return the times key was added, 0 if it never was
+         */
+        int count(int key) {
+            int mask = keys.length - 1;
+            for (int i = slot(key); counts[i] != 0; i = (i + 1) & mask) {
+                if (keys[i] == key)
+                    return counts[i];
+            }
+            return 0;
+        }
+
+        /**
+         * @return every key added, in no particular order
+         */
+        int[] keys() {
+            int[] distinct = new int[size];
+            int d = 0;
+            for (int i = 0; i < keys.length; i++) {
+                if (counts[i] != 0)
+                    distinct[d++] = keys[i];
+            }
+            return distinct;
+        }
+
+        private int slot(int key) {
+            return (key * 0x9E3779B9) >>> shift;
+        }
+
+        private void allocate(int capacity) {
+            keys = new int[capacity];
+            counts = new int[capacity];
+            shift = Integer.numberOfLeadingZeros(capacity) + 1;
+        }
+
+        private void grow() {
+            int[] oldKeys = keys;
+            int[] oldCounts = counts;
+            allocate(keys.length << 1);
+            int mask = keys.length - 1;
+            for (int j = 0; j < oldKeys.length; j++) {
+                if (oldCounts[j] == 0)
+                    continue;
+                int i = slot(oldKeys[j]);
+                while (counts[i] != 0)
+                    i = (i + 1) & mask;
+                keys[i] = oldKeys[j];
+                counts[i] = oldCounts[j];
+            }
+        }
     }
 
     /**
@@ -91,6 +372,7 @@ public class Sorts {
         // = 1.235 * 0.1 -> should use (0.1^length - i)
         // then use % 10 to get the digit
 
+        Call call = begin();
         int[] sorted = new int[array.length];
         int[] digits = new int[array.length];
         // needs to cover 0 - 9 (10 numbers)
@@ -110,16 +392,387 @@ public class Sorts {
             }
             // copy sorted to array.
             deepCopy(array, sorted);
-            print(array, Type.RADIX + " Iteration: " + (i + 1) + " ");
         }
-        print(array, Type.RADIX);
+        end(call, Type.RADIX, array.length);
+    }
+
+    /**
+     * LSD radix sort over the full 32 bit range using 8 bit digits.
+     * @param array the array to sort
+     * @see #lsdRadixSort(int[], int)
+     */
+    public static void lsdRadixSort(int[] array) {
+        lsdRadixSort(array, 8);
+    }
+
+    /**
+     * Radix sort is a stable sorting algorithm of O(n). This version works on the
+     * binary representation of the keys instead of decimal digits, so any int
+     * (including negatives) can be sorted without knowing its length. The sign bit
+     * is flipped so negatives order before positives. All digit histograms are
+     * built in a single pass up front, and any pass where every key shares the same
+     * digit is skipped. Each pass then scatters with count endpoints just like
+     * countSort, swapping between the array and one buffer.
+     * @param array the array to sort
+     * @param digitBits the bits per digit (8, 11 or 16)
+     * @see #countSort(int[], int, int)
+     */
+    public static void lsdRadixSort(int[] array, int digitBits) {
+        Call call = begin();
+        lsdRadixSort(array, 0, array.length, digitBits);
+        end(call, Type.LSD_RADIX, array.length);
+    }
+
+    /**
+     * LSD radix sorts array[from, to) with 8 bit digits, leaving the rest of the
+     * array alone.
+     * @param array the array to sort
+     * @param from the first index to sort
+     * @param to the index after the last one to sort
+     * @see #lsdRadixSort(int[], int)
+     */
+    public static void lsdRadixSort(int[] array, int from, int to) {
+        rangeCheck(array.length, from, to);
+        lsdRadixSort(array, from, to, 8);
+    }
+
+    private static void lsdRadixSort(int[] array, int from, int to, int digitBits) {
+        if (digitBits != 8 && digitBits != 11 && digitBits != 16)
+            throw new IllegalArgumentException("digitBits must be 8, 11 or 16: " + digitBits);
+        int n = to - from;
+        if (n < 2)
+            return;
+        int passes = (Integer.SIZE + digitBits - 1) / digitBits;
+        lsdRadixSort(array, from, to, digitBits, new int[n], new int[passes][1 << digitBits]);
+    }
+
+    /**
+     * lsdRadixSort(int[]) with caller supplied scratch space, so nothing is
+     * allocated. Used by BatchSorter with buffers kept per thread.
+     * @param array the array to sort
+     * @param buffer scratch space at least as long as the array
+     * @param counts four histograms of 256 counts, which are overwritten
+     */
+    static void lsdRadixSort(int[] array, int[] buffer, int[][] counts) {
+        for (int[] count : counts)
+            Arrays.fill(count, 0);
+        lsdRadixSort(array, 0, array.length, 8, buffer, counts);
+    }
+
+    /**
+     * Sorts array[from, to) using the buffer from index 0 and zeroed histograms,
+     * one per pass.
+     */
+    private static void lsdRadixSort(int[] array, int from, int to, int digitBits, int[] buffer, int[][] counts) {
+        int n = to - from;
+        if (n < 2)
+            return;
+        int passes = counts.length;
+        int mask = (1 << digitBits) - 1;
+
+        // one pass to build every histogram
+        for (int k = from; k < to; k++) {
+            int key = array[k] ^ Integer.MIN_VALUE;
+            for (int p = 0; p < passes; p++) {
+                counts[p][(key >>> (p * digitBits)) & mask]++;
+            }
+        }
+
+        // the range is copied to the start of the buffer on the first pass
+        int[] src = array;
+        int[] dst = buffer;
+        int srcBase = from;
+        int dstBase = 0;
+        for (int p = 0; p < passes; p++) {
+            int[] count = counts[p];
+            int shift = p * digitBits;
+            // every key has the same digit, so this pass would not move anything
+            if (count[((array[from] ^ Integer.MIN_VALUE) >>> shift) & mask] == n)
+                continue;
+            countsToEndpoints(count);
+            for (int k = n - 1; k >= 0; k--) {
+                int value = src[srcBase + k];
+                dst[dstBase + --count[((value ^ Integer.MIN_VALUE) >>> shift) & mask]] = value;
+            }
+            int[] temp = src;
+            src = dst;
+            dst = temp;
+            int tempBase = srcBase;
+            srcBase = dstBase;
+            dstBase = tempBase;
+        }
+        if (src != array)
+            System.arraycopy(src, 0, array, from, n);
+    }
+
+    /**
+     * Parallel LSD radix sort that runs on the common fork join pool.
+     * @param array the array to sort
+     * @see #parallelRadixSort(int[], ForkJoinPool, int)
+     */
+    public static void parallelRadixSort(int[] array) {
+        ForkJoinPool pool = ForkJoinPool.commonPool();
+        parallelRadixSort(array, pool, pool.getParallelism());
+    }
+
+    /**
+     * Parallel version of lsdRadixSort(int[]) using 8 bit digits. On each pass
+     * every thread builds a histogram of its own chunk, the histograms are combined
+     * with a prefix sum into the offset each chunk writes each digit to, and then
+     * every chunk scatters in parallel without any locking. Chunks are laid out in
+     * order, so the sort is still stable. Passes where every key has the same digit
+     * are skipped.
+     * @param array the array to sort
+     * @param pool the pool to run the tasks on
+     * @param parallelism the number of threads expected to work on the sort
+     * @see #setParallelThreshold(int)
+     */
+    public static void parallelRadixSort(int[] array, ForkJoinPool pool, int parallelism) {
+        if (parallelism < 1)
+            throw new IllegalArgumentException("parallelism must be positive: " + parallelism);
+        int n = array.length;
+        Call call = begin();
+        if (parallelism == 1 || n <= PARALLEL_THRESHOLD) {
+            lsdRadixSort(array);
+            end(call, Type.PARALLEL_RADIX, n);
+            return;
+        }
+        int chunks = Math.min(parallelism, n / PARALLEL_THRESHOLD);
+        int[][] counts = new int[chunks][RADIX];
+        int[] src = array;
+        int[] dst = new int[n];
+        for (int shift = 0; shift < Integer.SIZE; shift += 8) {
+            if (parallelRadixPass(pool, src, dst, counts, shift)) {
+                int[] temp = src;
+                src = dst;
+                dst = temp;
+            }
+        }
+        if (src != array)
+            parallelCopy(pool, src, array, chunks);
+        end(call, Type.PARALLEL_RADIX, n);
+    }
+
+    /**
+     * Parallel LSD radix sort for longs that runs on the common fork join pool.
+     * @param array the array to sort
+     * @see #parallelRadixSort(long[], ForkJoinPool, int)
+     */
+    public static void parallelRadixSort(long[] array) {
+        ForkJoinPool pool = ForkJoinPool.commonPool();
+        parallelRadixSort(array, pool, pool.getParallelism());
+    }
+
+    /**
+     * 64 bit version of parallelRadixSort(int[], ForkJoinPool, int). Takes up to
+     * eight passes of 8 bit digits, skipping passes where every key has the same
+     * digit, so keys that only use their low bits are cheaper to sort. Stable.
+     * @param array the array to sort
+     * @param pool the pool to run the tasks on
+     * @param parallelism the number of threads expected to work on the sort
+     * @see #setParallelThreshold(int)
+     */
+    public static void parallelRadixSort(long[] array, ForkJoinPool pool, int parallelism) {
+        if (parallelism < 1)
+            throw new IllegalArgumentException("parallelism must be positive: " + parallelism);
+        int n = array.length;
+        Call call = begin();
+        if (parallelism == 1 || n <= PARALLEL_THRESHOLD) {
+            lsdRadixSort(array);
+            end(call, Type.PARALLEL_RADIX, n);
+            return;
+        }
+        int chunks = Math.min(parallelism, n / PARALLEL_THRESHOLD);
+        int[][] counts = new int[chunks][RADIX];
+        long[] src = array;
+        long[] dst = new long[n];
+        for (int shift = 0; shift < Long.SIZE; shift += 8) {
+            final long[] from = src, to = dst;
+            final int s = shift;
+            forEachParallel(pool, chunks, c -> {
+                int[] count = counts[c];
+                Arrays.fill(count, 0);
+                for (int i = chunkStart(n, chunks, c), end = chunkStart(n, chunks, c + 1); i < end; i++)
+                    count[(int) (((from[i] ^ Long.MIN_VALUE) >>> s) & 0xFF)]++;
+            });
+            if (!countsToChunkOffsets(counts, n))
+                continue;
+            forEachParallel(pool, chunks, c -> {
+                int[] offsets = counts[c];
+                for (int i = chunkStart(n, chunks, c), end = chunkStart(n, chunks, c + 1); i < end; i++)
+                    to[offsets[(int) (((from[i] ^ Long.MIN_VALUE) >>> s) & 0xFF)]++] = from[i];
+            });
+            src = to;
+            dst = from;
+        }
+        if (src != array) {
+            final long[] sorted = src;
+            forEachParallel(pool, chunks, c -> {
+                int start = chunkStart(n, chunks, c);
+                System.arraycopy(sorted, start, array, start, chunkStart(n, chunks, c + 1) - start);
+            });
+        }
+        end(call, Type.PARALLEL_RADIX, n);
+    }
+
+    /**
+     * Parallel MSD radix sort that runs on the common fork join pool.
+     * @param array the array to sort
+     * @see #parallelMsdRadixSort(int[], ForkJoinPool, int)
+     */
+    public static void parallelMsdRadixSort(int[] array) {
+        ForkJoinPool pool = ForkJoinPool.commonPool();
+        parallelMsdRadixSort(array, pool, pool.getParallelism());
+    }
+
+    /**
+     * MSD radix sort that distributes the array into 256 buckets on its most
+     * significant byte with the same per thread histograms as parallelRadixSort,
+     * and then sorts the buckets in parallel on their remaining three bytes. Each
+     * bucket only touches its own part of the array and buffer, which keeps the
+     * working set of a thread small on very large arrays. Stable.
+     * @param array the array to sort
+     * @param pool the pool to run the tasks on
+     * @param parallelism the number of threads expected to work on the sort
+     * @see #setParallelThreshold(int)
+     */
+    public static void parallelMsdRadixSort(int[] array, ForkJoinPool pool, int parallelism) {
+        if (parallelism < 1)
+            throw new IllegalArgumentException("parallelism must be positive: " + parallelism);
+        int n = array.length;
+        Call call = begin();
+        if (parallelism == 1 || n <= PARALLEL_THRESHOLD) {
+            lsdRadixSort(array);
+            end(call, Type.PARALLEL_MSD_RADIX, n);
+            return;
+        }
+        int chunks = Math.min(parallelism, n / PARALLEL_THRESHOLD);
+        int[][] counts = new int[chunks][RADIX];
+        int[] buffer = new int[n];
+        if (!parallelRadixPass(pool, array, buffer, counts, 24)) {
+            // every key shares its top byte, so there is only one bucket to recurse into
+            parallelRadixSort(array, pool, parallelism);
+            end(call, Type.PARALLEL_MSD_RADIX, n);
+            return;
+        }
+        // the last chunk's offsets are now the end of each bucket
+        int[] bucketEnds = counts[chunks - 1];
+        forEachParallel(pool, RADIX, b -> {
+            int lo = b == 0 ? 0 : bucketEnds[b - 1];
+            int hi = bucketEnds[b];
+            if (!radixSortRange(buffer, array, lo, hi, 3))
+                System.arraycopy(buffer, lo, array, lo, hi - lo);
+        });
+        end(call, Type.PARALLEL_MSD_RADIX, n);
+    }
+
+    /**
+     * Stable LSD radix sort of src[lo, hi) on its lowest 8 bit digits, swapping
+     * between src and dst on each pass.
+     * @param src the array holding the range
+     * @param dst the scratch array for the same range
+     * @param lo the low index
+     * @param hi the high index (exclusive)
+     * @param passes the number of low bytes to sort by
+     * @return true if the sorted range ended up in dst, false if in src
+     */
+    private static boolean radixSortRange(int[] src, int[] dst, int lo, int hi, int passes) {
+        if (hi - lo <= INSERTION_THRESHOLD) {
+            insertionSortRange(src, lo, hi);
+            return false;
+        }
+        boolean inDst = false;
+        int[] count = new int[RADIX + 1];
+        for (int p = 0, shift = 0; p < passes; p++, shift += 8) {
+            Arrays.fill(count, 0);
+            for (int i = lo; i < hi; i++)
+                count[((src[i] >>> shift) & 0xFF) + 1]++;
+            if (count[((src[lo] >>> shift) & 0xFF) + 1] == hi - lo)
+                continue;
+            // count[d] becomes the first index of digit d
+            count[0] = lo;
+            countsToEndpoints(count);
+            for (int i = lo; i < hi; i++)
+                dst[count[(src[i] >>> shift) & 0xFF]++] = src[i];
+            int[] temp = src;
+            src = dst;
+            dst = temp;
+            inDst = !inDst;
+        }
+        return inDst;
+    }
+
+    /**
+     * Runs one parallel LSD pass on the 8 bit digit at shift, scattering src into
+     * dst. Afterwards counts holds the end offsets each chunk wrote up to.
+     * @param pool the pool to run on
+     * @param src the array to read from
+     * @param dst the array to scatter into
+     * @param counts one histogram per chunk
+     * @param shift the bit offset of the digit
+     * @return false if the pass was skipped because every key had the same digit
+     */
+    private static boolean parallelRadixPass(ForkJoinPool pool, int[] src, int[] dst, int[][] counts,
+            int shift) {
+        int n = src.length;
+        int chunks = counts.length;
+        forEachParallel(pool, chunks, c -> {
+            int[] count = counts[c];
+            Arrays.fill(count, 0);
+            for (int i = chunkStart(n, chunks, c), end = chunkStart(n, chunks, c + 1); i < end; i++)
+                count[((src[i] ^ Integer.MIN_VALUE) >>> shift) & 0xFF]++;
+        });
+        if (!countsToChunkOffsets(counts, n))
+            return false;
+        forEachParallel(pool, chunks, c -> {
+            int[] offsets = counts[c];
+            for (int i = chunkStart(n, chunks, c), end = chunkStart(n, chunks, c + 1); i < end; i++)
+                dst[offsets[((src[i] ^ Integer.MIN_VALUE) >>> shift) & 0xFF]++] = src[i];
+        });
+        return true;
+    }
+
+    /**
+     * Prefix sums per chunk histograms so that counts[c][d] is where chunk c
+     * writes its first value with digit d: every smaller digit comes first, then
+     * the same digit from earlier chunks.
+     * @param counts one histogram per chunk
+     * @param n the total number of values
+     * @return false if every value had the same digit, leaving counts unchanged
+     */
+    private static boolean countsToChunkOffsets(int[][] counts, int n) {
+        int sum = 0;
+        for (int d = 0; d < counts[0].length; d++) {
+            int total = 0;
+            for (int[] count : counts)
+                total += count[d];
+            if (total == n)
+                return false;
+            for (int[] count : counts) {
+                int c = count[d];
+                count[d] = sum;
+                sum += c;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Copies src into dst with one task per chunk.
+     */
+    private static void parallelCopy(ForkJoinPool pool, int[] src, int[] dst, int chunks) {
+        int n = src.length;
+        forEachParallel(pool, chunks, c -> {
+            int start = chunkStart(n, chunks, c);
+            System.arraycopy(src, start, dst, start, chunkStart(n, chunks, c + 1) - start);
+        });
     }
 
     /**
      * Takes all counts and makes them endpoints. Used in Count sort and Radix sort
      * @param count the count array
      */
-    private static void countsToEndpoints(int[] count) {
+    static void countsToEndpoints(int[] count) {
         int sum = 0;
         for (int i = 0; i < count.length; i++) {
             sum += count[i];
@@ -136,17 +789,29 @@ public class Sorts {
      * @param array the array to sort
      */
     public static void bubbleSort(int[] array) {
+        Call call = begin();
+        bubbleSort(array, 0, array.length);
+        end(call, Type.BUBBLE, array.length);
+    }
+
+    /**
+     * Bubble sorts array[from, to), leaving the rest of the array alone.
+     * @param array the array to sort
+     * @param from the first index to sort
+     * @param to the index after the last one to sort
+     */
+    public static void bubbleSort(int[] array, int from, int to) {
+        rangeCheck(array.length, from, to);
         boolean sorted;
         do {
             sorted = true;
-            for (int i = 0; i < array.length - 1; i++) {
-                if (array[i] > array[i + 1]) {
+            for (int i = from; i < to - 1; i++) {
+                if (less(array[i + 1], array[i])) {
                     swap(array, i, i + 1);
                     sorted = false;
                 }
             }
         } while (!sorted);
-        print(array, Type.BUBBLE);
     }
 
     /**
@@ -156,8 +821,9 @@ public class Sorts {
      * @param array
      */
     public static void mergeSort(int[] array) {
+        Call call = begin();
         mergeHelper(array, 0, array.length - 1);
-        print(array, Type.MERGE);
+        end(call, Type.MERGE, array.length);
     }
 
     /**
@@ -170,10 +836,12 @@ public class Sorts {
     private static void mergeHelper(int[] array, int left, int right) {
         if (left >= right)
             return;
+        enter();
         int middle = (left + right - 1) / 2;
         mergeHelper(array, left, middle);
         mergeHelper(array, middle + 1, right);
         merge(array, left, middle, right);
+        exit();
     }
 
     /**
@@ -206,7 +874,7 @@ public class Sorts {
         while (l < leftArr.length && r < rightArr.length) {
             // if the left array value is less than or equal to the right array
             // then add that value first... otherwise add the right value first
-            if (leftArr[l] <= rightArr[r]) {
+            if (!less(rightArr[r], leftArr[l])) {
                 array[i] = leftArr[l];
                 l++;
             } else {
@@ -231,225 +899,4278 @@ public class Sorts {
     }
 
     /**
-     * A divide and conquer algorithm that picks an element as a pivot and
-     * partitions the given array around the picked pivot. 
-     * {@link https://www.geeksforgeeks.org/quick-sort/}
-     * 
-     * Worst case is O(n^2), however the average case is O(nlogn). Merge sort is
-     * considered better when dealing with large amounts of data and when it is in
-     * external storage.
-     * 
-     * Quick sort is generally considered better when in use with arrays, as there
-     * is less overhead since the array does not need to be stored more than once
-     * (except in the aforementioned huge cases)
-     * TODO I want to implement the median pivot case... that or the random one
+     * Merge sort that allocates a single buffer of size n for the whole sort
+     * instead of two new arrays on every merge.
      * @param array the array to sort
+     * @see #mergeSort(int[], int[])
      */
-    public static void quickSort(int[] array) {
-        quickSortHelper(array, 0, array.length - 1);
-        print(array, Type.QUICK);
+    public static void bufferedMergeSort(int[] array) {
+        mergeSort(array, new int[array.length]);
     }
 
     /**
-     * This implementation uses the last element as the pivot. The pivot
-     * is then put at the correct position in a sorted array.
+     * Merge sort using a caller supplied buffer, so no memory is allocated by the
+     * sort. The array is copied into the buffer once and then each level of the
+     * recursion merges from one of the two arrays into the other instead of copying
+     * back. Runs smaller than a fixed threshold are insertion sorted, and merges of
+     * runs that are already in order are skipped. Stable. O(nlogn) in all cases.
      * @param array the array to sort
-     * @return the pivot index
+     * @param buffer the scratch space, at least as long as the array
      */
-    private static int partition(int[] array, int low, int high) {
-        int pivot = array[high];
-        int i = low - 1; // index of smaller element
-        for (int j = low; j < high; j++) {
-            if (array[j] < pivot) {
-                i++;
-
-                swap(array, i, j);
-            }
-        }
-
-        swap(array, i + 1, high);
-
-        return i + 1;
+    public static void mergeSort(int[] array, int[] buffer) {
+        if (buffer.length < array.length)
+            throw new IllegalArgumentException(
+                    "buffer length " + buffer.length + " is less than array length " + array.length);
+        Call call = begin();
+        System.arraycopy(array, 0, buffer, 0, array.length);
+        mergeHelper(buffer, array, 0, array.length);
+        end(call, Type.MERGE, array.length);
     }
 
     /**
-     * Recursively partitions and then sorts the list based off the partition
+     * Merge sorts array[from, to), leaving the rest of the array alone. Uses the
+     * buffered merge sort on a copy of the range. Stable.
      * @param array the array to sort
-     * @param low the lowIndex
-     * @param high the highIndex
+     * @param from the first index to sort
+     * @param to the index after the last one to sort
+     * @see #mergeSort(int[], int[])
+     */
+    public static void mergeSort(int[] array, int from, int to) {
+        rangeCheck(array.length, from, to);
+        int[] buffer = Arrays.copyOfRange(array, from, to);
+        int[] range = Arrays.copyOf(buffer, buffer.length);
+        mergeHelper(buffer, range, 0, range.length);
+        System.arraycopy(range, 0, array, from, range.length);
+    }
+
+    /**
+     * Sorts src[lo, hi) into dst[lo, hi). Both arrays must hold the same values
+     * in that range when called.
+     * @param src the array to read from
+     * @param dst the array to write the sorted run to
+     * @param lo the low index
+     * @param hi the high index (exclusive)
      */
-    private static void quickSortHelper(int[] array, int low, int high) {
-        if (low < high) {
-            // partitioning index
-            int pi = partition(array, low, high);
-            print(array, "partioned array (" + pi + "): ");
-            quickSortHelper(array, low, pi - 1);
-            quickSortHelper(array, pi + 1, high);
+    private static void mergeHelper(int[] src, int[] dst, int lo, int hi) {
+        if (hi - lo <= INSERTION_THRESHOLD) {
+            insertionSortRange(dst, lo, hi);
+            return;
         }
+        enter();
+        int mid = (lo + hi) >>> 1;
+        // sort each half into src so they can be merged into dst
+        mergeHelper(dst, src, lo, mid);
+        mergeHelper(dst, src, mid, hi);
+        if (!less(src[mid], src[mid - 1]))
+            System.arraycopy(src, lo, dst, lo, hi - lo);
+        else
+            mergeRuns(src, lo, mid, mid, hi, dst, lo);
+        exit();
     }
 
     /**
-     * Takes the minimum value and puts it at the first index, then does this
-     * until the end of the list. O(n^2) time complexity. Useful when memory
-     * write is a costly operation.
+     * bufferedMergeSort(int[]) with branch free merges. On random data the branch
+     * that picks which run the next value comes from is mispredicted about half the
+     * time; here both values are loaded and the winner is picked with a conditional
+     * move instead. Faster on random data, slower on presorted data where the branch
+     * would be predicted anyway. Stable. O(nlogn) in all cases.
      * @param array the array to sort
      */
-    public static void selectionSort(int[] array) {
-        int sortIndex = 0;
-        for (int i = 0; i < array.length; i++) {
-            int minIndex = sortIndex;
-            for (int j = sortIndex; j < array.length; j++) {
-                if (array[j] < array[minIndex])
-                    minIndex = j;
-            }
-            swap(array, sortIndex, minIndex);
-            sortIndex++;
-        }
-        print(array, Type.SELECTION);
+    public static void branchlessMergeSort(int[] array) {
+        Call call = begin();
+        int[] buffer = Arrays.copyOf(array, array.length);
+        branchlessMergeHelper(buffer, array, 0, array.length);
+        end(call, Type.MERGE, array.length);
     }
 
     /**
-     * Sorts value into the sorted array. Worst case O(n)
-     * @param sortedArray the sorted array
-     * @param value the value to add
-     * @return the new sorted array
+     * mergeHelper(int[], int[], int, int) with branchlessMergeRuns.
      */
-    public static int[] insert(int[] sortedArray, int value) {
-        int[] insertArray = Arrays.copyOf(sortedArray, sortedArray.length + 1);
-        int insertIndex = 0;
-        boolean added = false;
-        for (int i = 0; i < sortedArray.length; i++) {
-            if (!added && value < sortedArray[i]) {
-                insertArray[insertIndex] = value;
-                i--;
-                added = true;
-            } else {
-                insertArray[insertIndex] = sortedArray[i];
-            }
-            insertIndex++;
+    private static void branchlessMergeHelper(int[] src, int[] dst, int lo, int hi) {
+        if (hi - lo <= INSERTION_THRESHOLD) {
+            insertionSortRange(dst, lo, hi);
+            return;
         }
-        return insertArray;
+        enter();
+        int mid = (lo + hi) >>> 1;
+        branchlessMergeHelper(dst, src, lo, mid);
+        branchlessMergeHelper(dst, src, mid, hi);
+        if (!less(src[mid], src[mid - 1]))
+            System.arraycopy(src, lo, dst, lo, hi - lo);
+        else
+            branchlessMergeRuns(src, lo, mid, mid, hi, dst, lo);
+        exit();
     }
 
     /**
-     * Sorts values into the sorted array. Worst case O(n^2).
-     * @param sortedArray the sorted array
-     * @param values the values to add
-     * @return the new sorted array
+     * mergeRuns where both candidates are loaded and the winner picked with a
+     * conditional move, so which run wins does not have to be predicted.
      */
-    public static int[] insert(int[] sortedArray, int[] values) {
-        for (int i = 0; i < values.length; i++) {
-            sortedArray = insert(sortedArray, values[i]);
+    private static void branchlessMergeRuns(int[] src, int lo1, int hi1, int lo2, int hi2, int[] dst, int out) {
+        int l = lo1, r = lo2;
+        while (l < hi1 && r < hi2) {
+            int left = src[l];
+            int right = src[r];
+            // take from the left on ties to keep the sort stable
+            int takeRight = less(right, left) ? 1 : 0;
+            dst[out++] = takeRight == 1 ? right : left;
+            r += takeRight;
+            l += 1 - takeRight;
         }
-        return sortedArray;
+        if (l < hi1)
+            System.arraycopy(src, l, dst, out, hi1 - l);
+        if (r < hi2)
+            System.arraycopy(src, r, dst, out, hi2 - r);
     }
 
     /**
-     * Insertion sort works by sorting in ascending order, checking if the current
-     * element is smaller than the previous. If it is, a nested loop activates to
-     * loop until it is in the correct position. This sorting algorithm has O(n^2).
-     * However, best case of O(n) if the array is already sorted except for some
-     * number of values (small). It is a stable sort.
+     * Adaptive merge sort (TimSort) for data that is already partially sorted.
+     * Rather than splitting down to length 1 like mergeSort, it finds the runs
+     * that are already ascending or strictly descending, extends short runs with
+     * binary insertion sort and merges the runs with galloping, which skips
+     * through the parts of a run that do not need to move. A sorted or reverse
+     * sorted array is O(n), and the worst case is still O(nlogn). Stable.
      * @param array the array to sort
      */
-    public static void insertionSort(int[] array) {
-        for (int i = 1; i < array.length; i++) {
-            if (array[i] < array[i - 1]) {
-                for (int j = i; j > 0; j--) {
-                    if (array[j] < array[j - 1])
-                        swap(array, j, j - 1);
-                    else
-                        break;
-                }
-            }
-        }
-        print(array, Type.INSERTION);
+    public static void timSort(int[] array) {
+        Call call = begin();
+        TimSort.sort(array, 0, array.length);
+        end(call, Type.TIM, array.length);
     }
 
     /**
-     * Sorts the array by creating a max-heap and then calling heapify recursively
-     * after putting the root as a leaf to sort all elements. Heapify is not stable,
-     * but has O(nlogn). In practice, Mergesort and Quicksort are better, but Heapsort
-     * is used because of how common the Heap data structure is.
-     * @param array to sort
+     * TimSorts array[from, to), leaving the rest of the array alone.
+     * @param array the array to sort
+     * @param from the first index to sort
+     * @param to the index after the last one to sort
+     * @see #timSort(int[])
      */
-    public static void heapSort(int[] array) {
-        int n = array.length;
+    public static void timSort(int[] array, int from, int to) {
+        rangeCheck(array.length, from, to);
+        TimSort.sort(array, from, to);
+    }
 
-        for (int i = n / 2 - 1; i >= 0; i--) {
-            heapify(array, n, i);
-        }
+    /**
+     * Parallel version of mergeSort(int[]) that runs on the common fork join pool.
+     * Merge sort is a stable sorting algorithm. O(nlogn) in all cases.
+     * @param array the array to sort
+     * @see #parallelMergeSort(int[], ForkJoinPool, int)
+     */
+    public static void parallelMergeSort(int[] array) {
+        ForkJoinPool pool = ForkJoinPool.commonPool();
+        parallelMergeSort(array, pool, pool.getParallelism());
+    }
 
-        for (int i = n - 1; i > 0; i--) {
-            swap(array, 0, i);
-            heapify(array, i, 0);
+    /**
+     * Splits the recursion of merge sort across fork join tasks until a subarray is
+     * smaller than the sequential cutoff, which is then sorted on a single thread
+     * with the buffered merge sort. Large merges are also split in two by taking the
+     * middle of the longer run and binary searching for it in the shorter run, so the
+     * final merge is not done by a single thread. Uses one buffer of size n, with each
+     * level of the recursion swapping which of the two arrays it merges into. Stable.
+     * @param array the array to sort
+     * @param pool the pool to run the tasks on
+     * @param parallelism the number of threads expected to work on the sort
+     * @see #setParallelThreshold(int)
+     */
+    public static void parallelMergeSort(int[] array, ForkJoinPool pool, int parallelism) {
+        if (parallelism < 1)
+            throw new IllegalArgumentException("parallelism must be positive: " + parallelism);
+        int n = array.length;
+        // aim for a few tasks per thread so work stealing can balance them
+        int cutoff = Math.max(PARALLEL_THRESHOLD, n / (parallelism * 4));
+        Call call = begin();
+        if (parallelism == 1 || n <= cutoff) {
+            // the same buffered merge sort as the leaves, without allocating per merge
+            mergeHelper(Arrays.copyOf(array, n), array, 0, n);
+        } else {
+            pool.invoke(new MergeSortTask(array, new int[n], 0, n, false, cutoff));
         }
-        print(array, Type.HEAP);
+        end(call, Type.PARALLEL_MERGE, n);
     }
 
     /**
-     * Moves the largest value to the root.
-     * @param array the array to heapify
-     * @param n the size of the array
-     * @param i the index of the current node
+     * Sorts array[lo, hi) leaving the result in either the array or the buffer.
+     * The two halves are sorted into the opposite array and then merged back.
      */
-    private static void heapify(int[] array, int n, int i) {
-        int largest = i;
-        int l = 2 * i + 1;
-        int r = 2 * i + 2;
+    private static class MergeSortTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final int[] array;
+        private final int[] buffer;
+        private final int lo;
+        private final int hi;
+        private final boolean intoBuffer;
+        private final int cutoff;
 
-        if (l < n && array[l] > array[largest])
-            largest = l;
-        if (r < n && array[r] > array[largest])
-            largest = r;
+        MergeSortTask(int[] array, int[] buffer, int lo, int hi, boolean intoBuffer, int cutoff) {
+            this.array = array;
+            this.buffer = buffer;
+            this.lo = lo;
+            this.hi = hi;
+            this.intoBuffer = intoBuffer;
+            this.cutoff = cutoff;
+        }
 
-        if (largest != i) {
-            swap(array, i, largest);
-            heapify(array, n, largest);
+        @Override
+        protected void compute() {
+            if (hi - lo <= cutoff) {
+                System.arraycopy(array, lo, buffer, lo, hi - lo);
+                if (intoBuffer)
+                    mergeHelper(array, buffer, lo, hi);
+                else
+                    mergeHelper(buffer, array, lo, hi);
+                return;
+            }
+            int mid = (lo + hi) >>> 1;
+            invokeAll(new MergeSortTask(array, buffer, lo, mid, !intoBuffer, cutoff),
+                    new MergeSortTask(array, buffer, mid, hi, !intoBuffer, cutoff));
+            int[] src = intoBuffer ? array : buffer;
+            int[] dst = intoBuffer ? buffer : array;
+            new MergeTask(src, dst, lo, mid, mid, hi, lo, cutoff).compute();
         }
-        print(array, "Heapify for node: " + i + " ");
     }
 
     /**
-     * Swaps the two indexes of the array
+     * Merges the sorted runs src[lo1, hi1) and src[lo2, hi2) into dst starting at
+     * out. Large merges are split at the middle of the longer run so both halves
+     * can be merged in parallel.
+     */
+    private static class MergeTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final int[] src;
+        private final int[] dst;
+        private final int lo1;
+        private final int hi1;
+        private final int lo2;
+        private final int hi2;
+        private final int out;
+        private final int cutoff;
+
+        MergeTask(int[] src, int[] dst, int lo1, int hi1, int lo2, int hi2, int out, int cutoff) {
+            this.src = src;
+            this.dst = dst;
+            this.lo1 = lo1;
+            this.hi1 = hi1;
+            this.lo2 = lo2;
+            this.hi2 = hi2;
+            this.out = out;
+            this.cutoff = cutoff;
+        }
+
+        @Override
+        protected void compute() {
+            int size1 = hi1 - lo1;
+            int size2 = hi2 - lo2;
+            if (size1 + size2 <= cutoff) {
+                mergeRuns(src, lo1, hi1, lo2, hi2, dst, out);
+                return;
+            }
+            int m1, m2;
+            if (size1 >= size2) {
+                m1 = (lo1 + hi1) >>> 1;
+                // right values equal to the split go after it to stay stable
+                m2 = lowerBound(src, lo2, hi2, src[m1]);
+            } else {
+                m2 = (lo2 + hi2) >>> 1;
+                // left values equal to the split go before it to stay stable
+                m1 = upperBound(src, lo1, hi1, src[m2]);
+            }
+            int outMid = out + (m1 - lo1) + (m2 - lo2);
+            invokeAll(new MergeTask(src, dst, lo1, m1, lo2, m2, out, cutoff),
+                    new MergeTask(src, dst, m1, hi1, m2, hi2, outMid, cutoff));
+        }
+    }
+
+    /**
+     * Stable merge of the sorted runs src[lo1, hi1) and src[lo2, hi2) into dst
+     * starting at out. Unlike merge(int[], int, int, int) this does not allocate.
+     * @param src the array holding both runs
+     * @param lo1 the start of the left run
+     * @param hi1 the end of the left run (exclusive)
+     * @param lo2 the start of the right run
+     * @param hi2 the end of the right run (exclusive)
+     * @param dst the array to merge into
+     * @param out the index in dst to start at
+     */
+    private static void mergeRuns(int[] src, int lo1, int hi1, int lo2, int hi2, int[] dst, int out) {
+        int l = lo1, r = lo2;
+        while (l < hi1 && r < hi2) {
+            // take from the left on ties to keep the sort stable
+            if (!less(src[r], src[l]))
+                dst[out++] = src[l++];
+            else
+                dst[out++] = src[r++];
+        }
+        if (l < hi1)
+            System.arraycopy(src, l, dst, out, hi1 - l);
+        if (r < hi2)
+            System.arraycopy(src, r, dst, out, hi2 - r);
+    }
+
+    /**
+     * Binary search for the first index in array[lo, hi) with a value not less
+     * than key.
+     * @return the index, or hi if every value is less than key
+     */
+    private static int lowerBound(int[] array, int lo, int hi, int key) {
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (less(array[mid], key))
+                lo = mid + 1;
+            else
+                hi = mid;
+        }
+        return lo;
+    }
+
+    /**
+     * Binary search for the first index in array[lo, hi) with a value greater
+     * than key.
+     * @return the index, or hi if no value is greater than key
+     */
+    private static int upperBound(int[] array, int lo, int hi, int key) {
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (!less(key, array[mid]))
+                lo = mid + 1;
+            else
+                hi = mid;
+        }
+        return lo;
+    }
+
+    /**
+     * A divide and conquer algorithm that picks an element as a pivot and
+     * partitions the given array around the picked pivot. 
+     * {@link https://www.geeksforgeeks.org/quick-sort/}
+     * 
+     * Plain quick sort is O(n^2) in the worst case, so this is an introsort: the
+     * pivot is the median of three (or Tukey's ninther for large partitions), the
+     * partition is three way so runs of duplicates are finished in one step, and
+     * once the recursion gets deeper than 2*log(n) the partition is heap sorted
+     * instead. This makes it O(nlogn) in all cases. Small partitions are insertion
+     * sorted, and only the smaller side is recursed on so the stack stays O(logn).
+     * 
+     * Quick sort is generally considered better when in use with arrays, as there
+     * is less overhead since the array does not need to be stored more than once
+     * (except in the aforementioned huge cases)
+     * @param array the array to sort
+     */
+    public static void quickSort(int[] array) {
+        Call call = begin();
+        quickSortHelper(array, 0, array.length, depthLimit(array.length));
+        end(call, Type.QUICK, array.length);
+    }
+
+    /**
+     * Quick sorts array[from, to), leaving the rest of the array alone.
+     * @param array the array to sort
+     * @param from the first index to sort
+     * @param to the index after the last one to sort
+     * @see #quickSort(int[])
+     */
+    public static void quickSort(int[] array, int from, int to) {
+        rangeCheck(array.length, from, to);
+        quickSortHelper(array, from, to, depthLimit(to - from));
+    }
+
+    /**
+     * quickSort(int[]) with a branch free partition. On random data the branches in
+     * the three way partition and insertion sort are mispredicted about half the
+     * time; this partitions with a branch free Lomuto partition and sorts small
+     * ranges with a sorting network instead. Roughly 1.5-2.5x faster on random data
+     * or data with few distinct values, but slower on presorted data where the
+     * branches would be predicted anyway. O(nlogn) in all cases.
+     * @param array the array to sort
+     */
+    public static void branchlessQuickSort(int[] array) {
+        Call call = begin();
+        branchlessQuickSortHelper(array, 0, array.length, depthLimit(array.length));
+        end(call, Type.QUICK, array.length);
+    }
+
+    /**
+     * Quickselect (nth_element): rearranges the array so that array[k] holds the
+     * value it would have if the array were sorted, everything before it is less
+     * than or equal and everything after it is greater than or equal. Uses the same
+     * pivots and partition as quickSort, but only continues into the side that
+     * holds k, so it is O(n) on average. Falls back to heap sorting what is left
+     * if the partitions keep going badly, so the worst case is O(nlogn).
+     * @param array the array to select in
+     * @param k the index in sorted order to select, e.g. array.length / 2 for the median
+     * @return the value at index k in sorted order
+     */
+    public static int select(int[] array, int k) {
+        if (k < 0 || k >= array.length)
+            throw new ArrayIndexOutOfBoundsException("k " + k + " out of bounds for length " + array.length);
+        int low = 0;
+        int high = array.length;
+        int depthLimit = depthLimit(array.length);
+        while (high - low > INSERTION_THRESHOLD) {
+            if (depthLimit-- == 0) {
+                heapSortRange(array, low, high);
+                return array[k];
+            }
+            int pivot = array[choosePivot(array, low, high)];
+            int lt = partition(array, low, high, pivot);
+            int gt = lt;
+            while (gt < high && array[gt] == pivot)
+                gt++;
+            if (k < lt)
+                high = lt;
+            else if (k >= gt)
+                low = gt;
+            else
+                return pivot;
+        }
+        insertionSortRange(array, low, high);
+        return array[k];
+    }
+
+    /**
+     * Sorts only the k smallest values into array[0, k), leaving the rest of the
+     * values in array[k, length) in no particular order. The first k values are
+     * made into a max-heap with heapify, and every later value smaller than the
+     * root replaces it, so the heap always holds the k smallest seen so far. The
+     * heap is then sorted in place like heapSort. O(nlogk), which is much less
+     * than sorting everything when k is small. For the k largest, sort the range
+     * after select(array, length - k) instead.
+     * @param array the array to partially sort
+     * @param k the number of smallest values to sort to the front
+     */
+    public static void partialSort(int[] array, int k) {
+        if (k < 0 || k > array.length)
+            throw new ArrayIndexOutOfBoundsException("k " + k + " out of bounds for length " + array.length);
+        for (int i = k / 2 - 1; i >= 0; i--)
+            heapify(array, 0, k, i);
+        for (int i = k; i < array.length; i++) {
+            if (less(array[i], array[0])) {
+                swap(array, 0, i);
+                heapify(array, 0, k, 0);
+            }
+        }
+        for (int i = k - 1; i > 0; i--) {
+            swap(array, 0, i);
+            heapify(array, 0, i, 0);
+        }
+    }
+
+    /**
+     * Three way partition of array[low, high) around the pivot value. Afterwards
+     * everything before the returned index is less than the pivot, followed by all
+     * values equal to the pivot, followed by everything greater.
+     * @param array the array to partition
+     * @param low the low index
+     * @param high the high index (exclusive)
+     * @param pivot the value to partition around
+     * @return the index of the first value equal to the pivot
+     */
+    private static int partition(int[] array, int low, int high, int pivot) {
+        int lt = low, i = low, gt = high - 1;
+        while (i <= gt) {
+            int value = array[i];
+            if (less(value, pivot))
+                swap(array, lt++, i++);
+            else if (less(pivot, value))
+                swap(array, i, gt--);
+            else
+                i++;
+        }
+        return lt;
+    }
+
+    /**
+     * Partitions and then sorts the smaller side recursively, looping on the larger
+     * side. Falls back to heap sort when the depth limit runs out.
+     * @param array the array to sort
+     * @param low the low index
+     * @param high the high index (exclusive)
+     * @param depthLimit the partitions left before switching to heap sort
+     */
+    private static void quickSortHelper(int[] array, int low, int high, int depthLimit) {
+        enter();
+        while (high - low > INSERTION_THRESHOLD) {
+            if (depthLimit-- == 0) {
+                heapSortRange(array, low, high);
+                exit();
+                return;
+            }
+            int pivot = array[choosePivot(array, low, high)];
+            int lt = partition(array, low, high, pivot);
+            int gt = lt;
+            while (gt < high && array[gt] == pivot)
+                gt++;
+            if (lt - low < high - gt) {
+                quickSortHelper(array, low, lt, depthLimit);
+                low = gt;
+            } else {
+                quickSortHelper(array, gt, high, depthLimit);
+                high = lt;
+            }
+        }
+        insertionSortRange(array, low, high);
+        exit();
+    }
+
+    /**
+     * Picks the median of the first, middle and last values, or for large ranges
+     * the median of three such medians (Tukey's ninther).
+     * @param array the array to pick from
+     * @param low the low index
+     * @param high the high index (exclusive)
+     * @return the index of the pivot
+     */
+    private static int choosePivot(int[] array, int low, int high) {
+        int last = high - 1;
+        int mid = (low + last) >>> 1;
+        if (high - low < NINTHER_THRESHOLD)
+            return medianOf3(array, low, mid, last);
+        int step = (high - low) / 8;
+        return medianOf3(array,
+                medianOf3(array, low, low + step, low + 2 * step),
+                medianOf3(array, mid - step, mid, mid + step),
+                medianOf3(array, last - 2 * step, last - step, last));
+    }
+
+    /**
+     * @return the index holding the median of the values at a, b and c
+     */
+    private static int medianOf3(int[] array, int a, int b, int c) {
+        if (less(array[a], array[b])) {
+            if (less(array[b], array[c]))
+                return b;
+            return less(array[a], array[c]) ? c : a;
+        }
+        if (less(array[a], array[c]))
+            return a;
+        return less(array[b], array[c]) ? c : b;
+    }
+
+    /**
+     * @param n the number of elements
+     * @return the recursion depth allowed before introsort falls back to heap sort
+     */
+    static int depthLimit(int n) {
+        return n < 2 ? 0 : 2 * (31 - Integer.numberOfLeadingZeros(n));
+    }
+
+    /**
+     * quickSortHelper for branchlessQuickSort. The partition is two way and branch
+     * free, so a run of values equal to the pivot is only split off when the pivot
+     * turns out to be the smallest value in the range (like pdqsort). Small ranges
+     * are sorted with a sorting network instead of insertion sort.
+     * @param array the array to sort
+     * @param low the low index
+     * @param high the high index (exclusive)
+     * @param depthLimit the partitions left before switching to heap sort
+     */
+    private static void branchlessQuickSortHelper(int[] array, int low, int high, int depthLimit) {
+        enter();
+        while (high - low > NETWORK_THRESHOLD) {
+            if (depthLimit-- == 0) {
+                heapSortRange(array, low, high);
+                exit();
+                return;
+            }
+            int pivot = array[choosePivot(array, low, high)];
+            int mid = branchlessPartition(array, low, high, pivot, false);
+            if (mid == low) {
+                // nothing is less than the pivot, so skip every value equal to it
+                low = branchlessPartition(array, low, high, pivot, true);
+                continue;
+            }
+            if (mid - low < high - mid) {
+                branchlessQuickSortHelper(array, low, mid, depthLimit);
+                low = mid;
+            } else {
+                branchlessQuickSortHelper(array, mid, high, depthLimit);
+                high = mid;
+            }
+        }
+        networkSort(array, low, high);
+        exit();
+    }
+
+    /**
+     * Branch free Lomuto partition of array[low, high). Every value is swapped to
+     * the boundary and the boundary only moves on if the value belongs on the left,
+     * so the loop has no data dependent branch to mispredict.
+     * @param array the array to partition
+     * @param low the low index
+     * @param high the high index (exclusive)
+     * @param pivot the value to partition around
+     * @param orEqual true to move values equal to the pivot to the left as well
+     * @return the index of the first value on the right
+     */
+    private static int branchlessPartition(int[] array, int low, int high, int pivot, boolean orEqual) {
+        int boundary = low;
+        if (orEqual) {
+            for (int i = low; i < high; i++) {
+                int value = array[i];
+                array[i] = array[boundary];
+                array[boundary] = value;
+                boundary += less(pivot, value) ? 0 : 1;
+            }
+        } else {
+            for (int i = low; i < high; i++) {
+                int value = array[i];
+                array[i] = array[boundary];
+                array[boundary] = value;
+                boundary += less(value, pivot) ? 1 : 0;
+            }
+        }
+        return boundary;
+    }
+
+    /**
+     * Sorts a small range with a bitonic sorting network: a fixed sequence of
+     * compare-exchanges that only depends on the length, each done with min and
+     * max so nothing branches on the values. The range is treated as if it were
+     * padded to a power of two with values larger than any int; every comparator
+     * puts the smaller value first, so those would never move and comparators that
+     * touch them are skipped.
+     * @param array the array to sort
+     * @param lo the low index
+     * @param hi the high index (exclusive)
+     */
+    private static void networkSort(int[] array, int lo, int hi) {
+        int n = hi - lo;
+        if (n < 2)
+            return;
+        int size = Integer.highestOneBit(n - 1) << 1;
+        for (int k = 2; k <= size; k <<= 1) {
+            // mirror each block of k so its two sorted halves form one bitonic run
+            for (int block = 0; block < n; block += k) {
+                for (int i = block, j = block + k - 1; i < j; i++, j--) {
+                    if (j < n)
+                        compareExchange(array, lo + i, lo + j);
+                }
+            }
+            for (int gap = k >>> 2; gap > 0; gap >>>= 1) {
+                for (int block = 0; block < n; block += gap << 1) {
+                    for (int i = block, end = Math.min(block + gap, n - gap); i < end; i++)
+                        compareExchange(array, lo + i, lo + i + gap);
+                }
+            }
+        }
+    }
+
+    /**
+     * Puts the smaller of array[i] and array[j] at i and the larger at j.
+     */
+    private static void compareExchange(int[] array, int i, int j) {
+        int a = array[i];
+        int b = array[j];
+        boolean swap = less(b, a);
+        array[i] = swap ? b : a;
+        array[j] = swap ? a : b;
+    }
+
+    /**
+     * Parallel sample sort that runs on the common fork join pool.
+     * @param array the array to sort
+     * @see #parallelSampleSort(int[], ForkJoinPool, int)
+     */
+    public static void parallelSampleSort(int[] array) {
+        ForkJoinPool pool = ForkJoinPool.commonPool();
+        parallelSampleSort(array, pool, pool.getParallelism());
+    }
+
+    /**
+     * Sample sort is quick sort with many pivots at once, which lets the
+     * partitioning itself run in parallel. A random sample of the array is sorted
+     * and evenly spaced values from it become the splitters of a few buckets per
+     * thread. Every thread then counts how many values of its chunk fall in each
+     * bucket, the counts are turned into per thread offsets, and the chunks are
+     * scattered into a buffer without any locking. Finally the buckets are quick
+     * sorted in parallel and copied back. Uses n extra space. Not stable.
+     * @param array the array to sort
+     * @param pool the pool to run the tasks on
+     * @param parallelism the number of threads expected to work on the sort
+     * @see #setParallelThreshold(int)
+     */
+    public static void parallelSampleSort(int[] array, ForkJoinPool pool, int parallelism) {
+        if (parallelism < 1)
+            throw new IllegalArgumentException("parallelism must be positive: " + parallelism);
+        int n = array.length;
+        Call call = begin();
+        if (parallelism == 1 || n <= PARALLEL_THRESHOLD) {
+            quickSortHelper(array, 0, n, depthLimit(n));
+            end(call, Type.SAMPLE, n);
+            return;
+        }
+
+        // pick the splitters from a sorted random sample
+        int buckets = Math.min(parallelism * 4, MAX_SAMPLE_BUCKETS);
+        int sampleSize = Math.min(buckets * SAMPLE_OVERSAMPLING, n);
+        int[] sample = new int[sampleSize];
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int i = 0; i < sampleSize; i++)
+            sample[i] = array[random.nextInt(n)];
+        quickSortHelper(sample, 0, sampleSize, depthLimit(sampleSize));
+        int[] splitters = new int[buckets - 1];
+        for (int i = 1; i < buckets; i++)
+            splitters[i - 1] = sample[(int) ((long) i * sampleSize / buckets)];
+
+        // count the bucket sizes of each chunk
+        int chunks = Math.min(parallelism, n / PARALLEL_THRESHOLD);
+        int[][] counts = new int[chunks][buckets];
+        forEachParallel(pool, chunks, c -> {
+            int[] count = counts[c];
+            for (int i = chunkStart(n, chunks, c), end = chunkStart(n, chunks, c + 1); i < end; i++)
+                count[upperBound(splitters, 0, splitters.length, array[i])]++;
+        });
+
+        // turn the counts into where each chunk writes each bucket
+        int[] bucketStarts = new int[buckets + 1];
+        int sum = 0;
+        for (int b = 0; b < buckets; b++) {
+            bucketStarts[b] = sum;
+            for (int c = 0; c < chunks; c++) {
+                int count = counts[c][b];
+                counts[c][b] = sum;
+                sum += count;
+            }
+        }
+        bucketStarts[buckets] = n;
+
+        int[] buffer = new int[n];
+        forEachParallel(pool, chunks, c -> {
+            int[] offsets = counts[c];
+            for (int i = chunkStart(n, chunks, c), end = chunkStart(n, chunks, c + 1); i < end; i++)
+                buffer[offsets[upperBound(splitters, 0, splitters.length, array[i])]++] = array[i];
+        });
+
+        forEachParallel(pool, buckets, b -> {
+            int lo = bucketStarts[b], hi = bucketStarts[b + 1];
+            quickSortHelper(buffer, lo, hi, depthLimit(hi - lo));
+            System.arraycopy(buffer, lo, array, lo, hi - lo);
+        });
+        end(call, Type.SAMPLE, n);
+    }
+
+    /**
+     * @return the first index of chunk c when n elements are split into even chunks
+     */
+    private static int chunkStart(int n, int chunks, int c) {
+        return (int) ((long) n * c / chunks);
+    }
+
+    /**
+     * Runs body for every index in [0, tasks) as separate fork join tasks and waits
+     * for all of them to finish.
+     * @param pool the pool to run on
+     * @param tasks the number of indexes
+     * @param body the work for a single index
+     */
+    private static void forEachParallel(ForkJoinPool pool, int tasks, IntConsumer body) {
+        pool.invoke(new RangeTask(0, tasks, body));
+    }
+
+    /**
+     * Splits a range of task indexes in half until each task holds a single index.
+     */
+    private static class RangeTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final int lo;
+        private final int hi;
+        private final IntConsumer body;
+
+        RangeTask(int lo, int hi, IntConsumer body) {
+            this.lo = lo;
+            this.hi = hi;
+            this.body = body;
+        }
+
+        @Override
+        protected void compute() {
+            if (hi - lo == 1) {
+                body.accept(lo);
+                return;
+            }
+            int mid = (lo + hi) >>> 1;
+            invokeAll(new RangeTask(lo, mid, body), new RangeTask(mid, hi, body));
+        }
+    }
+
+    /**
+     * Sorts the array with whichever algorithm should be fastest for it, so the
+     * caller does not have to pick one or know the range of the values. One pass
+     * finds the min, max and how many ascending or descending runs the array is
+     * made of, then:
+     * <ul>
+     * <li>a single run is done, or reversed if it is descending</li>
+     * <li>long runs (few of them for the length) are merged by timSort</li>
+     * <li>a range of values close to the length is count sorted with the min and
+     * max that were found</li>
+     * <li>very large arrays are radix sorted in parallel</li>
+     * <li>a sample with few distinct values (many duplicates) goes to quickSort,
+     * whose three-way partition handles them in few passes</li>
+     * <li>large arrays are LSD radix sorted, with wider digits on the largest</li>
+     * <li>everything else is quick sorted</li>
+     * </ul>
+     * The thresholds for each choice can be tuned with the setters below, e.g. from
+     * the benchmarks module. Not stable (equal ints can not be told apart anyway).
+     * @param array the array to sort
+     */
+    public static void sort(int[] array) {
+        int n = array.length;
+        Call call = begin();
+        if (n <= INSERTION_THRESHOLD) {
+            insertionSortRange(array, 0, n);
+            end(call, Type.SORT, n);
+            return;
+        }
+
+        int min = array[0];
+        int max = array[0];
+        int runs = 1;
+        // 1 while in an ascending run, -1 in a descending one, 0 if not known yet
+        int direction = 0;
+        for (int i = 1; i < n; i++) {
+            int value = array[i];
+            min = Math.min(min, value);
+            max = Math.max(max, value);
+            int step = Integer.compare(value, array[i - 1]);
+            if (step == 0 || step == direction)
+                continue;
+            if (direction == 0) {
+                direction = step;
+            } else {
+                runs++;
+                direction = 0;
+            }
+        }
+
+        if (runs == 1) {
+            if (direction < 0)
+                reverse(array, 0, n);
+        } else if (n / runs >= PRESORTED_RUN_LENGTH) {
+            timSort(array);
+        } else if ((long) max - min < (long) n * COUNT_RANGE_FACTOR && denseCount(n, min, max)) {
+            countSort(array, min, max);
+        } else if (n >= PARALLEL_SORT_THRESHOLD && ForkJoinPool.getCommonPoolParallelism() > 1) {
+            parallelRadixSort(array);
+        } else if (DISTINCT_PERCENT > 0 && distinctPercent(array) <= DISTINCT_PERCENT) {
+            quickSort(array);
+        } else if (n >= RADIX_SORT_THRESHOLD) {
+            lsdRadixSort(array, n >= WIDE_RADIX_THRESHOLD ? 11 : 8);
+        } else {
+            quickSort(array);
+        }
+        end(call, Type.SORT, n);
+    }
+
+    /**
+     * Estimates how many of the values are distinct from an evenly spaced sample.
+     * @param array the array to sample, longer than the sample
+     * @return the percentage of distinct values in the sample
+     */
+    private static int distinctPercent(int[] array) {
+        int size = Math.min(DISTINCT_SAMPLE, array.length);
+        int[] sample = new int[size];
+        long step = array.length / size;
+        for (int i = 0; i < size; i++)
+            sample[i] = array[(int) (i * step)];
+        heapSortRange(sample, 0, size);
+        int distinct = 1;
+        for (int i = 1; i < size; i++) {
+            if (sample[i] != sample[i - 1])
+                distinct++;
+        }
+        return distinct * 100 / size;
+    }
+
+    /**
+     * Reverses array[lo, hi).
+     */
+    private static void reverse(int[] array, int lo, int hi) {
+        for (hi--; lo < hi; lo++, hi--)
+            swap(array, lo, hi);
+    }
+
+    /**
+     * Sorts keys and moves every value along with its key, so values[i] still
+     * belongs to keys[i] afterwards. Uses the same introsort as quickSort(int[]).
+     * Not stable. O(nlogn), in place.
+     * @param keys the keys to sort by
+     * @param values the values to move with the keys, the same length as keys
+     * @see #stableSort(int[], int[])
+     */
+    public static void sort(int[] keys, int[] values) {
+        checkSameLength(keys, values);
+        quickSortHelper(keys, values, 0, keys.length, depthLimit(keys.length));
+    }
+
+    /**
+     * Stable version of sort(int[], int[]) using the LSD radix sort: values with
+     * equal keys keep their order. O(n), with a buffer for the keys and another
+     * for the values.
+     * @param keys the keys to sort by
+     * @param values the values to move with the keys, the same length as keys
+     * @see #lsdRadixSort(int[])
+     */
+    public static void stableSort(int[] keys, int[] values) {
+        checkSameLength(keys, values);
+        int n = keys.length;
+        if (n < 2)
+            return;
+        int[][] counts = new int[Integer.BYTES][RADIX];
+        for (int k = 0; k < n; k++) {
+            int key = keys[k] ^ Integer.MIN_VALUE;
+            for (int p = 0; p < Integer.BYTES; p++)
+                counts[p][(key >>> (p * 8)) & 0xFF]++;
+        }
+
+        int[] srcKeys = keys, srcValues = values;
+        int[] dstKeys = new int[n], dstValues = new int[n];
+        for (int p = 0; p < Integer.BYTES; p++) {
+            int[] count = counts[p];
+            int shift = p * 8;
+            if (count[((srcKeys[0] ^ Integer.MIN_VALUE) >>> shift) & 0xFF] == n)
+                continue;
+            countsToEndpoints(count);
+            for (int k = n - 1; k >= 0; k--) {
+                int index = --count[((srcKeys[k] ^ Integer.MIN_VALUE) >>> shift) & 0xFF];
+                dstKeys[index] = srcKeys[k];
+                dstValues[index] = srcValues[k];
+            }
+            int[] temp = srcKeys;
+            srcKeys = dstKeys;
+            dstKeys = temp;
+            temp = srcValues;
+            srcValues = dstValues;
+            dstValues = temp;
+        }
+        if (srcKeys != keys) {
+            System.arraycopy(srcKeys, 0, keys, 0, n);
+            System.arraycopy(srcValues, 0, values, 0, n);
+        }
+    }
+
+    /**
+     * Finds the permutation that sorts keys, without changing keys. Equal keys
+     * may come in any order.
+     * @param keys the keys to sort by
+     * @return indexes into keys, in the order of their keys
+     * @see #stableArgsort(int[])
+     */
+    public static int[] argsort(int[] keys) {
+        int[] order = identity(keys.length);
+        sort(Arrays.copyOf(keys, keys.length), order);
+        return order;
+    }
+
+    /**
+     * Stable version of argsort(int[]): equal keys stay in index order.
+     * @param keys the keys to sort by
+     * @return indexes into keys, in the order of their keys
+     */
+    public static int[] stableArgsort(int[] keys) {
+        int[] order = identity(keys.length);
+        stableSort(Arrays.copyOf(keys, keys.length), order);
+        return order;
+    }
+
+    /**
+     * Sorts objects by an int key, e.g. sortByInt(records, Record::id). Each key is
+     * read once into an int array, which is radix sorted together with the index
+     * of its object as stableSort(int[], int[]) does, and then the objects are put
+     * in that order in one pass. So the sort only ever touches two int arrays,
+     * instead of following a pointer to each object and calling a comparator for
+     * every comparison. Stable. O(n), with one copy of the objects, two of the keys
+     * and two of the indexes.
+     * @param items the objects to sort
+     * @param key reads the key of an object
+     * @see #sort(Object[], Comparator)
+     */
+    public static <T> void sortByInt(T[] items, ToIntFunction<? super T> key) {
+        Call call = begin();
+        int n = items.length;
+        int[] keys = new int[n];
+        for (int i = 0; i < n; i++)
+            keys[i] = key.applyAsInt(items[i]);
+        int[] order = identity(n);
+        stableSort(keys, order);
+        permute(items, order);
+        end(call, Type.KEY, n);
+    }
+
+    /**
+     * long key version of sortByInt(Object[], ToIntFunction). The radix passes skip
+     * any byte every key has the same value in, so keys that only use their low
+     * bits (ids, timestamps in a known window) take fewer than eight. Stable. O(n).
+     * @param items the objects to sort
+     * @param key reads the key of an object
+     */
+    public static <T> void sortByLong(T[] items, ToLongFunction<? super T> key) {
+        Call call = begin();
+        int n = items.length;
+        long[] keys = new long[n];
+        for (int i = 0; i < n; i++)
+            keys[i] = key.applyAsLong(items[i]);
+        int[] order = identity(n);
+        stableSort(keys, order);
+        permute(items, order);
+        end(call, Type.KEY, n);
+    }
+
+    /**
+     * Sorts objects with a comparator, for orders that are not a single int or
+     * long key. Bottom-up merge sort: runs of 32 are insertion sorted, then merged
+     * in pairs between the array and one buffer, skipping any merge whose halves
+     * are already in order. Stable. O(nlogn), with one copy of the objects.
+     * @param items the objects to sort
+     * @param comparator the order to sort in
+     * @see #sortByInt(Object[], ToIntFunction)
+     */
+    public static <T> void sort(T[] items, Comparator<? super T> comparator) {
+        Call call = begin();
+        int n = items.length;
+        for (int lo = 0; lo < n; lo += INSERTION_THRESHOLD)
+            insertionSortRange(items, lo, Math.min(lo + INSERTION_THRESHOLD, n), comparator);
+        if (n > INSERTION_THRESHOLD) {
+            T[] src = items;
+            T[] dst = items.clone();
+            for (long width = INSERTION_THRESHOLD; width < n; width <<= 1) {
+                for (int lo = 0; lo < n;) {
+                    int mid = (int) Math.min(lo + width, n);
+                    int hi = (int) Math.min(mid + width, n);
+                    merge(src, dst, lo, mid, hi, comparator);
+                    lo = hi;
+                }
+                T[] temp = src;
+                src = dst;
+                dst = temp;
+            }
+            if (src != items)
+                System.arraycopy(src, 0, items, 0, n);
+        }
+        end(call, Type.COMPARATOR, n);
+    }
+
+    /**
+     * Stable insertion sort of items[lo, hi).
+     */
+    private static <T> void insertionSortRange(T[] items, int lo, int hi, Comparator<? super T> comparator) {
+        for (int i = lo + 1; i < hi; i++) {
+            T item = items[i];
+            int j = i - 1;
+            while (j >= lo && comparator.compare(item, items[j]) < 0) {
+                items[j + 1] = items[j];
+                j--;
+            }
+            items[j + 1] = item;
+        }
+    }
+
+    /**
+     * Merges the sorted src[lo, mid) and src[mid, hi) into dst[lo, hi), taking from
+     * the left on ties so the merge is stable.
+     */
+    private static <T> void merge(T[] src, T[] dst, int lo, int mid, int hi, Comparator<? super T> comparator) {
+        if (mid == hi || comparator.compare(src[mid - 1], src[mid]) <= 0) {
+            System.arraycopy(src, lo, dst, lo, hi - lo);
+            return;
+        }
+        int i = lo, j = mid, k = lo;
+        while (i < mid && j < hi)
+            dst[k++] = comparator.compare(src[j], src[i]) < 0 ? src[j++] : src[i++];
+        System.arraycopy(src, i, dst, k, mid - i);
+        System.arraycopy(src, j, dst, k + mid - i, hi - j);
+    }
+
+    /**
+     * Puts items[order[i]] at i for every i.
+     */
+    private static <T> void permute(T[] items, int[] order) {
+        T[] original = items.clone();
+        for (int i = 0; i < order.length; i++)
+            items[i] = original[order[i]];
+    }
+
+    /**
+     * stableSort(int[], int[]) for long keys: LSD radix sort with 8 bit digits that
+     * moves every value along with its key, skipping the passes where all keys
+     * have the same digit.
+     */
+    private static void stableSort(long[] keys, int[] values) {
+        int n = keys.length;
+        if (n < 2)
+            return;
+        int[][] counts = new int[Long.BYTES][RADIX];
+        for (int k = 0; k < n; k++) {
+            long key = keys[k] ^ Long.MIN_VALUE;
+            for (int p = 0; p < Long.BYTES; p++)
+                counts[p][(int) (key >>> (p * 8)) & 0xFF]++;
+        }
+
+        long[] srcKeys = keys, dstKeys = new long[n];
+        int[] srcValues = values, dstValues = new int[n];
+        for (int p = 0; p < Long.BYTES; p++) {
+            int[] count = counts[p];
+            int shift = p * 8;
+            if (count[(int) ((srcKeys[0] ^ Long.MIN_VALUE) >>> shift) & 0xFF] == n)
+                continue;
+            countsToEndpoints(count);
+            for (int k = n - 1; k >= 0; k--) {
+                int index = --count[(int) ((srcKeys[k] ^ Long.MIN_VALUE) >>> shift) & 0xFF];
+                dstKeys[index] = srcKeys[k];
+                dstValues[index] = srcValues[k];
+            }
+            long[] tempKeys = srcKeys;
+            srcKeys = dstKeys;
+            dstKeys = tempKeys;
+            int[] tempValues = srcValues;
+            srcValues = dstValues;
+            dstValues = tempValues;
+        }
+        if (srcKeys != keys) {
+            System.arraycopy(srcKeys, 0, keys, 0, n);
+            System.arraycopy(srcValues, 0, values, 0, n);
+        }
+    }
+
+    /**
+     * @return the array 0, 1, 2 ... n - 1
+     */
+    private static int[] identity(int n) {
+        int[] order = new int[n];
+        for (int i = 0; i < n; i++)
+            order[i] = i;
+        return order;
+    }
+
+    private static void checkSameLength(int[] keys, int[] values) {
+        if (keys.length != values.length)
+            throw new IllegalArgumentException(
+                    "keys and values have different lengths: " + keys.length + " and " + values.length);
+    }
+
+    /**
+     * quickSortHelper(int[], int, int, int) that swaps values along with keys.
+     */
+    private static void quickSortHelper(int[] keys, int[] values, int low, int high, int depthLimit) {
+        while (high - low > INSERTION_THRESHOLD) {
+            if (depthLimit-- == 0) {
+                heapSort(keys, values, low, high);
+                return;
+            }
+            int pivot = keys[choosePivot(keys, low, high)];
+            int lt = low, i = low, gt = high - 1;
+            while (i <= gt) {
+                int key = keys[i];
+                if (key < pivot)
+                    swap(keys, values, lt++, i++);
+                else if (key > pivot)
+                    swap(keys, values, i, gt--);
+                else
+                    i++;
+            }
+            // keys[lt, gt] now all equal the pivot
+            if (lt - low < high - gt - 1) {
+                quickSortHelper(keys, values, low, lt, depthLimit);
+                low = gt + 1;
+            } else {
+                quickSortHelper(keys, values, gt + 1, high, depthLimit);
+                high = lt;
+            }
+        }
+        for (int i = low + 1; i < high; i++) {
+            int key = keys[i];
+            int value = values[i];
+            int j = i - 1;
+            while (j >= low && keys[j] > key) {
+                keys[j + 1] = keys[j];
+                values[j + 1] = values[j];
+                j--;
+            }
+            keys[j + 1] = key;
+            values[j + 1] = value;
+        }
+    }
+
+    /**
+     * heapSort(int[], int, int) that swaps values along with keys.
+     */
+    private static void heapSort(int[] keys, int[] values, int low, int high) {
+        int n = high - low;
+        for (int i = n / 2 - 1; i >= 0; i--)
+            heapify(keys, values, low, n, i);
+        for (int i = n - 1; i > 0; i--) {
+            swap(keys, values, low, low + i);
+            heapify(keys, values, low, i, 0);
+        }
+    }
+
+    private static void heapify(int[] keys, int[] values, int offset, int n, int i) {
+        while (true) {
+            int largest = i;
+            int l = 2 * i + 1;
+            int r = l + 1;
+            if (l < n && keys[offset + l] > keys[offset + largest])
+                largest = l;
+            if (r < n && keys[offset + r] > keys[offset + largest])
+                largest = r;
+            if (largest == i)
+                return;
+            swap(keys, values, offset + i, offset + largest);
+            i = largest;
+        }
+    }
+
+    private static void swap(int[] keys, int[] values, int index1, int index2) {
+        swap(keys, index1, index2);
+        swap(values, index1, index2);
+    }
+
+    /**
+     * Takes the minimum value and puts it at the first index, then does this
+     * until the end of the list. O(n^2) time complexity. Useful when memory
+     * write is a costly operation.
+     * @param array the array to sort
+     */
+    public static void selectionSort(int[] array) {
+        Call call = begin();
+        selectionSort(array, 0, array.length);
+        end(call, Type.SELECTION, array.length);
+    }
+
+    /**
+     * Selection sorts array[from, to), leaving the rest of the array alone.
+     * @param array the array to sort
+     * @param from the first index to sort
+     * @param to the index after the last one to sort
+     */
+    public static void selectionSort(int[] array, int from, int to) {
+        rangeCheck(array.length, from, to);
+        int sortIndex = from;
+        for (int i = from; i < to; i++) {
+            int minIndex = sortIndex;
+            for (int j = sortIndex; j < to; j++) {
+                if (less(array[j], array[minIndex]))
+                    minIndex = j;
+            }
+            swap(array, sortIndex, minIndex);
+            sortIndex++;
+        }
+    }
+
+    /**
+     * Sorts value into the sorted array. Finds the position with a binary search,
+     * after any equal values. Worst case O(n) for the copy.
+     * @param sortedArray the sorted array
+     * @param value the value to add
+     * @return the new sorted array
+     */
+    public static int[] insert(int[] sortedArray, int value) {
+        int index = upperBound(sortedArray, 0, sortedArray.length, value);
+        int[] insertArray = new int[sortedArray.length + 1];
+        System.arraycopy(sortedArray, 0, insertArray, 0, index);
+        insertArray[index] = value;
+        System.arraycopy(sortedArray, index, insertArray, index + 1, sortedArray.length - index);
+        return insertArray;
+    }
+
+    /**
+     * Sorts values into the sorted array. The values are sorted on their own and
+     * then merged with the array in a single pass, so inserting k values into n
+     * costs O(klogk + n) and allocates only the result and a copy of the values.
+     * @param sortedArray the sorted array
+     * @param values the values to add
+     * @return the new sorted array
+     * @see #insert(int[], int, int[])
+     */
+    public static int[] insert(int[] sortedArray, int[] values) {
+        int[] insertArray = Arrays.copyOf(sortedArray, sortedArray.length + values.length);
+        insert(insertArray, sortedArray.length, values);
+        return insertArray;
+    }
+
+    /**
+     * Sorts values into the first size elements of array, which must be sorted and
+     * have room for all the values after them. The values are copied into that
+     * room, sorted there and then merged in from the back by
+     * insert(int[], int, int), so the only allocation is one scratch array the size
+     * of the values. O(klogk + n).
+     * @param array the sorted array with spare capacity at the end
+     * @param size the number of sorted values in the array
+     * @param values the values to add
+     * @return the new number of sorted values in the array
+     * @see #insert(int[], int, int)
+     */
+    public static int insert(int[] array, int size, int[] values) {
+        if (array.length - size < values.length)
+            throw new IllegalArgumentException("array has room for " + (array.length - size)
+                    + " values, not " + values.length);
+        System.arraycopy(values, 0, array, size, values.length);
+        insert(array, size, size + values.length);
+        return size + values.length;
+    }
+
+    /**
+     * Sorts the unsorted values array[sortedSize, size) into the sorted values
+     * array[0, sortedSize). The new values are sorted where they are, then copied
+     * to one scratch array (which the radix sort of a large batch also uses) and
+     * merged in from the back. O(klogk + n). Used by SortedIntBuffer.
+     * @param array the array
+     * @param sortedSize the number of sorted values at the start of the array
+     * @param size the number of values in the array
+     */
+    static void insert(int[] array, int sortedSize, int size) {
+        int k = size - sortedSize;
+        if (k == 0)
+            return;
+        int[] scratch = new int[k];
+        if (k >= RADIX_SORT_THRESHOLD)
+            lsdRadixSort(array, sortedSize, size, 8, scratch, new int[Integer.BYTES][RADIX]);
+        else
+            quickSortHelper(array, sortedSize, size, depthLimit(k));
+        System.arraycopy(array, sortedSize, scratch, 0, k);
+
+        int i = sortedSize - 1;
+        int j = k - 1;
+        int dest = size - 1;
+        // existing values win ties so the new ones go after any equal values
+        while (j >= 0) {
+            if (i >= 0 && array[i] > scratch[j])
+                array[dest--] = array[i--];
+            else
+                array[dest--] = scratch[j--];
+        }
+    }
+
+    /**
+     * Insertion sort works by sorting in ascending order, checking if the current
+     * element is smaller than the previous. If it is, a nested loop activates to
+     * loop until it is in the correct position. This sorting algorithm has O(n^2).
+     * However, best case of O(n) if the array is already sorted except for some
+     * number of values (small). It is a stable sort.
+     * @param array the array to sort
+     */
+    public static void insertionSort(int[] array) {
+        Call call = begin();
+        for (int i = 1; i < array.length; i++) {
+            if (less(array[i], array[i - 1])) {
+                for (int j = i; j > 0; j--) {
+                    if (less(array[j], array[j - 1]))
+                        swap(array, j, j - 1);
+                    else
+                        break;
+                }
+            }
+        }
+        end(call, Type.INSERTION, array.length);
+    }
+
+    /**
+     * Insertion sorts array[from, to), leaving the rest of the array alone. Shifts
+     * elements instead of swapping them. Also used on small runs inside the faster
+     * sorts.
+     * @param array the array to sort
+     * @param from the first index to sort
+     * @param to the index after the last one to sort
+     */
+    public static void insertionSort(int[] array, int from, int to) {
+        rangeCheck(array.length, from, to);
+        insertionSortRange(array, from, to);
+    }
+
+    /**
+     * Insertion sort of array[lo, hi) without the range check.
+     */
+    private static void insertionSortRange(int[] array, int lo, int hi) {
+        for (int i = lo + 1; i < hi; i++) {
+            int value = array[i];
+            int j = i - 1;
+            while (j >= lo && less(value, array[j])) {
+                array[j + 1] = array[j];
+                j--;
+            }
+            array[j + 1] = value;
+        }
+    }
+
+    /**
+     * Sorts the array by creating a max-heap and then repeatedly moving the root
+     * to the end and sifting the value that was there back down. Heap sort is not
+     * stable, but is O(nlogn) in all cases and in place. In practice, Mergesort and
+     * Quicksort are better, but Heapsort is used because of how common the Heap
+     * data structure is. Uses a 4-ary heap, see heapSort(int[], int).
+     * @param array to sort
+     * @see #heapSort(int[], int)
+     */
+    public static void heapSort(int[] array) {
+        Call call = begin();
+        heapSortRange(array, 0, array.length);
+        end(call, Type.HEAP, array.length);
+    }
+
+    /**
+     * Heap sort on a d-ary heap, where every node has arity children stored next
+     * to each other. With 4 or 8 children (16 or 32 bytes) all of a node's children
+     * are read from one or two cache lines, and the heap is half or a third as deep
+     * as a binary one, so large arrays take far fewer cache misses per sift. Since
+     * the child is picked without a branch, each level's loads wait for the level
+     * above, which makes a deep binary heap slow once it is out of cache; 4 is the
+     * default, and 8 is a little faster again past about 10^7 values.
+     * @param array the array to sort
+     * @param arity the children per node: 2, 4 or 8
+     */
+    public static void heapSort(int[] array, int arity) {
+        if (arity != 2 && arity != 4 && arity != 8)
+            throw new IllegalArgumentException("arity must be 2, 4 or 8: " + arity);
+        Call call = begin();
+        heapSortRange(array, 0, array.length, Integer.numberOfTrailingZeros(arity));
+        end(call, Type.HEAP, array.length);
+    }
+
+    /**
+     * Heap sorts array[from, to), leaving the rest of the array alone.
+     * @param array the array to sort
+     * @param from the first index to sort
+     * @param to the index after the last one to sort
+     */
+    public static void heapSort(int[] array, int from, int to) {
+        rangeCheck(array.length, from, to);
+        heapSortRange(array, from, to);
+    }
+
+    /**
+     * Heap sorts array[low, high) as a 4-ary heap.
+     */
+    private static void heapSortRange(int[] array, int low, int high) {
+        heapSortRange(array, low, high, 2);
+    }
+
+    /**
+     * Heap sorts array[low, high) by treating the range as its own heap.
+     * @param array the array to sort
+     * @param low the low index
+     * @param high the high index (exclusive)
+     * @param shift log2 of the children per node
+     */
+    private static void heapSortRange(int[] array, int low, int high, int shift) {
+        int n = high - low;
+        if (n < 2)
+            return;
+
+        for (int i = (n - 2) >>> shift; i >= 0; i--) {
+            siftDown(array, low, n, i, array[low + i], shift);
+        }
+
+        for (int i = n - 1; i > 0; i--) {
+            // the root goes to the end, and the value that was there into the heap
+            int value = array[low + i];
+            array[low + i] = array[low];
+            siftDown(array, low, i, 0, value, shift);
+        }
+    }
+
+    /**
+     * Moves the largest value of a binary max-heap to the root, given that only
+     * node i may be smaller than its children.
+     * @param array the array to heapify
+     * @param offset the index of the root of the heap in the array
+     * @param n the size of the heap
+     * @param i the index of the current node, relative to the offset
+     */
+    private static void heapify(int[] array, int offset, int n, int i) {
+        siftDown(array, offset, n, i, array[offset + i], 1);
+    }
+
+    /**
+     * Puts value into the max-heap at the hole, moving it down as far as it needs
+     * to go. Iterative and bottom-up (Floyd's optimization): the hole is first
+     * moved all the way to a leaf along the largest children, without comparing
+     * against the value, and the value then climbs back up to its place. A value
+     * taken from the end of the heap nearly always belongs near the bottom, so this
+     * takes about half the comparisons of checking the value at every level. The
+     * largest child is picked with a conditional move instead of a branch.
+     * @param array the array holding the heap
+     * @param offset the index of the root of the heap in the array
+     * @param n the size of the heap
+     * @param hole the node to put the value in, relative to the offset
+     * @param value the value to put in the heap
+     * @param shift log2 of the children per node
+     */
+    private static void siftDown(int[] array, int offset, int n, int hole, int value, int shift) {
+        int top = hole;
+        int child;
+        while ((child = (hole << shift) + 1) < n) {
+            int end = Math.min(child + (1 << shift), n);
+            int largest = child;
+            for (int c = child + 1; c < end; c++)
+                largest = less(array[offset + largest], array[offset + c]) ? c : largest;
+            array[offset + hole] = array[offset + largest];
+            hole = largest;
+        }
+        while (hole > top) {
+            int parent = (hole - 1) >>> shift;
+            if (!less(array[offset + parent], value))
+                break;
+            array[offset + hole] = array[offset + parent];
+            hole = parent;
+        }
+        array[offset + hole] = value;
+    }
+
+    /**
+     * Moves the smallest value to the root of a min-heap of longs, the opposite of
+     * heapify. Iterative, as the k-way merges call it once per output value. Used
+     * with a key in the high 32 bits and the index of its source in the low 32 bits.
+     * @param heap the heap
+     * @param n the size of the heap
+     * @param i the index of the current node
+     */
+    static void minHeapify(long[] heap, int n, int i) {
+        long value = heap[i];
+        while (true) {
+            int smallest = 2 * i + 1;
+            if (smallest >= n)
+                break;
+            if (smallest + 1 < n && heap[smallest + 1] < heap[smallest])
+                smallest++;
+            if (heap[smallest] >= value)
+                break;
+            heap[i] = heap[smallest];
+            i = smallest;
+        }
+        heap[i] = value;
+    }
+
+    /**
+     * Checks that [from, to) is a valid range of an array, the same way as
+     * Arrays.sort(int[], int, int).
+     * @param length the length of the array
+     * @param from the first index of the range
+     * @param to the index after the last one
+     */
+    private static void rangeCheck(int length, int from, int to) {
+        if (from > to)
+            throw new IllegalArgumentException("from(" + from + ") > to(" + to + ")");
+        if (from < 0)
+            throw new ArrayIndexOutOfBoundsException(from);
+        if (to > length)
+            throw new ArrayIndexOutOfBoundsException(to);
+    }
+
+    /**
+     * Swaps the two indexes of the array
      * @param array the array to swap in
      * @param index1 the first index
      * @param index2 the second index
      */
-    private static void swap(int[] array, int index1, int index2) {
-        int temp = array[index1];
+    private static void swap(int[] array, int index1, int index2) {
+        if (METRICS)
+            PROBES.get().swaps++;
+        int temp = array[index1];
+        array[index1] = array[index2];
+        array[index2] = temp;
+    }
+
+    /**
+     * Counts a comparison when metrics are compiled in.
+     * @return true if a is less than b
+     */
+    private static boolean less(int a, int b) {
+        if (METRICS)
+            PROBES.get().comparisons++;
+        return a < b;
+    }
+
+    /**
+     * long version of less(int, int).
+     */
+    private static boolean less(long a, long b) {
+        if (METRICS)
+            PROBES.get().comparisons++;
+        return a < b;
+    }
+
+    /**
+     * double version of less(int, int), also used for floats.
+     */
+    private static boolean less(double a, double b) {
+        if (METRICS)
+            PROBES.get().comparisons++;
+        return a < b;
+    }
+
+    /**
+     * Marks one level deeper in a recursive sort, for the recursion depth metric.
+     */
+    private static void enter() {
+        if (METRICS) {
+            Probe probe = PROBES.get();
+            if (++probe.depth > probe.maxDepth)
+                probe.maxDepth = probe.depth;
+        }
+    }
+
+    /**
+     * Marks the end of the level started by enter().
+     */
+    private static void exit() {
+        if (METRICS)
+            PROBES.get().depth--;
+    }
+
+    /**
+     * Starts measuring a public sort.
+     * @return the state to measure from, or null if nothing is listening
+     */
+    private static Call begin() {
+        if (!METRICS || LISTENER == null)
+            return null;
+        return new Call(PROBES.get());
+    }
+
+    /**
+     * Reports everything counted since begin() to the listener.
+     * @param call what begin() returned
+     * @param type the sort that was run
+     * @param length the number of values sorted
+     */
+    private static void end(Call call, Type type, int length) {
+        if (!METRICS || call == null)
+            return;
+        long nanos = System.nanoTime() - call.start;
+        long allocated = allocatedBytes() - call.allocated;
+        Probe probe = call.probe;
+        int depth = probe.maxDepth - call.depth;
+        probe.maxDepth = Math.max(probe.maxDepth, call.outerMaxDepth);
+        SortMetrics listener = LISTENER;
+        if (listener != null)
+            listener.record(type.label(), length, probe.comparisons - call.comparisons,
+                    probe.swaps - call.swaps, allocated, depth, nanos);
+    }
+
+    /**
+     * @return the bytes allocated by the current thread so far, or 0 if the JVM can
+     * not tell
+     */
+    private static long allocatedBytes() {
+        return ALLOCATIONS == null ? 0 : ALLOCATIONS.getCurrentThreadAllocatedBytes();
+    }
+
+    private static com.sun.management.ThreadMXBean allocationCounter() {
+        if (!METRICS)
+            return null;
+        try {
+            java.lang.management.ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+            if (threads instanceof com.sun.management.ThreadMXBean
+                    && threads.isThreadCpuTimeSupported()) {
+                com.sun.management.ThreadMXBean allocations = (com.sun.management.ThreadMXBean) threads;
+                if (allocations.isThreadAllocatedMemorySupported()) {
+                    allocations.setThreadAllocatedMemoryEnabled(true);
+                    return allocations;
+                }
+            }
+        } catch (UnsupportedOperationException | SecurityException e) {
+            // run without allocation counts
+        }
+        return null;
+    }
+
+    /**
+     * What the sorts on one thread have counted so far. Sorts only add to it, and
+     * each public call reports the difference between its start and end, so calls
+     * made from inside another sort (sort(int[]) running quickSort) are recorded
+     * as well as the outer one.
+     */
+    private static final class Probe {
+        long comparisons;
+        long swaps;
+        int depth;
+        int maxDepth;
+    }
+
+    /**
+     * The probe and the clocks when a public sort started.
+     */
+    private static final class Call {
+        final Probe probe;
+        final long comparisons;
+        final long swaps;
+        final int depth;
+        final int outerMaxDepth;
+        final long allocated;
+        final long start;
+
+        Call(Probe probe) {
+            this.probe = probe;
+            comparisons = probe.comparisons;
+            swaps = probe.swaps;
+            depth = probe.depth;
+            outerMaxDepth = probe.maxDepth;
+            probe.maxDepth = probe.depth;
+            allocated = allocatedBytes();
+            start = System.nanoTime();
+        }
+    }
+
+    /**
+     * Sets the listener told about every whole-array int sort: comparisons, swaps,
+     * bytes allocated, recursion depth and wall time. Only has an effect when the
+     * JVM is started with -Dsorts.metrics=true, which compiles the counting in;
+     * without it the sorts run exactly as if there were no instrumentation.
+     * Comparisons and swaps made on fork join worker threads, and inside timSort,
+     * are not counted. The listener is called on the sorting thread.
+     * @param metrics the listener, or null to stop recording
+     * @see SortMetricsCollector
+     */
+    public static void setMetrics(SortMetrics metrics) {
+        LISTENER = metrics;
+    }
+
+    /**
+     * @return the listener set by setMetrics(SortMetrics)
+     */
+    static SortMetrics getMetrics() {
+        return LISTENER;
+    }
+
+    /**
+     * Sets the subarray size below which the parallel sorts stop splitting work
+     * and sort on a single thread.
+     * @param threshold the sequential cutoff, must be positive
+     */
+    public static void setParallelThreshold(int threshold) {
+        if (threshold < 1)
+            throw new IllegalArgumentException("threshold must be positive: " + threshold);
+        PARALLEL_THRESHOLD = threshold;
+    }
+
+    /**
+     * @return the threshold set by setParallelThreshold(int)
+     */
+    static int getParallelThreshold() {
+        return PARALLEL_THRESHOLD;
+    }
+
+    /**
+     * Sets the length from which sort(int[]) uses LSD radix sort over quickSort.
+     * @param threshold the length, must be positive
+     */
+    public static void setRadixSortThreshold(int threshold) {
+        if (threshold < 1)
+            throw new IllegalArgumentException("threshold must be positive: " + threshold);
+        RADIX_SORT_THRESHOLD = threshold;
+    }
+
+    /**
+     * Sets the length from which sort(int[]) radix sorts with 11 bit digits (three
+     * passes) instead of 8 bit digits (four passes).
+     * @param threshold the length, must be positive
+     */
+    public static void setWideRadixThreshold(int threshold) {
+        if (threshold < 1)
+            throw new IllegalArgumentException("threshold must be positive: " + threshold);
+        WIDE_RADIX_THRESHOLD = threshold;
+    }
+
+    /**
+     * Sets the length from which sort(int[]) sorts in parallel, when the common
+     * pool has more than one thread.
+     * @param threshold the length, must be positive
+     */
+    public static void setParallelSortThreshold(int threshold) {
+        if (threshold < 1)
+            throw new IllegalArgumentException("threshold must be positive: " + threshold);
+        PARALLEL_SORT_THRESHOLD = threshold;
+    }
+
+    /**
+     * @return the threshold set by setParallelSortThreshold(int)
+     */
+    static int getParallelSortThreshold() {
+        return PARALLEL_SORT_THRESHOLD;
+    }
+
+    /**
+     * Sets how large the range of values (max - min) can be, as a multiple of the
+     * length, for sort(int[]) to count sort. 0 turns count sorting off. Ranges too
+     * wide for countSort(int[]) to count in an array are never count sorted,
+     * whatever the factor.
+     * @param factor the multiple, must not be negative
+     */
+    public static void setCountRangeFactor(int factor) {
+        if (factor < 0)
+            throw new IllegalArgumentException("factor must not be negative: " + factor);
+        COUNT_RANGE_FACTOR = factor;
+    }
+
+    /**
+     * @return the factor set by setCountRangeFactor(int)
+     */
+    static int getCountRangeFactor() {
+        return COUNT_RANGE_FACTOR;
+    }
+
+    /**
+     * Sets the average run length from which sort(int[]) treats the array as
+     * presorted and uses timSort.
+     * @param length the average run length, must be positive
+     */
+    public static void setPresortedRunLength(int length) {
+        if (length < 1)
+            throw new IllegalArgumentException("length must be positive: " + length);
+        PRESORTED_RUN_LENGTH = length;
+    }
+
+    /**
+     * Sets the percentage of distinct values in the sample at or below which
+     * sort(int[]) uses quickSort for its duplicate handling, so lower values only
+     * send arrays with more duplicates there. 0 turns it off.
+     * @param percent the percentage, 0 to 100
+     */
+    public static void setDistinctPercent(int percent) {
+        if (percent < 0 || percent > 100)
+            throw new IllegalArgumentException("percent must be from 0 to 100: " + percent);
+        DISTINCT_PERCENT = percent;
+    }
+
+    /**
+     * @return the percentage set by setDistinctPercent(int)
+     */
+    static int getDistinctPercent() {
+        return DISTINCT_PERCENT;
+    }
+
+    // Primitive versions of the sorts. Each type gets the same comparison sorts as
+    // int[] so nothing is boxed or copied into an int[], plus the linear time sort
+    // that fits the type: LSD radix sort on the bits for long, float and double,
+    // and counting sort over the whole range for byte, short and char. The
+    // comparison sorts are written from gen/PrimitiveSorts.java.template.
+
+    // BEGIN generated by gen/GeneratePrimitiveSorts.java, do not edit
+
+    // long[]
+
+    /**
+     * long version of bubbleSort(int[]). Stable, O(n^2).
+     * @param array the array to sort
+     */
+    public static void bubbleSort(long[] array) {
+        Call call = begin();
+        sortRange(array, 0, array.length, Type.BUBBLE);
+        end(call, Type.BUBBLE, array.length);
+    }
+
+    /**
+     * Bubble sorts array[from, to), leaving the rest of the array alone.
+     * @param array the array to sort
+     * @param from the first index to sort
+     * @param to the index after the last one to sort
+     */
+    public static void bubbleSort(long[] array, int from, int to) {
+        rangeCheck(array.length, from, to);
+        sortRange(array, from, to, Type.BUBBLE);
+    }
+
+    /**
+     * long version of selectionSort(int[]). O(n^2).
+     * @param array the array to sort
+     */
+    public static void selectionSort(long[] array) {
+        Call call = begin();
+        sortRange(array, 0, array.length, Type.SELECTION);
+        end(call, Type.SELECTION, array.length);
+    }
+
+    /**
+     * Selection sorts array[from, to), leaving the rest of the array alone.
+     * @param array the array to sort
+     * @param from the first index to sort
+     * @param to the index after the last one to sort
+     */
+    public static void selectionSort(long[] array, int from, int to) {
+        rangeCheck(array.length, from, to);
+        sortRange(array, from, to, Type.SELECTION);
+    }
+
+    /**
+     * long version of insertionSort(int[]). Stable, O(n^2).
+     * @param array the array to sort
+     */
+    public static void insertionSort(long[] array) {
+        Call call = begin();
+        sortRange(array, 0, array.length, Type.INSERTION);
+        end(call, Type.INSERTION, array.length);
+    }
+
+    /**
+     * Insertion sorts array[from, to), leaving the rest of the array alone.
+     * @param array the array to sort
+     * @param from the first index to sort
+     * @param to the index after the last one to sort
+     */
+    public static void insertionSort(long[] array, int from, int to) {
+        rangeCheck(array.length, from, to);
+        sortRange(array, from, to, Type.INSERTION);
+    }
+
+    /**
+     * long version of bufferedMergeSort(int[]). Stable, O(nlogn).
+     * @param array the array to sort
+     */
+    public static void mergeSort(long[] array) {
+        Call call = begin();
+        sortRange(array, 0, array.length, Type.MERGE);
+        end(call, Type.MERGE, array.length);
+    }
+
+    /**
+     * Merge sorts array[from, to), leaving the rest of the array alone.
+     * @param array the array to sort
+     * @param from the first index to sort
+     * @param to the index after the last one to sort
+     */
+    public static void mergeSort(long[] array, int from, int to) {
+        rangeCheck(array.length, from, to);
+        sortRange(array, from, to, Type.MERGE);
+    }
+
+    /**
+     * long version of quickSort(int[]), an introsort. O(nlogn).
+     * @param array the array to sort
+     */
+    public static void quickSort(long[] array) {
+        Call call = begin();
+        sortRange(array, 0, array.length, Type.QUICK);
+        end(call, Type.QUICK, array.length);
+    }
+
+    /**
+     * Quick sorts array[from, to), leaving the rest of the array alone.
+     * @param array the array to sort
+     * @param from the first index to sort
+     * @param to the index after the last one to sort
+     */
+    public static void quickSort(long[] array, int from, int to) {
+        rangeCheck(array.length, from, to);
+        sortRange(array, from, to, Type.QUICK);
+    }
+
+    /**
+     * long version of heapSort(int[]), on a 4-ary heap. O(nlogn).
+     * @param array the array to sort
+     */
+    public static void heapSort(long[] array) {
+        Call call = begin();
+        sortRange(array, 0, array.length, Type.HEAP);
+        end(call, Type.HEAP, array.length);
+    }
+
+    /**
+     * Heap sorts array[from, to), leaving the rest of the array alone.
+     * @param array the array to sort
+     * @param from the first index to sort
+     * @param to the index after the last one to sort
+     */
+    public static void heapSort(long[] array, int from, int to) {
+        rangeCheck(array.length, from, to);
+        sortRange(array, from, to, Type.HEAP);
+    }
+
+    /**
+     * Runs the given sort on array[from, to).
+     */
+    private static void sortRange(long[] array, int from, int to, Type type) {
+        switch (type) {
+            case BUBBLE: bubbleSortRange(array, from, to); break;
+            case SELECTION: selectionSortRange(array, from, to); break;
+            case INSERTION: insertionSortRange(array, from, to); break;
+            case MERGE: mergeSortRange(array, from, to); break;
+            case QUICK: quickSortHelper(array, from, to, depthLimit(to - from)); break;
+            default: heapSortRange(array, from, to); break;
+        }
+    }
+
+    /**
+     * Bubble sort of array[lo, hi). See bubbleSort(int[], int, int).
+     */
+    private static void bubbleSortRange(long[] array, int lo, int hi) {
+        boolean sorted;
+        do {
+            sorted = true;
+            for (int i = lo; i < hi - 1; i++) {
+                if (less(array[i + 1], array[i])) {
+                    swap(array, i, i + 1);
+                    sorted = false;
+                }
+            }
+        } while (!sorted);
+    }
+
+    /**
+     * Selection sort of array[lo, hi). See selectionSort(int[], int, int).
+     */
+    private static void selectionSortRange(long[] array, int lo, int hi) {
+        for (int i = lo; i < hi; i++) {
+            int minIndex = i;
+            for (int j = i + 1; j < hi; j++) {
+                if (less(array[j], array[minIndex]))
+                    minIndex = j;
+            }
+            swap(array, i, minIndex);
+        }
+    }
+
+    /**
+     * Insertion sort of array[lo, hi), shifting instead of swapping.
+     */
+    private static void insertionSortRange(long[] array, int lo, int hi) {
+        for (int i = lo + 1; i < hi; i++) {
+            long value = array[i];
+            int j = i - 1;
+            while (j >= lo && less(value, array[j])) {
+                array[j + 1] = array[j];
+                j--;
+            }
+            array[j + 1] = value;
+        }
+    }
+
+    /**
+     * Buffered merge sort of array[lo, hi). See mergeSort(int[], int[]).
+     */
+    private static void mergeSortRange(long[] array, int lo, int hi) {
+        long[] buffer = Arrays.copyOf(array, hi);
+        mergeHelper(buffer, array, lo, hi);
+    }
+
+    /**
+     * Sorts src[lo, hi) into dst[lo, hi), which must hold the same values. See
+     * mergeHelper(int[], int[], int, int).
+     */
+    private static void mergeHelper(long[] src, long[] dst, int lo, int hi) {
+        if (hi - lo <= INSERTION_THRESHOLD) {
+            insertionSortRange(dst, lo, hi);
+            return;
+        }
+        enter();
+        int mid = (lo + hi) >>> 1;
+        mergeHelper(dst, src, lo, mid);
+        mergeHelper(dst, src, mid, hi);
+        if (!less(src[mid], src[mid - 1])) {
+            System.arraycopy(src, lo, dst, lo, hi - lo);
+        } else {
+            int l = lo, r = mid, out = lo;
+            while (l < mid && r < hi) {
+                // take from the left on ties to keep the sort stable
+                if (!less(src[r], src[l]))
+                    dst[out++] = src[l++];
+                else
+                    dst[out++] = src[r++];
+            }
+            if (l < mid)
+                System.arraycopy(src, l, dst, out, mid - l);
+            else
+                System.arraycopy(src, r, dst, out, hi - r);
+        }
+        exit();
+    }
+
+    /**
+     * Introsort of array[low, high). See quickSortHelper(int[], int, int, int).
+     */
+    private static void quickSortHelper(long[] array, int low, int high, int depthLimit) {
+        enter();
+        while (high - low > INSERTION_THRESHOLD) {
+            if (depthLimit-- == 0) {
+                heapSortRange(array, low, high);
+                exit();
+                return;
+            }
+            long pivot = array[choosePivot(array, low, high)];
+            int lt = partition(array, low, high, pivot);
+            int gt = lt;
+            while (gt < high && array[gt] == pivot)
+                gt++;
+            if (lt - low < high - gt) {
+                quickSortHelper(array, low, lt, depthLimit);
+                low = gt;
+            } else {
+                quickSortHelper(array, gt, high, depthLimit);
+                high = lt;
+            }
+        }
+        insertionSortRange(array, low, high);
+        exit();
+    }
+
+    /**
+     * Three way partition of array[low, high). See partition(int[], int, int, int).
+     */
+    private static int partition(long[] array, int low, int high, long pivot) {
+        int lt = low, i = low, gt = high - 1;
+        while (i <= gt) {
+            long value = array[i];
+            if (less(value, pivot))
+                swap(array, lt++, i++);
+            else if (less(pivot, value))
+                swap(array, i, gt--);
+            else
+                i++;
+        }
+        return lt;
+    }
+
+    /**
+     * The median of three, or Tukey's ninther for large ranges. See
+     * choosePivot(int[], int, int).
+     */
+    private static int choosePivot(long[] array, int low, int high) {
+        int last = high - 1;
+        int mid = (low + last) >>> 1;
+        if (high - low < NINTHER_THRESHOLD)
+            return medianOf3(array, low, mid, last);
+        int step = (high - low) / 8;
+        return medianOf3(array,
+                medianOf3(array, low, low + step, low + 2 * step),
+                medianOf3(array, mid - step, mid, mid + step),
+                medianOf3(array, last - 2 * step, last - step, last));
+    }
+
+    /**
+     * @return the index holding the median of the values at a, b and c
+     */
+    private static int medianOf3(long[] array, int a, int b, int c) {
+        if (less(array[a], array[b])) {
+            if (less(array[b], array[c]))
+                return b;
+            return less(array[a], array[c]) ? c : a;
+        }
+        if (less(array[a], array[c]))
+            return a;
+        return less(array[b], array[c]) ? c : b;
+    }
+
+    /**
+     * Heap sort of array[low, high) as a 4-ary heap. See
+     * heapSortRange(int[], int, int, int).
+     */
+    private static void heapSortRange(long[] array, int low, int high) {
+        int n = high - low;
+        if (n < 2)
+            return;
+        for (int i = (n - 2) >>> 2; i >= 0; i--)
+            siftDown(array, low, n, i, array[low + i]);
+        for (int i = n - 1; i > 0; i--) {
+            long value = array[low + i];
+            array[low + i] = array[low];
+            siftDown(array, low, i, 0, value);
+        }
+    }
+
+    /**
+     * Bottom-up sift of value into the 4-ary max-heap at the hole. See
+     * siftDown(int[], int, int, int, int, int).
+     */
+    private static void siftDown(long[] array, int offset, int n, int hole, long value) {
+        int top = hole;
+        int child;
+        while ((child = (hole << 2) + 1) < n) {
+            int end = Math.min(child + 4, n);
+            int largest = child;
+            for (int c = child + 1; c < end; c++)
+                largest = less(array[offset + largest], array[offset + c]) ? c : largest;
+            array[offset + hole] = array[offset + largest];
+            hole = largest;
+        }
+        while (hole > top) {
+            int parent = (hole - 1) >>> 2;
+            if (!less(array[offset + parent], value))
+                break;
+            array[offset + hole] = array[offset + parent];
+            hole = parent;
+        }
+        array[offset + hole] = value;
+    }
+
+    private static void swap(long[] array, int index1, int index2) {
+        if (METRICS)
+            PROBES.get().swaps++;
+        long temp = array[index1];
+        array[index1] = array[index2];
+        array[index2] = temp;
+    }
+
+    // double[]
+
+    /**
+     * double version of bubbleSort(int[]). O(n^2).
+     * Orders values like Arrays.sort(double[]).
+     * @param array the array to sort
+     */
+    public static void bubbleSort(double[] array) {
+        Call call = begin();
+        sortRange(array, 0, array.length, Type.BUBBLE);
+        end(call, Type.BUBBLE, array.length);
+    }
+
+    /**
+     * Bubble sorts array[from, to), leaving the rest of the array alone.
+     * @param array the array to sort
+     * @param from the first index to sort
+     * @param to the index after the last one to sort
+     */
+    public static void bubbleSort(double[] array, int from, int to) {
+        rangeCheck(array.length, from, to);
+        sortRange(array, from, to, Type.BUBBLE);
+    }
+
+    /**
+     * double version of selectionSort(int[]). O(n^2).
+     * Orders values like Arrays.sort(double[]).
+     * @param array the array to sort
+     */
+    public static void selectionSort(double[] array) {
+        Call call = begin();
+        sortRange(array, 0, array.length, Type.SELECTION);
+        end(call, Type.SELECTION, array.length);
+    }
+
+    /**
+     * Selection sorts array[from, to), leaving the rest of the array alone.
+     * @param array the array to sort
+     * @param from the first index to sort
+     * @param to the index after the last one to sort
+     */
+    public static void selectionSort(double[] array, int from, int to) {
+        rangeCheck(array.length, from, to);
+        sortRange(array, from, to, Type.SELECTION);
+    }
+
+    /**
+     * double version of insertionSort(int[]). O(n^2).
+     * Orders values like Arrays.sort(double[]).
+     * @param array the array to sort
+     */
+    public static void insertionSort(double[] array) {
+        Call call = begin();
+        sortRange(array, 0, array.length, Type.INSERTION);
+        end(call, Type.INSERTION, array.length);
+    }
+
+    /**
+     * Insertion sorts array[from, to), leaving the rest of the array alone.
+     * @param array the array to sort
+     * @param from the first index to sort
+     * @param to the index after the last one to sort
+     */
+    public static void insertionSort(double[] array, int from, int to) {
+        rangeCheck(array.length, from, to);
+        sortRange(array, from, to, Type.INSERTION);
+    }
+
+    /**
+     * double version of bufferedMergeSort(int[]). O(nlogn).
+     * Orders values like Arrays.sort(double[]).
+     * @param array the array to sort
+     */
+    public static void mergeSort(double[] array) {
+        Call call = begin();
+        sortRange(array, 0, array.length, Type.MERGE);
+        end(call, Type.MERGE, array.length);
+    }
+
+    /**
+     * Merge sorts array[from, to), leaving the rest of the array alone.
+     * @param array the array to sort
+     * @param from the first index to sort
+     * @param to the index after the last one to sort
+     */
+    public static void mergeSort(double[] array, int from, int to) {
+        rangeCheck(array.length, from, to);
+        sortRange(array, from, to, Type.MERGE);
+    }
+
+    /**
+     * double version of quickSort(int[]), an introsort. O(nlogn).
+     * Orders values like Arrays.sort(double[]).
+     * @param array the array to sort
+     */
+    public static void quickSort(double[] array) {
+        Call call = begin();
+        sortRange(array, 0, array.length, Type.QUICK);
+        end(call, Type.QUICK, array.length);
+    }
+
+    /**
+     * Quick sorts array[from, to), leaving the rest of the array alone.
+     * @param array the array to sort
+     * @param from the first index to sort
+     * @param to the index after the last one to sort
+     */
+    public static void quickSort(double[] array, int from, int to) {
+        rangeCheck(array.length, from, to);
+        sortRange(array, from, to, Type.QUICK);
+    }
+
+    /**
+     * double version of heapSort(int[]), on a 4-ary heap. O(nlogn).
+     * Orders values like Arrays.sort(double[]).
+     * @param array the array to sort
+     */
+    public static void heapSort(double[] array) {
+        Call call = begin();
+        sortRange(array, 0, array.length, Type.HEAP);
+        end(call, Type.HEAP, array.length);
+    }
+
+    /**
+     * Heap sorts array[from, to), leaving the rest of the array alone.
+     * @param array the array to sort
+     * @param from the first index to sort
+     * @param to the index after the last one to sort
+     */
+    public static void heapSort(double[] array, int from, int to) {
+        rangeCheck(array.length, from, to);
+        sortRange(array, from, to, Type.HEAP);
+    }
+
+    /**
+     * Runs the given sort on array[from, to). The sorts compare with {@code <},
+     * which can not order NaN and treats -0.0 and 0.0 as equal, so NaNs are moved
+     * to the end first and the negative zeros are put back before the positive
+     * ones afterwards.
+     */
+    private static void sortRange(double[] array, int from, int to, Type type) {
+        int end = moveNaNsToEnd(array, from, to);
+        int negativeZeros = clearNegativeZeros(array, from, end);
+        sortNumbers(array, from, end, type);
+        restoreNegativeZeros(array, from, end, negativeZeros);
+    }
+
+    /**
+     * Runs the given sort on array[from, to), which holds no NaN or -0.0.
+     */
+    private static void sortNumbers(double[] array, int from, int to, Type type) {
+        switch (type) {
+            case BUBBLE: bubbleSortRange(array, from, to); break;
+            case SELECTION: selectionSortRange(array, from, to); break;
+            case INSERTION: insertionSortRange(array, from, to); break;
+            case MERGE: mergeSortRange(array, from, to); break;
+            case QUICK: quickSortHelper(array, from, to, depthLimit(to - from)); break;
+            default: heapSortRange(array, from, to); break;
+        }
+    }
+
+    /**
+     * Moves every NaN in array[from, to) to the end of the range.
+     * @return the index after the last value that is not NaN
+     */
+    private static int moveNaNsToEnd(double[] array, int from, int to) {
+        int end = to;
+        for (int i = end - 1; i >= from; i--) {
+            if (array[i] != array[i]) // only NaN is not equal to itself
+                swap(array, i, --end);
+        }
+        return end;
+    }
+
+    /**
+     * Replaces every -0.0 in array[from, end) with 0.0.
+     * @return how many were replaced
+     */
+    private static int clearNegativeZeros(double[] array, int from, int end) {
+        int count = 0;
+        for (int i = from; i < end; i++) {
+            if (array[i] == 0 && Double.doubleToRawLongBits(array[i]) != 0) {
+                array[i] = 0;
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Turns the first count zeros of the sorted array[from, end) back into -0.0.
+     */
+    private static void restoreNegativeZeros(double[] array, int from, int end, int count) {
+        if (count == 0)
+            return;
+        int lo = from, hi = end;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (array[mid] < 0)
+                lo = mid + 1;
+            else
+                hi = mid;
+        }
+        for (int i = lo; i < lo + count; i++)
+            array[i] = -0.0d;
+    }
+
+    /**
+     * Bubble sort of array[lo, hi). See bubbleSort(int[], int, int).
+     */
+    private static void bubbleSortRange(double[] array, int lo, int hi) {
+        boolean sorted;
+        do {
+            sorted = true;
+            for (int i = lo; i < hi - 1; i++) {
+                if (less(array[i + 1], array[i])) {
+                    swap(array, i, i + 1);
+                    sorted = false;
+                }
+            }
+        } while (!sorted);
+    }
+
+    /**
+     * Selection sort of array[lo, hi). See selectionSort(int[], int, int).
+     */
+    private static void selectionSortRange(double[] array, int lo, int hi) {
+        for (int i = lo; i < hi; i++) {
+            int minIndex = i;
+            for (int j = i + 1; j < hi; j++) {
+                if (less(array[j], array[minIndex]))
+                    minIndex = j;
+            }
+            swap(array, i, minIndex);
+        }
+    }
+
+    /**
+     * Insertion sort of array[lo, hi), shifting instead of swapping.
+     */
+    private static void insertionSortRange(double[] array, int lo, int hi) {
+        for (int i = lo + 1; i < hi; i++) {
+            double value = array[i];
+            int j = i - 1;
+            while (j >= lo && less(value, array[j])) {
+                array[j + 1] = array[j];
+                j--;
+            }
+            array[j + 1] = value;
+        }
+    }
+
+    /**
+     * Buffered merge sort of array[lo, hi). See mergeSort(int[], int[]).
+     */
+    private static void mergeSortRange(double[] array, int lo, int hi) {
+        double[] buffer = Arrays.copyOf(array, hi);
+        mergeHelper(buffer, array, lo, hi);
+    }
+
+    /**
+     * Sorts src[lo, hi) into dst[lo, hi), which must hold the same values. See
+     * mergeHelper(int[], int[], int, int).
+     */
+    private static void mergeHelper(double[] src, double[] dst, int lo, int hi) {
+        if (hi - lo <= INSERTION_THRESHOLD) {
+            insertionSortRange(dst, lo, hi);
+            return;
+        }
+        enter();
+        int mid = (lo + hi) >>> 1;
+        mergeHelper(dst, src, lo, mid);
+        mergeHelper(dst, src, mid, hi);
+        if (!less(src[mid], src[mid - 1])) {
+            System.arraycopy(src, lo, dst, lo, hi - lo);
+        } else {
+            int l = lo, r = mid, out = lo;
+            while (l < mid && r < hi) {
+                // take from the left on ties to keep the sort stable
+                if (!less(src[r], src[l]))
+                    dst[out++] = src[l++];
+                else
+                    dst[out++] = src[r++];
+            }
+            if (l < mid)
+                System.arraycopy(src, l, dst, out, mid - l);
+            else
+                System.arraycopy(src, r, dst, out, hi - r);
+        }
+        exit();
+    }
+
+    /**
+     * Introsort of array[low, high). See quickSortHelper(int[], int, int, int).
+     */
+    private static void quickSortHelper(double[] array, int low, int high, int depthLimit) {
+        enter();
+        while (high - low > INSERTION_THRESHOLD) {
+            if (depthLimit-- == 0) {
+                heapSortRange(array, low, high);
+                exit();
+                return;
+            }
+            double pivot = array[choosePivot(array, low, high)];
+            int lt = partition(array, low, high, pivot);
+            int gt = lt;
+            while (gt < high && array[gt] == pivot)
+                gt++;
+            if (lt - low < high - gt) {
+                quickSortHelper(array, low, lt, depthLimit);
+                low = gt;
+            } else {
+                quickSortHelper(array, gt, high, depthLimit);
+                high = lt;
+            }
+        }
+        insertionSortRange(array, low, high);
+        exit();
+    }
+
+    /**
+     * Three way partition of array[low, high). See partition(int[], int, int, int).
+     */
+    private static int partition(double[] array, int low, int high, double pivot) {
+        int lt = low, i = low, gt = high - 1;
+        while (i <= gt) {
+            double value = array[i];
+            if (less(value, pivot))
+                swap(array, lt++, i++);
+            else if (less(pivot, value))
+                swap(array, i, gt--);
+            else
+                i++;
+        }
+        return lt;
+    }
+
+    /**
+     * The median of three, or Tukey's ninther for large ranges. See
+     * choosePivot(int[], int, int).
+     */
+    private static int choosePivot(double[] array, int low, int high) {
+        int last = high - 1;
+        int mid = (low + last) >>> 1;
+        if (high - low < NINTHER_THRESHOLD)
+            return medianOf3(array, low, mid, last);
+        int step = (high - low) / 8;
+        return medianOf3(array,
+                medianOf3(array, low, low + step, low + 2 * step),
+                medianOf3(array, mid - step, mid, mid + step),
+                medianOf3(array, last - 2 * step, last - step, last));
+    }
+
+    /**
+     * @return the index holding the median of the values at a, b and c
+     */
+    private static int medianOf3(double[] array, int a, int b, int c) {
+        if (less(array[a], array[b])) {
+            if (less(array[b], array[c]))
+                return b;
+            return less(array[a], array[c]) ? c : a;
+        }
+        if (less(array[a], array[c]))
+            return a;
+        return less(array[b], array[c]) ? c : b;
+    }
+
+    /**
+     * Heap sort of array[low, high) as a 4-ary heap. See
+     * heapSortRange(int[], int, int, int).
+     */
+    private static void heapSortRange(double[] array, int low, int high) {
+        int n = high - low;
+        if (n < 2)
+            return;
+        for (int i = (n - 2) >>> 2; i >= 0; i--)
+            siftDown(array, low, n, i, array[low + i]);
+        for (int i = n - 1; i > 0; i--) {
+            double value = array[low + i];
+            array[low + i] = array[low];
+            siftDown(array, low, i, 0, value);
+        }
+    }
+
+    /**
+     * Bottom-up sift of value into the 4-ary max-heap at the hole. See
+     * siftDown(int[], int, int, int, int, int).
+     */
+    private static void siftDown(double[] array, int offset, int n, int hole, double value) {
+        int top = hole;
+        int child;
+        while ((child = (hole << 2) + 1) < n) {
+            int end = Math.min(child + 4, n);
+            int largest = child;
+            for (int c = child + 1; c < end; c++)
+                largest = less(array[offset + largest], array[offset + c]) ? c : largest;
+            array[offset + hole] = array[offset + largest];
+            hole = largest;
+        }
+        while (hole > top) {
+            int parent = (hole - 1) >>> 2;
+            if (!less(array[offset + parent], value))
+                break;
+            array[offset + hole] = array[offset + parent];
+            hole = parent;
+        }
+        array[offset + hole] = value;
+    }
+
+    private static void swap(double[] array, int index1, int index2) {
+        if (METRICS)
+            PROBES.get().swaps++;
+        double temp = array[index1];
+        array[index1] = array[index2];
+        array[index2] = temp;
+    }
+
+    // float[]
+
+    /**
+     * float version of bubbleSort(int[]). O(n^2).
+     * Orders values like Arrays.sort(float[]).
+     * @param array the array to sort
+     */
+    public static void bubbleSort(float[] array) {
+        Call call = begin();
+        sortRange(array, 0, array.length, Type.BUBBLE);
+        end(call, Type.BUBBLE, array.length);
+    }
+
+    /**
+     * Bubble sorts array[from, to), leaving the rest of the array alone.
+     * @param array the array to sort
+     * @param from the first index to sort
+     * @param to the index after the last one to sort
+     */
+    public static void bubbleSort(float[] array, int from, int to) {
+        rangeCheck(array.length, from, to);
+        sortRange(array, from, to, Type.BUBBLE);
+    }
+
+    /**
+     * float version of selectionSort(int[]). O(n^2).
+     * Orders values like Arrays.sort(float[]).
+     * @param array the array to sort
+     */
+    public static void selectionSort(float[] array) {
+        Call call = begin();
+        sortRange(array, 0, array.length, Type.SELECTION);
+        end(call, Type.SELECTION, array.length);
+    }
+
+    /**
+     * Selection sorts array[from, to), leaving the rest of the array alone.
+     * @param array the array to sort
+     * @param from the first index to sort
+     * @param to the index after the last one to sort
+     */
+    public static void selectionSort(float[] array, int from, int to) {
+        rangeCheck(array.length, from, to);
+        sortRange(array, from, to, Type.SELECTION);
+    }
+
+    /**
+     * float version of insertionSort(int[]). O(n^2).
+     * Orders values like Arrays.sort(float[]).
+     * @param array the array to sort
+     */
+    public static void insertionSort(float[] array) {
+        Call call = begin();
+        sortRange(array, 0, array.length, Type.INSERTION);
+        end(call, Type.INSERTION, array.length);
+    }
+
+    /**
+     * Insertion sorts array[from, to), leaving the rest of the array alone.
+     * @param array the array to sort
+     * @param from the first index to sort
+     * @param to the index after the last one to sort
+     */
+    public static void insertionSort(float[] array, int from, int to) {
+        rangeCheck(array.length, from, to);
+        sortRange(array, from, to, Type.INSERTION);
+    }
+
+    /**
+     * float version of bufferedMergeSort(int[]). O(nlogn).
+     * Orders values like Arrays.sort(float[]).
+     * @param array the array to sort
+     */
+    public static void mergeSort(float[] array) {
+        Call call = begin();
+        sortRange(array, 0, array.length, Type.MERGE);
+        end(call, Type.MERGE, array.length);
+    }
+
+    /**
+     * Merge sorts array[from, to), leaving the rest of the array alone.
+     * @param array the array to sort
+     * @param from the first index to sort
+     * @param to the index after the last one to sort
+     */
+    public static void mergeSort(float[] array, int from, int to) {
+        rangeCheck(array.length, from, to);
+        sortRange(array, from, to, Type.MERGE);
+    }
+
+    /**
+     * float version of quickSort(int[]), an introsort. O(nlogn).
+     * Orders values like Arrays.sort(float[]).
+     * @param array the array to sort
+     */
+    public static void quickSort(float[] array) {
+        Call call = begin();
+        sortRange(array, 0, array.length, Type.QUICK);
+        end(call, Type.QUICK, array.length);
+    }
+
+    /**
+     * Quick sorts array[from, to), leaving the rest of the array alone.
+     * @param array the array to sort
+     * @param from the first index to sort
+     * @param to the index after the last one to sort
+     */
+    public static void quickSort(float[] array, int from, int to) {
+        rangeCheck(array.length, from, to);
+        sortRange(array, from, to, Type.QUICK);
+    }
+
+    /**
+     * float version of heapSort(int[]), on a 4-ary heap. O(nlogn).
+     * Orders values like Arrays.sort(float[]).
+     * @param array the array to sort
+     */
+    public static void heapSort(float[] array) {
+        Call call = begin();
+        sortRange(array, 0, array.length, Type.HEAP);
+        end(call, Type.HEAP, array.length);
+    }
+
+    /**
+     * Heap sorts array[from, to), leaving the rest of the array alone.
+     * @param array the array to sort
+     * @param from the first index to sort
+     * @param to the index after the last one to sort
+     */
+    public static void heapSort(float[] array, int from, int to) {
+        rangeCheck(array.length, from, to);
+        sortRange(array, from, to, Type.HEAP);
+    }
+
+    /**
+     * Runs the given sort on array[from, to). The sorts compare with {@code <},
+     * which can not order NaN and treats -0.0 and 0.0 as equal, so NaNs are moved
+     * to the end first and the negative zeros are put back before the positive
+     * ones afterwards.
+     */
+    private static void sortRange(float[] array, int from, int to, Type type) {
+        int end = moveNaNsToEnd(array, from, to);
+        int negativeZeros = clearNegativeZeros(array, from, end);
+        sortNumbers(array, from, end, type);
+        restoreNegativeZeros(array, from, end, negativeZeros);
+    }
+
+    /**
+     * Runs the given sort on array[from, to), which holds no NaN or -0.0.
+     */
+    private static void sortNumbers(float[] array, int from, int to, Type type) {
+        switch (type) {
+            case BUBBLE: bubbleSortRange(array, from, to); break;
+            case SELECTION: selectionSortRange(array, from, to); break;
+            case INSERTION: insertionSortRange(array, from, to); break;
+            case MERGE: mergeSortRange(array, from, to); break;
+            case QUICK: quickSortHelper(array, from, to, depthLimit(to - from)); break;
+            default: heapSortRange(array, from, to); break;
+        }
+    }
+
+    /**
+     * Moves every NaN in array[from, to) to the end of the range.
+     * @return the index after the last value that is not NaN
+     */
+    private static int moveNaNsToEnd(float[] array, int from, int to) {
+        int end = to;
+        for (int i = end - 1; i >= from; i--) {
+            if (array[i] != array[i]) // only NaN is not equal to itself
+                swap(array, i, --end);
+        }
+        return end;
+    }
+
+    /**
+     * Replaces every -0.0 in array[from, end) with 0.0.
+     * @return how many were replaced
+     */
+    private static int clearNegativeZeros(float[] array, int from, int end) {
+        int count = 0;
+        for (int i = from; i < end; i++) {
+            if (array[i] == 0 && Float.floatToRawIntBits(array[i]) != 0) {
+                array[i] = 0;
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Turns the first count zeros of the sorted array[from, end) back into -0.0.
+     */
+    private static void restoreNegativeZeros(float[] array, int from, int end, int count) {
+        if (count == 0)
+            return;
+        int lo = from, hi = end;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (array[mid] < 0)
+                lo = mid + 1;
+            else
+                hi = mid;
+        }
+        for (int i = lo; i < lo + count; i++)
+            array[i] = -0.0f;
+    }
+
+    /**
+     * Bubble sort of array[lo, hi). See bubbleSort(int[], int, int).
+     */
+    private static void bubbleSortRange(float[] array, int lo, int hi) {
+        boolean sorted;
+        do {
+            sorted = true;
+            for (int i = lo; i < hi - 1; i++) {
+                if (less(array[i + 1], array[i])) {
+                    swap(array, i, i + 1);
+                    sorted = false;
+                }
+            }
+        } while (!sorted);
+    }
+
+    /**
+     * Selection sort of array[lo, hi). See selectionSort(int[], int, int).
+     */
+    private static void selectionSortRange(float[] array, int lo, int hi) {
+        for (int i = lo; i < hi; i++) {
+            int minIndex = i;
+            for (int j = i + 1; j < hi; j++) {
+                if (less(array[j], array[minIndex]))
+                    minIndex = j;
+            }
+            swap(array, i, minIndex);
+        }
+    }
+
+    /**
+     * Insertion sort of array[lo, hi), shifting instead of swapping.
+     */
+    private static void insertionSortRange(float[] array, int lo, int hi) {
+        for (int i = lo + 1; i < hi; i++) {
+            float value = array[i];
+            int j = i - 1;
+            while (j >= lo && less(value, array[j])) {
+                array[j + 1] = array[j];
+                j--;
+            }
+            array[j + 1] = value;
+        }
+    }
+
+    /**
+     * Buffered merge sort of array[lo, hi). See mergeSort(int[], int[]).
+     */
+    private static void mergeSortRange(float[] array, int lo, int hi) {
+        float[] buffer = Arrays.copyOf(array, hi);
+        mergeHelper(buffer, array, lo, hi);
+    }
+
+    /**
+     * Sorts src[lo, hi) into dst[lo, hi), which must hold the same values. See
+     * mergeHelper(int[], int[], int, int).
+     */
+    private static void mergeHelper(float[] src, float[] dst, int lo, int hi) {
+        if (hi - lo <= INSERTION_THRESHOLD) {
+            insertionSortRange(dst, lo, hi);
+            return;
+        }
+        enter();
+        int mid = (lo + hi) >>> 1;
+        mergeHelper(dst, src, lo, mid);
+        mergeHelper(dst, src, mid, hi);
+        if (!less(src[mid], src[mid - 1])) {
+            System.arraycopy(src, lo, dst, lo, hi - lo);
+        } else {
+            int l = lo, r = mid, out = lo;
+            while (l < mid && r < hi) {
+                // take from the left on ties to keep the sort stable
+                if (!less(src[r], src[l]))
+                    dst[out++] = src[l++];
+                else
+                    dst[out++] = src[r++];
+            }
+            if (l < mid)
+                System.arraycopy(src, l, dst, out, mid - l);
+            else
+                System.arraycopy(src, r, dst, out, hi - r);
+        }
+        exit();
+    }
+
+    /**
+     * Introsort of array[low, high). See quickSortHelper(int[], int, int, int).
+     */
+    private static void quickSortHelper(float[] array, int low, int high, int depthLimit) {
+        enter();
+        while (high - low > INSERTION_THRESHOLD) {
+            if (depthLimit-- == 0) {
+                heapSortRange(array, low, high);
+                exit();
+                return;
+            }
+            float pivot = array[choosePivot(array, low, high)];
+            int lt = partition(array, low, high, pivot);
+            int gt = lt;
+            while (gt < high && array[gt] == pivot)
+                gt++;
+            if (lt - low < high - gt) {
+                quickSortHelper(array, low, lt, depthLimit);
+                low = gt;
+            } else {
+                quickSortHelper(array, gt, high, depthLimit);
+                high = lt;
+            }
+        }
+        insertionSortRange(array, low, high);
+        exit();
+    }
+
+    /**
+     * Three way partition of array[low, high). See partition(int[], int, int, int).
+     */
+    private static int partition(float[] array, int low, int high, float pivot) {
+        int lt = low, i = low, gt = high - 1;
+        while (i <= gt) {
+            float value = array[i];
+            if (less(value, pivot))
+                swap(array, lt++, i++);
+            else if (less(pivot, value))
+                swap(array, i, gt--);
+            else
+                i++;
+        }
+        return lt;
+    }
+
+    /**
+     * The median of three, or Tukey's ninther for large ranges. See
+     * choosePivot(int[], int, int).
+     */
+    private static int choosePivot(float[] array, int low, int high) {
+        int last = high - 1;
+        int mid = (low + last) >>> 1;
+        if (high - low < NINTHER_THRESHOLD)
+            return medianOf3(array, low, mid, last);
+        int step = (high - low) / 8;
+        return medianOf3(array,
+                medianOf3(array, low, low + step, low + 2 * step),
+                medianOf3(array, mid - step, mid, mid + step),
+                medianOf3(array, last - 2 * step, last - step, last));
+    }
+
+    /**
+     * @return the index holding the median of the values at a, b and c
+     */
+    private static int medianOf3(float[] array, int a, int b, int c) {
+        if (less(array[a], array[b])) {
+            if (less(array[b], array[c]))
+                return b;
+            return less(array[a], array[c]) ? c : a;
+        }
+        if (less(array[a], array[c]))
+            return a;
+        return less(array[b], array[c]) ? c : b;
+    }
+
+    /**
+     * Heap sort of array[low, high) as a 4-ary heap. See
+     * heapSortRange(int[], int, int, int).
+     */
+    private static void heapSortRange(float[] array, int low, int high) {
+        int n = high - low;
+        if (n < 2)
+            return;
+        for (int i = (n - 2) >>> 2; i >= 0; i--)
+            siftDown(array, low, n, i, array[low + i]);
+        for (int i = n - 1; i > 0; i--) {
+            float value = array[low + i];
+            array[low + i] = array[low];
+            siftDown(array, low, i, 0, value);
+        }
+    }
+
+    /**
+     * Bottom-up sift of value into the 4-ary max-heap at the hole. See
+     * siftDown(int[], int, int, int, int, int).
+     */
+    private static void siftDown(float[] array, int offset, int n, int hole, float value) {
+        int top = hole;
+        int child;
+        while ((child = (hole << 2) + 1) < n) {
+            int end = Math.min(child + 4, n);
+            int largest = child;
+            for (int c = child + 1; c < end; c++)
+                largest = less(array[offset + largest], array[offset + c]) ? c : largest;
+            array[offset + hole] = array[offset + largest];
+            hole = largest;
+        }
+        while (hole > top) {
+            int parent = (hole - 1) >>> 2;
+            if (!less(array[offset + parent], value))
+                break;
+            array[offset + hole] = array[offset + parent];
+            hole = parent;
+        }
+        array[offset + hole] = value;
+    }
+
+    private static void swap(float[] array, int index1, int index2) {
+        if (METRICS)
+            PROBES.get().swaps++;
+        float temp = array[index1];
+        array[index1] = array[index2];
+        array[index2] = temp;
+    }
+
+    // short[]
+
+    /**
+     * short version of bubbleSort(int[]). Stable, O(n^2).
+     * @param array the array to sort
+     */
+    public static void bubbleSort(short[] array) {
+        Call call = begin();
+        sortRange(array, 0, array.length, Type.BUBBLE);
+        end(call, Type.BUBBLE, array.length);
+    }
+
+    /**
+     * Bubble sorts array[from, to), leaving the rest of the array alone.
+     * @param array the array to sort
+     * @param from the first index to sort
+     * @param to the index after the last one to sort
+     */
+    public static void bubbleSort(short[] array, int from, int to) {
+        rangeCheck(array.length, from, to);
+        sortRange(array, from, to, Type.BUBBLE);
+    }
+
+    /**
+     * short version of selectionSort(int[]). O(n^2).
+     * @param array the array to sort
+     */
+    public static void selectionSort(short[] array) {
+        Call call = begin();
+        sortRange(array, 0, array.length, Type.SELECTION);
+        end(call, Type.SELECTION, array.length);
+    }
+
+    /**
+     * Selection sorts array[from, to), leaving the rest of the array alone.
+     * @param array the array to sort
+     * @param from the first index to sort
+     * @param to the index after the last one to sort
+     */
+    public static void selectionSort(short[] array, int from, int to) {
+        rangeCheck(array.length, from, to);
+        sortRange(array, from, to, Type.SELECTION);
+    }
+
+    /**
+     * short version of insertionSort(int[]). Stable, O(n^2).
+     * @param array the array to sort
+     */
+    public static void insertionSort(short[] array) {
+        Call call = begin();
+        sortRange(array, 0, array.length, Type.INSERTION);
+        end(call, Type.INSERTION, array.length);
+    }
+
+    /**
+     * Insertion sorts array[from, to), leaving the rest of the array alone.
+     * @param array the array to sort
+     * @param from the first index to sort
+     * @param to the index after the last one to sort
+     */
+    public static void insertionSort(short[] array, int from, int to) {
+        rangeCheck(array.length, from, to);
+        sortRange(array, from, to, Type.INSERTION);
+    }
+
+    /**
+     * short version of bufferedMergeSort(int[]). Stable, O(nlogn).
+     * @param array the array to sort
+     */
+    public static void mergeSort(short[] array) {
+        Call call = begin();
+        sortRange(array, 0, array.length, Type.MERGE);
+        end(call, Type.MERGE, array.length);
+    }
+
+    /**
+     * Merge sorts array[from, to), leaving the rest of the array alone.
+     * @param array the array to sort
+     * @param from the first index to sort
+     * @param to the index after the last one to sort
+     */
+    public static void mergeSort(short[] array, int from, int to) {
+        rangeCheck(array.length, from, to);
+        sortRange(array, from, to, Type.MERGE);
+    }
+
+    /**
+     * short version of quickSort(int[]), an introsort. O(nlogn).
+     * @param array the array to sort
+     */
+    public static void quickSort(short[] array) {
+        Call call = begin();
+        sortRange(array, 0, array.length, Type.QUICK);
+        end(call, Type.QUICK, array.length);
+    }
+
+    /**
+     * Quick sorts array[from, to), leaving the rest of the array alone.
+     * @param array the array to sort
+     * @param from the first index to sort
+     * @param to the index after the last one to sort
+     */
+    public static void quickSort(short[] array, int from, int to) {
+        rangeCheck(array.length, from, to);
+        sortRange(array, from, to, Type.QUICK);
+    }
+
+    /**
+     * short version of heapSort(int[]), on a 4-ary heap. O(nlogn).
+     * @param array the array to sort
+     */
+    public static void heapSort(short[] array) {
+        Call call = begin();
+        sortRange(array, 0, array.length, Type.HEAP);
+        end(call, Type.HEAP, array.length);
+    }
+
+    /**
+     * Heap sorts array[from, to), leaving the rest of the array alone.
+     * @param array the array to sort
+     * @param from the first index to sort
+     * @param to the index after the last one to sort
+     */
+    public static void heapSort(short[] array, int from, int to) {
+        rangeCheck(array.length, from, to);
+        sortRange(array, from, to, Type.HEAP);
+    }
+
+    /**
+     * Runs the given sort on array[from, to).
+     */
+    private static void sortRange(short[] array, int from, int to, Type type) {
+        switch (type) {
+            case BUBBLE: bubbleSortRange(array, from, to); break;
+            case SELECTION: selectionSortRange(array, from, to); break;
+            case INSERTION: insertionSortRange(array, from, to); break;
+            case MERGE: mergeSortRange(array, from, to); break;
+            case QUICK: quickSortHelper(array, from, to, depthLimit(to - from)); break;
+            default: heapSortRange(array, from, to); break;
+        }
+    }
+
+    /**
+     * Bubble sort of array[lo, hi). See bubbleSort(int[], int, int).
+     */
+    private static void bubbleSortRange(short[] array, int lo, int hi) {
+        boolean sorted;
+        do {
+            sorted = true;
+            for (int i = lo; i < hi - 1; i++) {
+                if (less(array[i + 1], array[i])) {
+                    swap(array, i, i + 1);
+                    sorted = false;
+                }
+            }
+        } while (!sorted);
+    }
+
+    /**
+     * Selection sort of array[lo, hi). See selectionSort(int[], int, int).
+     */
+    private static void selectionSortRange(short[] array, int lo, int hi) {
+        for (int i = lo; i < hi; i++) {
+            int minIndex = i;
+            for (int j = i + 1; j < hi; j++) {
+                if (less(array[j], array[minIndex]))
+                    minIndex = j;
+            }
+            swap(array, i, minIndex);
+        }
+    }
+
+    /**
+     * Insertion sort of array[lo, hi), shifting instead of swapping.
+     */
+    private static void insertionSortRange(short[] array, int lo, int hi) {
+        for (int i = lo + 1; i < hi; i++) {
+            short value = array[i];
+            int j = i - 1;
+            while (j >= lo && less(value, array[j])) {
+                array[j + 1] = array[j];
+                j--;
+            }
+            array[j + 1] = value;
+        }
+    }
+
+    /**
+     * Buffered merge sort of array[lo, hi). See mergeSort(int[], int[]).
+     */
+    private static void mergeSortRange(short[] array, int lo, int hi) {
+        short[] buffer = Arrays.copyOf(array, hi);
+        mergeHelper(buffer, array, lo, hi);
+    }
+
+    /**
+     * Sorts src[lo, hi) into dst[lo, hi), which must hold the same values. See
+     * mergeHelper(int[], int[], int, int).
+     */
+    private static void mergeHelper(short[] src, short[] dst, int lo, int hi) {
+        if (hi - lo <= INSERTION_THRESHOLD) {
+            insertionSortRange(dst, lo, hi);
+            return;
+        }
+        enter();
+        int mid = (lo + hi) >>> 1;
+        mergeHelper(dst, src, lo, mid);
+        mergeHelper(dst, src, mid, hi);
+        if (!less(src[mid], src[mid - 1])) {
+            System.arraycopy(src, lo, dst, lo, hi - lo);
+        } else {
+            int l = lo, r = mid, out = lo;
+            while (l < mid && r < hi) {
+                // take from the left on ties to keep the sort stable
+                if (!less(src[r], src[l]))
+                    dst[out++] = src[l++];
+                else
+                    dst[out++] = src[r++];
+            }
+            if (l < mid)
+                System.arraycopy(src, l, dst, out, mid - l);
+            else
+                System.arraycopy(src, r, dst, out, hi - r);
+        }
+        exit();
+    }
+
+    /**
+     * Introsort of array[low, high). See quickSortHelper(int[], int, int, int).
+     */
+    private static void quickSortHelper(short[] array, int low, int high, int depthLimit) {
+        enter();
+        while (high - low > INSERTION_THRESHOLD) {
+            if (depthLimit-- == 0) {
+                heapSortRange(array, low, high);
+                exit();
+                return;
+            }
+            short pivot = array[choosePivot(array, low, high)];
+            int lt = partition(array, low, high, pivot);
+            int gt = lt;
+            while (gt < high && array[gt] == pivot)
+                gt++;
+            if (lt - low < high - gt) {
+                quickSortHelper(array, low, lt, depthLimit);
+                low = gt;
+            } else {
+                quickSortHelper(array, gt, high, depthLimit);
+                high = lt;
+            }
+        }
+        insertionSortRange(array, low, high);
+        exit();
+    }
+
+    /**
+     * Three way partition of array[low, high). See partition(int[], int, int, int).
+     */
+    private static int partition(short[] array, int low, int high, short pivot) {
+        int lt = low, i = low, gt = high - 1;
+        while (i <= gt) {
+            short value = array[i];
+            if (less(value, pivot))
+                swap(array, lt++, i++);
+            else if (less(pivot, value))
+                swap(array, i, gt--);
+            else
+                i++;
+        }
+        return lt;
+    }
+
+    /**
+     * The median of three, or Tukey's ninther for large ranges. See
+     * choosePivot(int[], int, int).
+     */
+    private static int choosePivot(short[] array, int low, int high) {
+        int last = high - 1;
+        int mid = (low + last) >>> 1;
+        if (high - low < NINTHER_THRESHOLD)
+            return medianOf3(array, low, mid, last);
+        int step = (high - low) / 8;
+        return medianOf3(array,
+                medianOf3(array, low, low + step, low + 2 * step),
+                medianOf3(array, mid - step, mid, mid + step),
+                medianOf3(array, last - 2 * step, last - step, last));
+    }
+
+    /**
+     * @return the index holding the median of the values at a, b and c
+     */
+    private static int medianOf3(short[] array, int a, int b, int c) {
+        if (less(array[a], array[b])) {
+            if (less(array[b], array[c]))
+                return b;
+            return less(array[a], array[c]) ? c : a;
+        }
+        if (less(array[a], array[c]))
+            return a;
+        return less(array[b], array[c]) ? c : b;
+    }
+
+    /**
+     * Heap sort of array[low, high) as a 4-ary heap. See
+     * heapSortRange(int[], int, int, int).
+     */
+    private static void heapSortRange(short[] array, int low, int high) {
+        int n = high - low;
+        if (n < 2)
+            return;
+        for (int i = (n - 2) >>> 2; i >= 0; i--)
+            siftDown(array, low, n, i, array[low + i]);
+        for (int i = n - 1; i > 0; i--) {
+            short value = array[low + i];
+            array[low + i] = array[low];
+            siftDown(array, low, i, 0, value);
+        }
+    }
+
+    /**
+     * Bottom-up sift of value into the 4-ary max-heap at the hole. See
+     * siftDown(int[], int, int, int, int, int).
+     */
+    private static void siftDown(short[] array, int offset, int n, int hole, short value) {
+        int top = hole;
+        int child;
+        while ((child = (hole << 2) + 1) < n) {
+            int end = Math.min(child + 4, n);
+            int largest = child;
+            for (int c = child + 1; c < end; c++)
+                largest = less(array[offset + largest], array[offset + c]) ? c : largest;
+            array[offset + hole] = array[offset + largest];
+            hole = largest;
+        }
+        while (hole > top) {
+            int parent = (hole - 1) >>> 2;
+            if (!less(array[offset + parent], value))
+                break;
+            array[offset + hole] = array[offset + parent];
+            hole = parent;
+        }
+        array[offset + hole] = value;
+    }
+
+    private static void swap(short[] array, int index1, int index2) {
+        if (METRICS)
+            PROBES.get().swaps++;
+        short temp = array[index1];
+        array[index1] = array[index2];
+        array[index2] = temp;
+    }
+
+    // char[]
+
+    /**
+     * char version of bubbleSort(int[]). Stable, O(n^2).
+     * @param array the array to sort
+     */
+    public static void bubbleSort(char[] array) {
+        Call call = begin();
+        sortRange(array, 0, array.length, Type.BUBBLE);
+        end(call, Type.BUBBLE, array.length);
+    }
+
+    /**
+     * Bubble sorts array[from, to), leaving the rest of the array alone.
+     * @param array the array to sort
+     * @param from the first index to sort
+     * @param to the index after the last one to sort
+     */
+    public static void bubbleSort(char[] array, int from, int to) {
+        rangeCheck(array.length, from, to);
+        sortRange(array, from, to, Type.BUBBLE);
+    }
+
+    /**
+     * char version of selectionSort(int[]). O(n^2).
+     * @param array the array to sort
+     */
+    public static void selectionSort(char[] array) {
+        Call call = begin();
+        sortRange(array, 0, array.length, Type.SELECTION);
+        end(call, Type.SELECTION, array.length);
+    }
+
+    /**
+     * Selection sorts array[from, to), leaving the rest of the array alone.
+     * @param array the array to sort
+     * @param from the first index to sort
+     * @param to the index after the last one to sort
+     */
+    public static void selectionSort(char[] array, int from, int to) {
+        rangeCheck(array.length, from, to);
+        sortRange(array, from, to, Type.SELECTION);
+    }
+
+    /**
+     * char version of insertionSort(int[]). Stable, O(n^2).
+     * @param array the array to sort
+     */
+    public static void insertionSort(char[] array) {
+        Call call = begin();
+        sortRange(array, 0, array.length, Type.INSERTION);
+        end(call, Type.INSERTION, array.length);
+    }
+
+    /**
+     * Insertion sorts array[from, to), leaving the rest of the array alone.
+     * @param array the array to sort
+     * @param from the first index to sort
+     * @param to the index after the last one to sort
+     */
+    public static void insertionSort(char[] array, int from, int to) {
+        rangeCheck(array.length, from, to);
+        sortRange(array, from, to, Type.INSERTION);
+    }
+
+    /**
+     * char version of bufferedMergeSort(int[]). Stable, O(nlogn).
+     * @param array the array to sort
+     */
+    public static void mergeSort(char[] array) {
+        Call call = begin();
+        sortRange(array, 0, array.length, Type.MERGE);
+        end(call, Type.MERGE, array.length);
+    }
+
+    /**
+     * Merge sorts array[from, to), leaving the rest of the array alone.
+     * @param array the array to sort
+     * @param from the first index to sort
+     * @param to the index after the last one to sort
+     */
+    public static void mergeSort(char[] array, int from, int to) {
+        rangeCheck(array.length, from, to);
+        sortRange(array, from, to, Type.MERGE);
+    }
+
+    /**
+     * char version of quickSort(int[]), an introsort. O(nlogn).
+     * @param array the array to sort
+     */
+    public static void quickSort(char[] array) {
+        Call call = begin();
+        sortRange(array, 0, array.length, Type.QUICK);
+        end(call, Type.QUICK, array.length);
+    }
+
+    /**
+     * Quick sorts array[from, to), leaving the rest of the array alone.
+     * @param array the array to sort
+     * @param from the first index to sort
+     * @param to the index after the last one to sort
+     */
+    public static void quickSort(char[] array, int from, int to) {
+        rangeCheck(array.length, from, to);
+        sortRange(array, from, to, Type.QUICK);
+    }
+
+    /**
+     * char version of heapSort(int[]), on a 4-ary heap. O(nlogn).
+     * @param array the array to sort
+     */
+    public static void heapSort(char[] array) {
+        Call call = begin();
+        sortRange(array, 0, array.length, Type.HEAP);
+        end(call, Type.HEAP, array.length);
+    }
+
+    /**
+     * Heap sorts array[from, to), leaving the rest of the array alone.
+     * @param array the array to sort
+     * @param from the first index to sort
+     * @param to the index after the last one to sort
+     */
+    public static void heapSort(char[] array, int from, int to) {
+        rangeCheck(array.length, from, to);
+        sortRange(array, from, to, Type.HEAP);
+    }
+
+    /**
+     * Runs the given sort on array[from, to).
+     */
+    private static void sortRange(char[] array, int from, int to, Type type) {
+        switch (type) {
+            case BUBBLE: bubbleSortRange(array, from, to); break;
+            case SELECTION: selectionSortRange(array, from, to); break;
+            case INSERTION: insertionSortRange(array, from, to); break;
+            case MERGE: mergeSortRange(array, from, to); break;
+            case QUICK: quickSortHelper(array, from, to, depthLimit(to - from)); break;
+            default: heapSortRange(array, from, to); break;
+        }
+    }
+
+    /**
+     * Bubble sort of array[lo, hi). See bubbleSort(int[], int, int).
+     */
+    private static void bubbleSortRange(char[] array, int lo, int hi) {
+        boolean sorted;
+        do {
+            sorted = true;
+            for (int i = lo; i < hi - 1; i++) {
+                if (less(array[i + 1], array[i])) {
+                    swap(array, i, i + 1);
+                    sorted = false;
+                }
+            }
+        } while (!sorted);
+    }
+
+    /**
+     * Selection sort of array[lo, hi). See selectionSort(int[], int, int).
+     */
+    private static void selectionSortRange(char[] array, int lo, int hi) {
+        for (int i = lo; i < hi; i++) {
+            int minIndex = i;
+            for (int j = i + 1; j < hi; j++) {
+                if (less(array[j], array[minIndex]))
+                    minIndex = j;
+            }
+            swap(array, i, minIndex);
+        }
+    }
+
+    /**
+     * Insertion sort of array[lo, hi), shifting instead of swapping.
+     */
+    private static void insertionSortRange(char[] array, int lo, int hi) {
+        for (int i = lo + 1; i < hi; i++) {
+            char value = array[i];
+            int j = i - 1;
+            while (j >= lo && less(value, array[j])) {
+                array[j + 1] = array[j];
+                j--;
+            }
+            array[j + 1] = value;
+        }
+    }
+
+    /**
+     * Buffered merge sort of array[lo, hi). See mergeSort(int[], int[]).
+     */
+    private static void mergeSortRange(char[] array, int lo, int hi) {
+        char[] buffer = Arrays.copyOf(array, hi);
+        mergeHelper(buffer, array, lo, hi);
+    }
+
+    /**
+     * Sorts src[lo, hi) into dst[lo, hi), which must hold the same values. See
+     * mergeHelper(int[], int[], int, int).
+     */
+    private static void mergeHelper(char[] src, char[] dst, int lo, int hi) {
+        if (hi - lo <= INSERTION_THRESHOLD) {
+            insertionSortRange(dst, lo, hi);
+            return;
+        }
+        enter();
+        int mid = (lo + hi) >>> 1;
+        mergeHelper(dst, src, lo, mid);
+        mergeHelper(dst, src, mid, hi);
+        if (!less(src[mid], src[mid - 1])) {
+            System.arraycopy(src, lo, dst, lo, hi - lo);
+        } else {
+            int l = lo, r = mid, out = lo;
+            while (l < mid && r < hi) {
+                // take from the left on ties to keep the sort stable
+                if (!less(src[r], src[l]))
+                    dst[out++] = src[l++];
+                else
+                    dst[out++] = src[r++];
+            }
+            if (l < mid)
+                System.arraycopy(src, l, dst, out, mid - l);
+            else
+                System.arraycopy(src, r, dst, out, hi - r);
+        }
+        exit();
+    }
+
+    /**
+     * Introsort of array[low, high). See quickSortHelper(int[], int, int, int).
+     */
+    private static void quickSortHelper(char[] array, int low, int high, int depthLimit) {
+        enter();
+        while (high - low > INSERTION_THRESHOLD) {
+            if (depthLimit-- == 0) {
+                heapSortRange(array, low, high);
+                exit();
+                return;
+            }
+            char pivot = array[choosePivot(array, low, high)];
+            int lt = partition(array, low, high, pivot);
+            int gt = lt;
+            while (gt < high && array[gt] == pivot)
+                gt++;
+            if (lt - low < high - gt) {
+                quickSortHelper(array, low, lt, depthLimit);
+                low = gt;
+            } else {
+                quickSortHelper(array, gt, high, depthLimit);
+                high = lt;
+            }
+        }
+        insertionSortRange(array, low, high);
+        exit();
+    }
+
+    /**
+     * Three way partition of array[low, high). See partition(int[], int, int, int).
+     */
+    private static int partition(char[] array, int low, int high, char pivot) {
+        int lt = low, i = low, gt = high - 1;
+        while (i <= gt) {
+            char value = array[i];
+            if (less(value, pivot))
+                swap(array, lt++, i++);
+            else if (less(pivot, value))
+                swap(array, i, gt--);
+            else
+                i++;
+        }
+        return lt;
+    }
+
+    /**
+     * The median of three, or Tukey's ninther for large ranges. See
+     * choosePivot(int[], int, int).
+     */
+    private static int choosePivot(char[] array, int low, int high) {
+        int last = high - 1;
+        int mid = (low + last) >>> 1;
+        if (high - low < NINTHER_THRESHOLD)
+            return medianOf3(array, low, mid, last);
+        int step = (high - low) / 8;
+        return medianOf3(array,
+                medianOf3(array, low, low + step, low + 2 * step),
+                medianOf3(array, mid - step, mid, mid + step),
+                medianOf3(array, last - 2 * step, last - step, last));
+    }
+
+    /**
+     * @return the index holding the median of the values at a, b and c
+     */
+    private static int medianOf3(char[] array, int a, int b, int c) {
+        if (less(array[a], array[b])) {
+            if (less(array[b], array[c]))
+                return b;
+            return less(array[a], array[c]) ? c : a;
+        }
+        if (less(array[a], array[c]))
+            return a;
+        return less(array[b], array[c]) ? c : b;
+    }
+
+    /**
+     * Heap sort of array[low, high) as a 4-ary heap. See
+     * heapSortRange(int[], int, int, int).
+     */
+    private static void heapSortRange(char[] array, int low, int high) {
+        int n = high - low;
+        if (n < 2)
+            return;
+        for (int i = (n - 2) >>> 2; i >= 0; i--)
+            siftDown(array, low, n, i, array[low + i]);
+        for (int i = n - 1; i > 0; i--) {
+            char value = array[low + i];
+            array[low + i] = array[low];
+            siftDown(array, low, i, 0, value);
+        }
+    }
+
+    /**
+     * Bottom-up sift of value into the 4-ary max-heap at the hole. See
+     * siftDown(int[], int, int, int, int, int).
+     */
+    private static void siftDown(char[] array, int offset, int n, int hole, char value) {
+        int top = hole;
+        int child;
+        while ((child = (hole << 2) + 1) < n) {
+            int end = Math.min(child + 4, n);
+            int largest = child;
+            for (int c = child + 1; c < end; c++)
+                largest = less(array[offset + largest], array[offset + c]) ? c : largest;
+            array[offset + hole] = array[offset + largest];
+            hole = largest;
+        }
+        while (hole > top) {
+            int parent = (hole - 1) >>> 2;
+            if (!less(array[offset + parent], value))
+                break;
+            array[offset + hole] = array[offset + parent];
+            hole = parent;
+        }
+        array[offset + hole] = value;
+    }
+
+    private static void swap(char[] array, int index1, int index2) {
+        if (METRICS)
+            PROBES.get().swaps++;
+        char temp = array[index1];
+        array[index1] = array[index2];
+        array[index2] = temp;
+    }
+
+    // byte[]
+
+    /**
+     * byte version of bubbleSort(int[]). Stable, O(n^2).
+     * @param array the array to sort
+     */
+    public static void bubbleSort(byte[] array) {
+        Call call = begin();
+        sortRange(array, 0, array.length, Type.BUBBLE);
+        end(call, Type.BUBBLE, array.length);
+    }
+
+    /**
+     * Bubble sorts array[from, to), leaving the rest of the array alone.
+     * @param array the array to sort
+     * @param from the first index to sort
+     * @param to the index after the last one to sort
+     */
+    public static void bubbleSort(byte[] array, int from, int to) {
+        rangeCheck(array.length, from, to);
+        sortRange(array, from, to, Type.BUBBLE);
+    }
+
+    /**
+     * byte version of selectionSort(int[]). O(n^2).
+     * @param array the array to sort
+     */
+    public static void selectionSort(byte[] array) {
+        Call call = begin();
+        sortRange(array, 0, array.length, Type.SELECTION);
+        end(call, Type.SELECTION, array.length);
+    }
+
+    /**
+     * Selection sorts array[from, to), leaving the rest of the array alone.
+     * @param array the array to sort
+     * @param from the first index to sort
+     * @param to the index after the last one to sort
+     */
+    public static void selectionSort(byte[] array, int from, int to) {
+        rangeCheck(array.length, from, to);
+        sortRange(array, from, to, Type.SELECTION);
+    }
+
+    /**
+     * byte version of insertionSort(int[]). Stable, O(n^2).
+     * @param array the array to sort
+     */
+    public static void insertionSort(byte[] array) {
+        Call call = begin();
+        sortRange(array, 0, array.length, Type.INSERTION);
+        end(call, Type.INSERTION, array.length);
+    }
+
+    /**
+     * Insertion sorts array[from, to), leaving the rest of the array alone.
+     * @param array the array to sort
+     * @param from the first index to sort
+     * @param to the index after the last one to sort
+     */
+    public static void insertionSort(byte[] array, int from, int to) {
+        rangeCheck(array.length, from, to);
+        sortRange(array, from, to, Type.INSERTION);
+    }
+
+    /**
+     * byte version of bufferedMergeSort(int[]). Stable, O(nlogn).
+     * @param array the array to sort
+     */
+    public static void mergeSort(byte[] array) {
+        Call call = begin();
+        sortRange(array, 0, array.length, Type.MERGE);
+        end(call, Type.MERGE, array.length);
+    }
+
+    /**
+     * Merge sorts array[from, to), leaving the rest of the array alone.
+     * @param array the array to sort
+     * @param from the first index to sort
+     * @param to the index after the last one to sort
+     */
+    public static void mergeSort(byte[] array, int from, int to) {
+        rangeCheck(array.length, from, to);
+        sortRange(array, from, to, Type.MERGE);
+    }
+
+    /**
+     * byte version of quickSort(int[]), an introsort. O(nlogn).
+     * @param array the array to sort
+     */
+    public static void quickSort(byte[] array) {
+        Call call = begin();
+        sortRange(array, 0, array.length, Type.QUICK);
+        end(call, Type.QUICK, array.length);
+    }
+
+    /**
+     * Quick sorts array[from, to), leaving the rest of the array alone.
+     * @param array the array to sort
+     * @param from the first index to sort
+     * @param to the index after the last one to sort
+     */
+    public static void quickSort(byte[] array, int from, int to) {
+        rangeCheck(array.length, from, to);
+        sortRange(array, from, to, Type.QUICK);
+    }
+
+    /**
+     * byte version of heapSort(int[]), on a 4-ary heap. O(nlogn).
+     * @param array the array to sort
+     */
+    public static void heapSort(byte[] array) {
+        Call call = begin();
+        sortRange(array, 0, array.length, Type.HEAP);
+        end(call, Type.HEAP, array.length);
+    }
+
+    /**
+     * Heap sorts array[from, to), leaving the rest of the array alone.
+     * @param array the array to sort
+     * @param from the first index to sort
+     * @param to the index after the last one to sort
+     */
+    public static void heapSort(byte[] array, int from, int to) {
+        rangeCheck(array.length, from, to);
+        sortRange(array, from, to, Type.HEAP);
+    }
+
+    /**
+     * Runs the given sort on array[from, to).
+     */
+    private static void sortRange(byte[] array, int from, int to, Type type) {
+        switch (type) {
+            case BUBBLE: bubbleSortRange(array, from, to); break;
+            case SELECTION: selectionSortRange(array, from, to); break;
+            case INSERTION: insertionSortRange(array, from, to); break;
+            case MERGE: mergeSortRange(array, from, to); break;
+            case QUICK: quickSortHelper(array, from, to, depthLimit(to - from)); break;
+            default: heapSortRange(array, from, to); break;
+        }
+    }
+
+    /**
+     * Bubble sort of array[lo, hi). See bubbleSort(int[], int, int).
+     */
+    private static void bubbleSortRange(byte[] array, int lo, int hi) {
+        boolean sorted;
+        do {
+            sorted = true;
+            for (int i = lo; i < hi - 1; i++) {
+                if (less(array[i + 1], array[i])) {
+                    swap(array, i, i + 1);
+                    sorted = false;
+                }
+            }
+        } while (!sorted);
+    }
+
+    /**
+     * Selection sort of array[lo, hi). See selectionSort(int[], int, int).
+     */
+    private static void selectionSortRange(byte[] array, int lo, int hi) {
+        for (int i = lo; i < hi; i++) {
+            int minIndex = i;
+            for (int j = i + 1; j < hi; j++) {
+                if (less(array[j], array[minIndex]))
+                    minIndex = j;
+            }
+            swap(array, i, minIndex);
+        }
+    }
+
+    /**
+     * Insertion sort of array[lo, hi), shifting instead of swapping.
+     */
+    private static void insertionSortRange(byte[] array, int lo, int hi) {
+        for (int i = lo + 1; i < hi; i++) {
+            byte value = array[i];
+            int j = i - 1;
+            while (j >= lo && less(value, array[j])) {
+                array[j + 1] = array[j];
+                j--;
+            }
+            array[j + 1] = value;
+        }
+    }
+
+    /**
+     * Buffered merge sort of array[lo, hi). See mergeSort(int[], int[]).
+     */
+    private static void mergeSortRange(byte[] array, int lo, int hi) {
+        byte[] buffer = Arrays.copyOf(array, hi);
+        mergeHelper(buffer, array, lo, hi);
+    }
+
+    /**
+     * Sorts src[lo, hi) into dst[lo, hi), which must hold the same values. See
+     * mergeHelper(int[], int[], int, int).
+     */
+    private static void mergeHelper(byte[] src, byte[] dst, int lo, int hi) {
+        if (hi - lo <= INSERTION_THRESHOLD) {
+            insertionSortRange(dst, lo, hi);
+            return;
+        }
+        enter();
+        int mid = (lo + hi) >>> 1;
+        mergeHelper(dst, src, lo, mid);
+        mergeHelper(dst, src, mid, hi);
+        if (!less(src[mid], src[mid - 1])) {
+            System.arraycopy(src, lo, dst, lo, hi - lo);
+        } else {
+            int l = lo, r = mid, out = lo;
+            while (l < mid && r < hi) {
+                // take from the left on ties to keep the sort stable
+                if (!less(src[r], src[l]))
+                    dst[out++] = src[l++];
+                else
+                    dst[out++] = src[r++];
+            }
+            if (l < mid)
+                System.arraycopy(src, l, dst, out, mid - l);
+            else
+                System.arraycopy(src, r, dst, out, hi - r);
+        }
+        exit();
+    }
+
+    /**
+     * Introsort of array[low, high). See quickSortHelper(int[], int, int, int).
+     */
+    private static void quickSortHelper(byte[] array, int low, int high, int depthLimit) {
+        enter();
+        while (high - low > INSERTION_THRESHOLD) {
+            if (depthLimit-- == 0) {
+                heapSortRange(array, low, high);
+                exit();
+                return;
+            }
+            byte pivot = array[choosePivot(array, low, high)];
+            int lt = partition(array, low, high, pivot);
+            int gt = lt;
+            while (gt < high && array[gt] == pivot)
+                gt++;
+            if (lt - low < high - gt) {
+                quickSortHelper(array, low, lt, depthLimit);
+                low = gt;
+            } else {
+                quickSortHelper(array, gt, high, depthLimit);
+                high = lt;
+            }
+        }
+        insertionSortRange(array, low, high);
+        exit();
+    }
+
+    /**
+     * Three way partition of array[low, high). See partition(int[], int, int, int).
+     */
+    private static int partition(byte[] array, int low, int high, byte pivot) {
+        int lt = low, i = low, gt = high - 1;
+        while (i <= gt) {
+            byte value = array[i];
+            if (less(value, pivot))
+                swap(array, lt++, i++);
+            else if (less(pivot, value))
+                swap(array, i, gt--);
+            else
+                i++;
+        }
+        return lt;
+    }
+
+    /**
+     * The median of three, or Tukey's ninther for large ranges. See
+     * choosePivot(int[], int, int).
+     */
+    private static int choosePivot(byte[] array, int low, int high) {
+        int last = high - 1;
+        int mid = (low + last) >>> 1;
+        if (high - low < NINTHER_THRESHOLD)
+            return medianOf3(array, low, mid, last);
+        int step = (high - low) / 8;
+        return medianOf3(array,
+                medianOf3(array, low, low + step, low + 2 * step),
+                medianOf3(array, mid - step, mid, mid + step),
+                medianOf3(array, last - 2 * step, last - step, last));
+    }
+
+    /**
+     * @return the index holding the median of the values at a, b and c
+     */
+    private static int medianOf3(byte[] array, int a, int b, int c) {
+        if (less(array[a], array[b])) {
+            if (less(array[b], array[c]))
+                return b;
+            return less(array[a], array[c]) ? c : a;
+        }
+        if (less(array[a], array[c]))
+            return a;
+        return less(array[b], array[c]) ? c : b;
+    }
+
+    /**
+     * Heap sort of array[low, high) as a 4-ary heap. See
+     * heapSortRange(int[], int, int, int).
+     */
+    private static void heapSortRange(byte[] array, int low, int high) {
+        int n = high - low;
+        if (n < 2)
+            return;
+        for (int i = (n - 2) >>> 2; i >= 0; i--)
+            siftDown(array, low, n, i, array[low + i]);
+        for (int i = n - 1; i > 0; i--) {
+            byte value = array[low + i];
+            array[low + i] = array[low];
+            siftDown(array, low, i, 0, value);
+        }
+    }
+
+    /**
+     * Bottom-up sift of value into the 4-ary max-heap at the hole. See
+     * siftDown(int[], int, int, int, int, int).
+     */
+    private static void siftDown(byte[] array, int offset, int n, int hole, byte value) {
+        int top = hole;
+        int child;
+        while ((child = (hole << 2) + 1) < n) {
+            int end = Math.min(child + 4, n);
+            int largest = child;
+            for (int c = child + 1; c < end; c++)
+                largest = less(array[offset + largest], array[offset + c]) ? c : largest;
+            array[offset + hole] = array[offset + largest];
+            hole = largest;
+        }
+        while (hole > top) {
+            int parent = (hole - 1) >>> 2;
+            if (!less(array[offset + parent], value))
+                break;
+            array[offset + hole] = array[offset + parent];
+            hole = parent;
+        }
+        array[offset + hole] = value;
+    }
+
+    private static void swap(byte[] array, int index1, int index2) {
+        if (METRICS)
+            PROBES.get().swaps++;
+        byte temp = array[index1];
         array[index1] = array[index2];
         array[index2] = temp;
     }
 
+    // END generated by gen/GeneratePrimitiveSorts.java
+
+    /**
+     * long version of lsdRadixSort(int[]) with 8 bit digits, so up to eight
+     * passes. Stable. O(n).
+     * @param array the array to sort
+     */
+    public static void lsdRadixSort(long[] array) {
+        Call call = begin();
+        if (array.length > 1)
+            lsdRadixPasses(array);
+        end(call, Type.LSD_RADIX, array.length);
+    }
+
+    private static void lsdRadixPasses(long[] array) {
+        int n = array.length;
+        int[][] counts = new int[Long.BYTES][RADIX];
+        for (int k = 0; k < n; k++) {
+            long key = array[k] ^ Long.MIN_VALUE;
+            for (int p = 0; p < Long.BYTES; p++)
+                counts[p][(int) (key >>> (p * 8)) & 0xFF]++;
+        }
+
+        long[] src = array;
+        long[] dst = new long[n];
+        for (int p = 0; p < Long.BYTES; p++) {
+            int[] count = counts[p];
+            int shift = p * 8;
+            if (count[(int) ((src[0] ^ Long.MIN_VALUE) >>> shift) & 0xFF] == n)
+                continue;
+            countsToEndpoints(count);
+            for (int k = n - 1; k >= 0; k--)
+                dst[--count[(int) ((src[k] ^ Long.MIN_VALUE) >>> shift) & 0xFF]] = src[k];
+            long[] temp = src;
+            src = dst;
+            dst = temp;
+        }
+        if (src != array)
+            System.arraycopy(src, 0, array, 0, n);
+    }
+
+    /**
+     * double version of lsdRadixSort(int[]). The IEEE-754 bits of a double order
+     * like unsigned integers once the sign bit is flipped for positive values and
+     * every bit is flipped for negative ones, so the radix passes run on that key.
+     * Orders values like Arrays.sort(double[]): -0.0 before 0.0 and NaN last.
+     * Stable. O(n).
+     * @param array the array to sort
+     */
+    public static void lsdRadixSort(double[] array) {
+        int n = array.length;
+        if (n < 2)
+            return;
+        int[][] counts = new int[Long.BYTES][RADIX];
+        for (int k = 0; k < n; k++) {
+            long key = sortableBits(array[k]);
+            for (int p = 0; p < Long.BYTES; p++)
+                counts[p][(int) (key >>> (p * 8)) & 0xFF]++;
+        }
+
+        double[] src = array;
+        double[] dst = new double[n];
+        for (int p = 0; p < Long.BYTES; p++) {
+            int[] count = counts[p];
+            int shift = p * 8;
+            if (count[(int) (sortableBits(src[0]) >>> shift) & 0xFF] == n)
+                continue;
+            countsToEndpoints(count);
+            for (int k = n - 1; k >= 0; k--)
+                dst[--count[(int) (sortableBits(src[k]) >>> shift) & 0xFF]] = src[k];
+            double[] temp = src;
+            src = dst;
+            dst = temp;
+        }
+        if (src != array)
+            System.arraycopy(src, 0, array, 0, n);
+    }
+
+    /**
+     * float version of lsdRadixSort(double[]). Four passes. Stable. O(n).
+     * @param array the array to sort
+     */
+    public static void lsdRadixSort(float[] array) {
+        int n = array.length;
+        if (n < 2)
+            return;
+        int[][] counts = new int[Integer.BYTES][RADIX];
+        for (int k = 0; k < n; k++) {
+            int key = sortableBits(array[k]);
+            for (int p = 0; p < Integer.BYTES; p++)
+                counts[p][(key >>> (p * 8)) & 0xFF]++;
+        }
+
+        float[] src = array;
+        float[] dst = new float[n];
+        for (int p = 0; p < Integer.BYTES; p++) {
+            int[] count = counts[p];
+            int shift = p * 8;
+            if (count[(sortableBits(src[0]) >>> shift) & 0xFF] == n)
+                continue;
+            countsToEndpoints(count);
+            for (int k = n - 1; k >= 0; k--)
+                dst[--count[(sortableBits(src[k]) >>> shift) & 0xFF]] = src[k];
+            float[] temp = src;
+            src = dst;
+            dst = temp;
+        }
+        if (src != array)
+            System.arraycopy(src, 0, array, 0, n);
+    }
+
+    /**
+     * @return the bits of value flipped so they order like unsigned integers, with
+     * every NaN collapsed to the one that sorts last
+     */
+    private static long sortableBits(double value) {
+        long bits = Double.doubleToLongBits(value);
+        return bits ^ ((bits >> 63) | Long.MIN_VALUE);
+    }
+
     /**
-     * Prints the contents of the array if printing is enabled. Used for debugging.
-     * @param array the array to print
+     * @return the bits of value flipped so they order like unsigned integers, with
+     * every NaN collapsed to the one that sorts last
      */
-    private static void print(int[] array, Type sort) {
-        print(array, sort + " Sorted Array: ");
+    private static int sortableBits(float value) {
+        int bits = Float.floatToIntBits(value);
+        return bits ^ ((bits >> 31) | Integer.MIN_VALUE);
     }
 
     /**
-     * Prints the contents of the array if printing is enabled with a label.
-     * Used for debugging.
-     * @param array the array to print
-     * @param label the label to print
+     * Count sort over every possible byte value, so no min or max is needed. The
+     * counts are written straight back as runs of each value. O(n).
+     * @param array the array to sort
      */
-    private static void print(int[] array, String label) {
-        if (PRINT)
-            System.out.println(label + Arrays.toString(array));
+    public static void countSort(byte[] array) {
+        int[] count = new int[1 << Byte.SIZE];
+        for (int i = 0; i < array.length; i++)
+            count[array[i] - Byte.MIN_VALUE]++;
+        int index = 0;
+        for (int v = 0; v < count.length; v++) {
+            Arrays.fill(array, index, index + count[v], (byte) (v + Byte.MIN_VALUE));
+            index += count[v];
+        }
     }
 
     /**
-     * Sets if the sorted arrays should be printed upon completion of the respective
-     * sorting algorithm.
-     * @param print true or false if printing should occur
+     * Count sort over every possible short value, so no min or max is needed.
+     * Allocates 65536 counters, so small arrays are insertion sorted instead. O(n).
+     * @param array the array to sort
      */
-    public static void setPrint(boolean print) {
-        PRINT = print;
+    public static void countSort(short[] array) {
+        if (array.length <= INSERTION_THRESHOLD) {
+            insertionSortRange(array, 0, array.length);
+            return;
+        }
+        int[] count = new int[1 << Short.SIZE];
+        for (int i = 0; i < array.length; i++)
+            count[array[i] - Short.MIN_VALUE]++;
+        int index = 0;
+        for (int v = 0; v < count.length; v++) {
+            Arrays.fill(array, index, index + count[v], (short) (v + Short.MIN_VALUE));
+            index += count[v];
+        }
     }
 
-    // public static char[] radixSort(char[] array) {}
+    /**
+     * Count sort over every possible char value, so no min or max is needed.
+     * Allocates 65536 counters, so small arrays are insertion sorted instead. O(n).
+     * @param array the array to sort
+     */
+    public static void countSort(char[] array) {
+        if (array.length <= INSERTION_THRESHOLD) {
+            insertionSortRange(array, 0, array.length);
+            return;
+        }
+        int[] count = new int[1 << Character.SIZE];
+        for (int i = 0; i < array.length; i++)
+            count[array[i]]++;
+        int index = 0;
+        for (int v = 0; v < count.length; v++) {
+            Arrays.fill(array, index, index + count[v], (char) v);
+            index += count[v];
+        }
+    }
 
 }
@@ -0,0 +1,358 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Sorts ints that arrive a chunk at a time. Each chunk is sorted with
+ * Sorts.sort(int[]) as soon as it arrives, so the sorting work is spread over the
+ * input instead of all happening at the end. Single values (from an IntStream or
+ * as an IntConsumer) are gathered into chunks of a fixed size first.
+ *
+ * Sorted chunks are kept in memory until they add up to more than the memory
+ * budget. Then they are merged into one run file in the temp directory, in the
+ * same format as ExternalSort's runs, and dropped. So the heap only ever holds
+ * about the budget, however much is accepted.
+ *
+ * The runs are only merged while the output is read: iterator() and sorted()
+ * return a MergeIterator over every run, so the first value is ready after O(k)
+ * work for k runs and each later one costs O(logk).
+ * Run files are read through one buffer each, sized so the buffers fit in the
+ * budget, and chunks and files are let go of as soon as they have been read
+ * through. If more than 64 run files were spilled, groups of them are merged into
+ * longer run files first, so at most 64 files are open at once. Close the sorter to delete the run files early if the output is not
+ * read to the end. Not thread safe.
+ */
+public class StreamingSorter implements IntConsumer, Closeable {
+
+    private static final int DEFAULT_CHUNK_SIZE = 1 << 16;
+    // the most run files read at once, as in ExternalSort
+    private static final int MAX_MERGE_RUNS = 64;
+    // run files only ever go back into this sorter, so the native order is fastest
+    private static final ByteOrder RUN_ORDER = ByteOrder.nativeOrder();
+
+    private final int chunkSize;
+    private final long memoryBudget;
+    private final Path tempDir;
+    private final List<int[]> runs = new ArrayList<>();
+    private final List<Path> spills = new ArrayList<>();
+    private final List<SpillIterator> readers = new ArrayList<>();
+    private long residentBytes = 0;
+    private int[] pending;
+    private int pendingSize = 0;
+    private long size = 0;
+    private boolean finished = false;
+
+    /**
+     * Creates a sorter that gathers single values into chunks of 65536, keeps up
+     * to a quarter of the maximum heap size in memory and spills to the system
+     * temp directory.
+     */
+    public StreamingSorter() {
+        this(DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * Creates a sorter that keeps up to a quarter of the maximum heap size in
+     * memory and spills to the system temp directory.
+     * @param chunkSize the number of single values gathered before they are sorted
+     * as a chunk, must be positive
+     */
+    public StreamingSorter(int chunkSize) {
+        this(chunkSize, Runtime.getRuntime().maxMemory() / 4, Paths.get(System.getProperty("java.io.tmpdir")));
+    }
+
+    /**
+     * @param chunkSize the number of single values gathered before they are sorted
+     * as a chunk, must be positive
+     * @param memoryBudget the bytes of sorted chunks kept in memory before they are
+     * spilled to a run file, must be positive
+     * @param tempDir the directory to spill the run files to
+     */
+    public StreamingSorter(int chunkSize, long memoryBudget, Path tempDir) {
+        if (chunkSize < 1)
+            throw new IllegalArgumentException("chunkSize must be positive: " + chunkSize);
+        if (memoryBudget < 1)
+            throw new IllegalArgumentException("memoryBudget must be positive: " + memoryBudget);
+        this.chunkSize = chunkSize;
+        this.memoryBudget = memoryBudget;
+        this.tempDir = tempDir;
+    }
+
+    /**
+     * Adds a single value, sorting the values gathered so far once there is a
+     * full chunk of them.
+     * @param value the value to add
+     * @throws UncheckedIOException if spilling to a run file fails
+     */
+    @Override
+    public void accept(int value) {
+        checkNotFinished();
+        if (pending == null)
+            pending = new int[chunkSize];
+        pending[pendingSize++] = value;
+        size++;
+        if (pendingSize == chunkSize)
+            flush();
+    }
+
+    /**
+     * Copies and sorts a whole chunk. The caller can reuse the array afterwards.
+     * @param chunk the values to add
+     * @throws UncheckedIOException if spilling to a run file fails
+     */
+    public void accept(int[] chunk) {
+        checkNotFinished();
+        addRun(chunk.clone());
+    }
+
+    /**
+     * Copies and sorts the remaining values of the buffer, which is left at its
+     * limit.
+     * @param chunk the values to add
+     * @throws UncheckedIOException if spilling to a run file fails
+     */
+    public void accept(IntBuffer chunk) {
+        checkNotFinished();
+        int[] run = new int[chunk.remaining()];
+        chunk.get(run);
+        addRun(run);
+    }
+
+    /**
+     * Adds every value of the stream, gathering them into chunks.
+     * @param stream the values to add
+     * @throws UncheckedIOException if spilling to a run file fails
+     */
+    public void acceptAll(IntStream stream) {
+        checkNotFinished();
+        stream.forEachOrdered(this);
+    }
+
+    /**
+     * @return the number of values accepted so far
+     */
+    public long size() {
+        return size;
+    }
+
+    /**
+     * @return the number of run files spilled so far
+     */
+    public int spilledRuns() {
+        return spills.size();
+    }
+
+    /**
+     * Finishes the input and iterates every accepted value in sorted order,
+     * merging the runs as it goes. No more values can be accepted after this.
+     * Reading a run file that fails throws UncheckedIOException.
+     * @return the iterator
+     */
+    public PrimitiveIterator.OfInt iterator() {
+        finish();
+        List<PrimitiveIterator.OfInt> sources = new ArrayList<>(runs.size() + spills.size());
+        // the iterator holds the only references, so read runs can be collected
+        for (int[] run : runs)
+            sources.add(Arrays.stream(run).iterator());
+        runs.clear();
+        residentBytes = 0;
+        try {
+            mergeSpills();
+            int bufferBytes = ExternalSort.bufferBytes(memoryBudget, spills.size());
+            for (Path spill : spills) {
+                SpillIterator reader = new SpillIterator(spill, bufferBytes);
+                readers.add(reader);
+                sources.add(reader);
+            }
+        } catch (IOException e) {
+            close();
+            throw new UncheckedIOException(e);
+        }
+        return new MergeIterator(sources);
+    }
+
+    /**
+     * Finishes the input and streams every accepted value in sorted order, merging
+     * the runs lazily as the stream is consumed. No more values can be accepted
+     * after this. Closing the stream closes the sorter.
+     * @return the sorted stream
+     */
+    public IntStream sorted() {
+        PrimitiveIterator.OfInt iterator = iterator();
+        Spliterator.OfInt spliterator = Spliterators.spliterator(iterator, size,
+                Spliterator.ORDERED | Spliterator.SORTED | Spliterator.NONNULL);
+        return StreamSupport.intStream(spliterator, false).onClose(this::close);
+    }
+
+    /**
+     * Deletes any run files that have not been read through yet. The sorter can
+     * not be used after this.
+     */
+    @Override
+    public void close() {
+        finished = true;
+        runs.clear();
+        pending = null;
+        for (SpillIterator reader : readers)
+            reader.close();
+        for (Path spill : spills) {
+            try {
+                Files.deleteIfExists(spill);
+            } catch (IOException e) {
+                // the file is in the temp directory, leave it for the OS
+            }
+        }
+    }
+
+    /**
+     * Sorts the gathered single values as a final, shorter chunk.
+     */
+    private void finish() {
+        if (finished)
+            throw new IllegalStateException("the sorted output has already been taken");
+        if (pendingSize > 0)
+            flush();
+        pending = null;
+        finished = true;
+    }
+
+    private void flush() {
+        int[] run = pendingSize == chunkSize ? pending : Arrays.copyOf(pending, pendingSize);
+        pending = null;
+        pendingSize = 0;
+        Sorts.sort(run);
+        keep(run);
+    }
+
+    private void addRun(int[] run) {
+        if (run.length == 0)
+            return;
+        Sorts.sort(run);
+        size += run.length;
+        keep(run);
+    }
+
+    /**
+     * Keeps a sorted run in memory, spilling every run held once they take more
+     * than the budget.
+     */
+    private void keep(int[] run) {
+        runs.add(run);
+        residentBytes += (long) run.length * Integer.BYTES;
+        if (residentBytes > memoryBudget)
+            spill();
+    }
+
+    /**
+     * Merges every run held in memory into one new run file and drops them.
+     */
+    private void spill() {
+        List<PrimitiveIterator.OfInt> sources = new ArrayList<>(runs.size());
+        for (int[] run : runs)
+            sources.add(Arrays.stream(run).iterator());
+        MergeIterator merge = new MergeIterator(sources);
+        try {
+            Path spill = Files.createTempFile(tempDir, "sort-run-", ".bin");
+            spills.add(spill);
+            ExternalSort.writeRun(merge, spill, ExternalSort.bufferBytes(memoryBudget, 1), RUN_ORDER);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        runs.clear();
+        residentBytes = 0;
+    }
+
+    /**
+     * Merges the oldest MAX_MERGE_RUNS run files into a new one at the end of the
+     * list until no more than MAX_MERGE_RUNS are left. Every file stays in spills
+     * until it is deleted, so close() can clean up after a failure.
+     */
+    private void mergeSpills() throws IOException {
+        int bufferBytes = ExternalSort.bufferBytes(memoryBudget, MAX_MERGE_RUNS);
+        while (spills.size() > MAX_MERGE_RUNS) {
+            List<Path> group = new ArrayList<>(spills.subList(0, MAX_MERGE_RUNS));
+            Path merged = Files.createTempFile(tempDir, "sort-run-", ".bin");
+            spills.add(merged);
+            List<SpillIterator> sources = new ArrayList<>(group.size());
+            try {
+                for (Path spill : group)
+                    sources.add(new SpillIterator(spill, bufferBytes));
+                ExternalSort.writeRun(new MergeIterator(sources), merged, bufferBytes, RUN_ORDER);
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            } finally {
+                for (SpillIterator source : sources)
+                    source.close();
+            }
+            // the group was read through, so its files are already deleted
+            spills.subList(0, MAX_MERGE_RUNS).clear();
+        }
+    }
+
+    private void checkNotFinished() {
+        if (finished)
+            throw new IllegalStateException("no values can be accepted after the sorted output is taken");
+    }
+
+    /**
+     * Reads a spilled run file and deletes it once it has been read through.
+     */
+    private static class SpillIterator implements PrimitiveIterator.OfInt, Closeable {
+        private final Path file;
+        private ExternalSort.RunReader reader;
+
+        SpillIterator(Path file, int bufferBytes) throws IOException {
+            this.file = file;
+            reader = new ExternalSort.RunReader(file, bufferBytes, RUN_ORDER);
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (reader == null)
+                return false;
+            if (reader.hasNext())
+                return true;
+            close();
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return false;
+        }
+
+        @Override
+        public int nextInt() {
+            if (!hasNext())
+                throw new NoSuchElementException();
+            return reader.nextInt();
+        }
+
+        @Override
+        public void close() {
+            if (reader == null)
+                return;
+            try {
+                reader.close();
+            } catch (IOException e) {
+                // only read from, nothing is lost
+            }
+            reader = null;
+        }
+    }
+}
@@ -1,29 +1,74 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PrimitiveIterator;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
 
 public class TestBench {
 
     public static void main(String[] args) {
         final boolean debug = false;
         System.out.println(testAll(debug) ? "Passed All Tests!" : "Did Not Pass All Tests!");
-        // Sorts.setPrint(true);
+        // run with -Dsorts.metrics=true to record metrics
+        // Sorts.setMetrics((algorithm, length, comparisons, swaps, bytes, depth, nanos) ->
+        //         System.out.println(algorithm + " " + length + " values: " + comparisons + " comparisons"));
         // Sorts.radixSort(
         // new int[] {6666, 1537, 9570, 5765, 3012, 4847, 3375, 8603, 7025, 3125, 4926, 1092}, 4);
     }
 
     public static boolean testAll(boolean debug) {
-        Sorts.setPrint(debug);
+        SortMetricsCollector metrics = new SortMetricsCollector();
+        if (debug)
+            Sorts.setMetrics(metrics);
+        boolean passed = false;
         if (testCountSort())
-            if (testDigitAlg(3240, 4))
-                if (testRadixSort())
-                    if (testBubbleSort())
-                        if (testMergeSort())
-                            if (testQuickSort())
-                                if (testInsert())
-                                    if (testSelectionSort())
-                                        if (testInsertionSort())
-                                            if (testHeapSort())
-                                                return true;
-        return false;
+            if (testSparseCountSort())
+                if (testDigitAlg(3240, 4))
+                    if (testRadixSort())
+                        if (testLsdRadixSort())
+                            if (testParallelRadixSort())
+                                if (testBubbleSort())
+                                    if (testMergeSort())
+                                        if (testBufferedMergeSort())
+                                            if (testTimSort())
+                                                if (testParallelMergeSort())
+                                                    if (testQuickSort())
+                                                        if (testParallelSampleSort())
+                                                            if (testInsert())
+                                                                if (testSortedIntBuffer())
+                                                                    if (testExternalSort())
+                                                                        if (testOffHeapSorts())
+                                                                            if (testSelectionSort())
+                                                                                if (testInsertionSort())
+                                                                                    if (testHeapSort())
+                                                                                        if (testPrimitiveSorts())
+                                                                                            if (testKeyValueSorts())
+                                                                                                if (testObjectSorts())
+                                                                                                    if (testRangeSorts())
+                                                                                                        if (testSelect())
+                                                                                                            if (testSort())
+                                                                                                                if (testSortMetrics())
+                                                                                                                    if (testStreamingSorter())
+                                                                                                                        if (testBranchless())
+                                                                                                                            if (testBatchSorter())
+                                                                                                                                if (testSortedRunFile())
+                                                                                                                                    passed = true;
+        if (debug) {
+            Sorts.setMetrics(null);
+            System.out.print(metrics.export());
+        }
+        return passed;
     }
 
     private static boolean testHeapSort() {
@@ -34,6 +79,19 @@ public class TestBench {
             printError(expected, unsorted);
             return false;
         }
+        int[] large = new int[5000];
+        for (int i = 0; i < large.length; i++)
+            large[i] = (i * 7919) % 1013 - 500;
+        int[] sorted = Arrays.copyOf(large, large.length);
+        Arrays.sort(sorted);
+        for (int arity : new int[] {2, 4, 8}) {
+            int[] array = Arrays.copyOf(large, large.length);
+            Sorts.heapSort(array, arity);
+            if (!Arrays.equals(array, sorted)) {
+                System.out.println("Heap sort with arity " + arity + " did not match Arrays.sort");
+                return false;
+            }
+        }
         return true;
     }
 
@@ -77,6 +135,138 @@ public class TestBench {
             printError(exp, s);
             return false;
         }
+
+        int[] withRoom = {1, 4, 59, 90, 103, 0, 0, 0, 0, 0};
+        int size = Sorts.insert(withRoom, 5, values);
+        if (size != exp.length || !Arrays.equals(withRoom, exp)) {
+            printError(exp, withRoom);
+            return false;
+        }
+        return true;
+    }
+
+    private static boolean testSortedIntBuffer() {
+        SortedIntBuffer buffer = new SortedIntBuffer(2);
+        int[] values = {59, 3, 90, 4, 59, 1, 103};
+        for (int value : values)
+            buffer.add(value);
+        buffer.addAll(new int[] {2, 39});
+        int[] expected = {1, 2, 3, 4, 39, 59, 59, 90, 103};
+        if (!Arrays.equals(buffer.toArray(), expected)) {
+            printError(expected, buffer.toArray());
+            return false;
+        }
+        buffer.add(53);
+        if (buffer.get(6) != 59 || buffer.rank(59) != 6 || buffer.binarySearch(53) != 5
+                || buffer.binarySearch(5) != -5) {
+            System.out.println("SortedIntBuffer lookups did not see the added value");
+            return false;
+        }
+        if (!buffer.remove(59) || buffer.remove(60) || buffer.size() != 9) {
+            System.out.println("SortedIntBuffer remove failed");
+            return false;
+        }
+        int[] afterRemove = {1, 2, 3, 4, 39, 53, 59, 90, 103};
+        int[] iterated = new int[buffer.size()];
+        PrimitiveIterator.OfInt it = buffer.iterator();
+        for (int i = 0; it.hasNext(); i++)
+            iterated[i] = it.nextInt();
+        if (!Arrays.equals(iterated, afterRemove)) {
+            printError(afterRemove, iterated);
+            return false;
+        }
+
+        // a tail large enough to be radix sorted before it is merged in
+        int[] large = new int[10000];
+        for (int i = 0; i < large.length; i++) {
+            large[i] = i * 0x9E3779B9;
+            buffer.add(large[i]);
+        }
+        int[] merged = Arrays.copyOf(afterRemove, afterRemove.length + large.length);
+        System.arraycopy(large, 0, merged, afterRemove.length, large.length);
+        Arrays.sort(merged);
+        if (!Arrays.equals(buffer.toArray(), merged)) {
+            System.out.println("SortedIntBuffer did not merge a large tail in order");
+            return false;
+        }
+        return true;
+    }
+
+    private static boolean testExternalSort() {
+        int[] unsorted = new int[10000];
+        for (int i = 0; i < unsorted.length; i++)
+            unsorted[i] = i * 0x9E3779B9;
+        int[] expected = Arrays.copyOf(unsorted, unsorted.length);
+        Arrays.sort(expected);
+        try {
+            Path dir = Files.createTempDirectory("external-sort");
+            Path input = dir.resolve("input.bin");
+            Path output = dir.resolve("output.bin");
+            ByteBuffer bytes = ByteBuffer.allocate(unsorted.length * Integer.BYTES);
+            bytes.asIntBuffer().put(unsorted);
+            Files.write(input, bytes.array());
+            // a 4KB budget makes 20 runs of 512 ints, merged 4 at a time
+            new ExternalSort(4096, 4, 2, dir, ByteOrder.BIG_ENDIAN).sort(input, output);
+            int[] sorted = new int[unsorted.length];
+            ByteBuffer.wrap(Files.readAllBytes(output)).asIntBuffer().get(sorted);
+            Files.delete(input);
+            Files.delete(output);
+            Files.delete(dir);
+            if (!Arrays.equals(sorted, expected)) {
+                System.out.println("External sort did not match Arrays.sort");
+                return false;
+            }
+        } catch (IOException e) {
+            System.out.println("External sort failed: " + e);
+            return false;
+        }
+        return true;
+    }
+
+    private static boolean testOffHeapSorts() {
+        int[] unsorted = new int[1000];
+        long[] longs = new long[unsorted.length];
+        for (int i = 0; i < unsorted.length; i++) {
+            unsorted[i] = i * 0x9E3779B9;
+            longs[i] = (long) unsorted[i] * 0x9E3779B97F4A7C15L;
+        }
+        int[] expected = Arrays.copyOf(unsorted, unsorted.length);
+        long[] expectedLongs = Arrays.copyOf(longs, longs.length);
+        Arrays.sort(expected);
+        Arrays.sort(expectedLongs);
+        for (int sort = 0; sort < 4; sort++) {
+            // leave a value before the position to check only the remaining values are sorted
+            ByteBuffer bytes = ByteBuffer.allocateDirect((unsorted.length + 1) * Long.BYTES);
+            IntBuffer ints = bytes.asIntBuffer();
+            ints.put(Integer.MAX_VALUE).put(unsorted).flip().position(1);
+            // the int and long views share memory, so sort and check them one at a time
+            switch (sort) {
+                case 0: OffHeapSorts.radixSort(ints); break;
+                case 1: OffHeapSorts.quickSort(ints); break;
+                case 2: OffHeapSorts.mergeSort(ints); break;
+                default: OffHeapSorts.heapSort(ints); break;
+            }
+            int[] sorted = new int[unsorted.length];
+            ints.get(sorted);
+            if (ints.get(0) != Integer.MAX_VALUE || !Arrays.equals(sorted, expected)) {
+                System.out.println("Off heap sort " + sort + " did not match Arrays.sort for ints");
+                return false;
+            }
+            LongBuffer longBuffer = bytes.asLongBuffer();
+            longBuffer.put(Long.MAX_VALUE).put(longs).flip().position(1);
+            switch (sort) {
+                case 0: OffHeapSorts.radixSort(longBuffer); break;
+                case 1: OffHeapSorts.quickSort(longBuffer); break;
+                case 2: OffHeapSorts.mergeSort(longBuffer); break;
+                default: OffHeapSorts.heapSort(longBuffer); break;
+            }
+            long[] sortedLongs = new long[longs.length];
+            longBuffer.get(sortedLongs);
+            if (longBuffer.get(0) != Long.MAX_VALUE || !Arrays.equals(sortedLongs, expectedLongs)) {
+                System.out.println("Off heap sort " + sort + " did not match Arrays.sort for longs");
+                return false;
+            }
+        }
         return true;
     }
 
@@ -88,6 +278,101 @@ public class TestBench {
             printError(expected, unsorted);
             return false;
         }
+
+        // sorted, reversed and duplicate heavy input used to go quadratic
+        int[] sorted = new int[100000];
+        for (int i = 0; i < sorted.length; i++)
+            sorted[i] = i;
+        int[] reversed = new int[sorted.length];
+        for (int i = 0; i < reversed.length; i++)
+            reversed[i] = sorted.length - 1 - i;
+        int[] duplicates = new int[sorted.length];
+        for (int i = 0; i < duplicates.length; i++)
+            duplicates[i] = (i * 31) % 3;
+        int[] sortedDuplicates = Arrays.copyOf(duplicates, duplicates.length);
+        Arrays.sort(sortedDuplicates);
+        Sorts.quickSort(reversed);
+        Sorts.quickSort(duplicates);
+        if (!Arrays.equals(reversed, sorted) || !Arrays.equals(duplicates, sortedDuplicates)) {
+            System.out.println("Quick sort failed on reversed or duplicate input");
+            return false;
+        }
+        return true;
+    }
+
+    private static boolean testLsdRadixSort() {
+        int[] unsorted = {201, -113, 957, Integer.MAX_VALUE, 0, 567, Integer.MIN_VALUE, -379, 887, 447, 201};
+        int[] expected = {Integer.MIN_VALUE, -379, -113, 0, 201, 201, 447, 567, 887, 957, Integer.MAX_VALUE};
+        for (int bits : new int[] {8, 11, 16}) {
+            int[] copy = Arrays.copyOf(unsorted, unsorted.length);
+            Sorts.lsdRadixSort(copy, bits);
+            if (!Arrays.equals(expected, copy)) {
+                printError(expected, copy);
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean testParallelSampleSort() {
+        int[] unsorted = new int[20000];
+        for (int i = 0; i < unsorted.length; i++)
+            unsorted[i] = (i * 7919) % 1013 - 500;
+        int[] expected = Arrays.copyOf(unsorted, unsorted.length);
+        Arrays.sort(expected);
+        int threshold = Sorts.getParallelThreshold();
+        Sorts.setParallelThreshold(64);
+        try {
+            Sorts.parallelSampleSort(unsorted, ForkJoinPool.commonPool(), 4);
+        } finally {
+            Sorts.setParallelThreshold(threshold);
+        }
+        if (!Arrays.equals(unsorted, expected)) {
+            System.out.println("Parallel sample sort did not match Arrays.sort");
+            return false;
+        }
+        return true;
+    }
+
+    private static boolean testParallelRadixSort() {
+        int[] unsorted = new int[20000];
+        long[] longs = new long[unsorted.length];
+        for (int i = 0; i < unsorted.length; i++) {
+            unsorted[i] = i * 0x9E3779B9;
+            longs[i] = (long) unsorted[i] << 20 | i;
+        }
+        int[] msd = Arrays.copyOf(unsorted, unsorted.length);
+        int[] expected = Arrays.copyOf(unsorted, unsorted.length);
+        long[] expectedLongs = Arrays.copyOf(longs, longs.length);
+        Arrays.sort(expected);
+        Arrays.sort(expectedLongs);
+        int threshold = Sorts.getParallelThreshold();
+        Sorts.setParallelThreshold(64);
+        try {
+            Sorts.parallelRadixSort(unsorted, ForkJoinPool.commonPool(), 4);
+            Sorts.parallelMsdRadixSort(msd, ForkJoinPool.commonPool(), 4);
+            Sorts.parallelRadixSort(longs, ForkJoinPool.commonPool(), 4);
+        } finally {
+            Sorts.setParallelThreshold(threshold);
+        }
+        if (!Arrays.equals(unsorted, expected) || !Arrays.equals(msd, expected)
+                || !Arrays.equals(longs, expectedLongs)) {
+            System.out.println("Parallel radix sort did not match Arrays.sort");
+            return false;
+        }
+
+        // below the threshold the long version falls back to lsdRadixSort(long[])
+        long[] small = Arrays.copyOf(expectedLongs, 1000);
+        for (int i = 0; i < small.length / 2; i++) {
+            long temp = small[i];
+            small[i] = small[small.length - 1 - i];
+            small[small.length - 1 - i] = temp;
+        }
+        Sorts.parallelRadixSort(small, ForkJoinPool.commonPool(), 4);
+        if (!Arrays.equals(small, Arrays.copyOf(expectedLongs, 1000))) {
+            System.out.println("Parallel radix sort of a small long array did not match Arrays.sort");
+            return false;
+        }
         return true;
     }
 
@@ -138,6 +423,60 @@ public class TestBench {
         return true;
     }
 
+    private static boolean testSparseCountSort() {
+        // ids spread over the whole int range, each repeated, so a counter per value
+        // in the range could not even be allocated
+        int[] unsorted = new int[20000];
+        for (int i = 0; i < unsorted.length; i++)
+            unsorted[i] = (i % 3001) * 715827 - 1073741824 + (i % 2 == 0 ? Integer.MIN_VALUE / 2 : 0);
+        unsorted[7] = Integer.MIN_VALUE;
+        unsorted[8] = Integer.MAX_VALUE;
+        int[] expected = Arrays.copyOf(unsorted, unsorted.length);
+        Arrays.sort(expected);
+        int[] wide = Arrays.copyOf(unsorted, unsorted.length);
+        Sorts.countSort(wide);
+        int[] given = Arrays.copyOf(unsorted, unsorted.length);
+        Sorts.countSort(given, Integer.MIN_VALUE, Integer.MAX_VALUE);
+        int[] dense = {2, 1, 9, 3, 7, 5, 3, 3, 8, 4, 2};
+        Sorts.countSort(dense);
+        if (!Arrays.equals(wide, expected) || !Arrays.equals(given, expected)
+                || !Arrays.equals(dense, new int[] {1, 2, 2, 3, 3, 3, 4, 5, 7, 8, 9})) {
+            System.out.println("Count sort of a wide range did not match Arrays.sort");
+            return false;
+        }
+        ValueCounts counts = Sorts.countDistinct(unsorted);
+        ValueCounts small = Sorts.countDistinct(new int[] {5, -1, 5, 5, 0, -1});
+        if (!Arrays.equals(counts.toSortedArray(), expected) || counts.total() != unsorted.length
+                || !Arrays.equals(small.values(), new int[] {-1, 0, 5})
+                || !Arrays.equals(small.counts(), new int[] {2, 1, 3})
+                || Sorts.countDistinct(new int[0]).size() != 0) {
+            System.out.println("Count distinct did not match the sorted values");
+            return false;
+        }
+        // a factor above countSort's own keeps sort(int[]) from counting the wide
+        // range, and the distinct values are not counted again
+        int factor = Sorts.getCountRangeFactor();
+        Sorts.setCountRangeFactor(8);
+        try {
+            int[] spread = new int[100000];
+            for (int i = 0; i < spread.length; i++)
+                spread[i] = i * 7919 % spread.length * 5;
+            int[] sorted = Arrays.copyOf(spread, spread.length);
+            Sorts.sort(sorted);
+            int[] counted = Arrays.copyOf(spread, spread.length);
+            Sorts.countSort(counted);
+            Arrays.sort(spread);
+            if (!Arrays.equals(sorted, spread) || !Arrays.equals(counted, spread)
+                    || !Arrays.equals(Sorts.countDistinct(counted).values(), spread)) {
+                System.out.println("Count sort with a large range factor did not match Arrays.sort");
+                return false;
+            }
+        } finally {
+            Sorts.setCountRangeFactor(factor);
+        }
+        return true;
+    }
+
     private static boolean testMergeSort() {
         int[] unsorted = {1, 39, 21, 45, 94, 35, 65, 73, 9};
         int[] expected = {1, 9, 21, 35, 39, 45, 65, 73, 94};
@@ -149,6 +488,639 @@ public class TestBench {
         return true;
     }
 
+    private static boolean testBufferedMergeSort() {
+        int[] unsorted = new int[1000];
+        for (int i = 0; i < unsorted.length; i++)
+            unsorted[i] = (i * 7919) % 1013 - 500;
+        int[] expected = Arrays.copyOf(unsorted, unsorted.length);
+        Arrays.sort(expected);
+        int[] buffer = new int[unsorted.length + 10];
+        Sorts.mergeSort(unsorted, buffer);
+        if (!Arrays.equals(unsorted, expected)) {
+            System.out.println("Buffered merge sort did not match Arrays.sort");
+            return false;
+        }
+        return true;
+    }
+
+    private static boolean testTimSort() {
+        // an appended log: long sorted stretches, a descending run and late arrivals
+        int[] unsorted = new int[5000];
+        for (int i = 0; i < unsorted.length; i++)
+            unsorted[i] = i;
+        for (int i = 1000; i < 2000; i++)
+            unsorted[i] = 3000 - i;
+        for (int i = 0; i < unsorted.length; i += 97)
+            unsorted[i] = (i * 7919) % 5000;
+        int[] expected = Arrays.copyOf(unsorted, unsorted.length);
+        Arrays.sort(expected);
+        Sorts.timSort(unsorted);
+        if (!Arrays.equals(unsorted, expected)) {
+            System.out.println("Tim sort did not match Arrays.sort");
+            return false;
+        }
+        return true;
+    }
+
+    private static boolean testParallelMergeSort() {
+        int[] unsorted = new int[20000];
+        for (int i = 0; i < unsorted.length; i++)
+            unsorted[i] = (i * 7919) % 1013 - 500;
+        int[] expected = Arrays.copyOf(unsorted, unsorted.length);
+        Arrays.sort(expected);
+        int threshold = Sorts.getParallelThreshold();
+        Sorts.setParallelThreshold(64);
+        try {
+            Sorts.parallelMergeSort(unsorted, ForkJoinPool.commonPool(), 4);
+        } finally {
+            Sorts.setParallelThreshold(threshold);
+        }
+        if (!Arrays.equals(unsorted, expected)) {
+            System.out.println("Parallel merge sort did not match Arrays.sort");
+            return false;
+        }
+        return true;
+    }
+
+    private static boolean testRangeSorts() {
+        int[] unsorted = new int[3000];
+        for (int i = 0; i < unsorted.length; i++)
+            unsorted[i] = (i * 7919) % 1013 - 500;
+        int from = 123, to = 2801;
+        int[] expected = Arrays.copyOf(unsorted, unsorted.length);
+        Arrays.sort(expected, from, to);
+        int[][] arrays = new int[10][];
+        for (int i = 0; i < arrays.length; i++)
+            arrays[i] = Arrays.copyOf(unsorted, unsorted.length);
+        Sorts.countSort(arrays[0], from, to, -500, 512);
+        Sorts.lsdRadixSort(arrays[1], from, to);
+        Sorts.bubbleSort(arrays[2], from, to);
+        Sorts.selectionSort(arrays[3], from, to);
+        Sorts.insertionSort(arrays[4], from, to);
+        Sorts.heapSort(arrays[5], from, to);
+        Sorts.mergeSort(arrays[6], from, to);
+        Sorts.timSort(arrays[7], from, to);
+        Sorts.quickSort(arrays[8], from, to);
+        Sorts.quickSort(arrays[9], 0, unsorted.length);
+        for (int i = 0; i < arrays.length - 1; i++) {
+            if (!Arrays.equals(arrays[i], expected)) {
+                System.out.println("Range sort " + i + " did not match Arrays.sort");
+                return false;
+            }
+        }
+        Arrays.sort(expected);
+        if (!Arrays.equals(arrays[9], expected)) {
+            System.out.println("Range sort over the whole array did not match Arrays.sort");
+            return false;
+        }
+        try {
+            Sorts.quickSort(unsorted, 10, 5);
+            System.out.println("Range sort accepted from > to");
+            return false;
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+        return true;
+    }
+
+    private static boolean testSelect() {
+        int[] unsorted = new int[5000];
+        for (int i = 0; i < unsorted.length; i++)
+            unsorted[i] = (i * 7919) % 977;
+        int[] expected = Arrays.copyOf(unsorted, unsorted.length);
+        Arrays.sort(expected);
+        for (int k : new int[] {0, 1, 2500, 4998, 4999}) {
+            int[] array = Arrays.copyOf(unsorted, unsorted.length);
+            int value = Sorts.select(array, k);
+            if (value != expected[k] || array[k] != value) {
+                System.out.println("Select " + k + " returned " + value + ", expected " + expected[k]);
+                return false;
+            }
+            for (int i = 0; i < array.length; i++) {
+                if (i < k ? array[i] > value : array[i] < value) {
+                    System.out.println("Select " + k + " did not partition around " + value);
+                    return false;
+                }
+            }
+        }
+        int k = 50;
+        int[] array = Arrays.copyOf(unsorted, unsorted.length);
+        Sorts.partialSort(array, k);
+        if (!Arrays.equals(Arrays.copyOf(array, k), Arrays.copyOf(expected, k))) {
+            System.out.println("Partial sort did not match Arrays.sort");
+            return false;
+        }
+        Arrays.sort(array);
+        if (!Arrays.equals(array, expected)) {
+            System.out.println("Partial sort lost values");
+            return false;
+        }
+        return true;
+    }
+
+    private static boolean testSort() {
+        int n = 20000;
+        int[][] inputs = new int[8][n];
+        for (int i = 0; i < n; i++) {
+            inputs[0][i] = i * 7919 ^ i << 13;          // random-ish, full range
+            inputs[1][i] = i;                          // sorted
+            inputs[2][i] = n - i;                      // reversed
+            inputs[3][i] = i < n / 2 ? i : n - i;      // organ pipe
+            inputs[4][i] = (i * 7919) % 5000 - 2500;   // small range
+            inputs[5][i] = ((i * 7919) % 8) << 24;     // few unique, wide range
+            inputs[6][i] = (i * 7919) % 1000003 * 31;  // large range, distinct
+        }
+        for (int i = 0; i < n; i += 500)
+            inputs[1][i] = -i;                         // nearly sorted
+        inputs[7] = new int[] {3, -1, 2};
+        for (int[] array : inputs) {
+            int[] expected = Arrays.copyOf(array, array.length);
+            Arrays.sort(expected);
+            Sorts.sort(array);
+            if (!Arrays.equals(array, expected)) {
+                System.out.println("Sort did not match Arrays.sort");
+                return false;
+            }
+        }
+        int[] large = new int[1 << 15];
+        for (int i = 0; i < large.length; i++)
+            large[i] = i * 7919 ^ i << 13;
+        int[] expected = Arrays.copyOf(large, large.length);
+        Arrays.sort(expected);
+        int threshold = Sorts.getParallelSortThreshold();
+        Sorts.setParallelSortThreshold(1 << 14);
+        try {
+            Sorts.sort(large);
+        } finally {
+            Sorts.setParallelSortThreshold(threshold);
+        }
+        if (!Arrays.equals(large, expected)) {
+            System.out.println("Parallel sort did not match Arrays.sort");
+            return false;
+        }
+        // off, and then every array counted as duplicate heavy
+        int distinctPercent = Sorts.getDistinctPercent();
+        try {
+            for (int percent : new int[] {0, 100}) {
+                Sorts.setDistinctPercent(percent);
+                int[] fewUnique = new int[n];
+                for (int i = 0; i < n; i++)
+                    fewUnique[i] = ((i * 7919) % 8) << 24;
+                int[] expectedFew = Arrays.copyOf(fewUnique, n);
+                Arrays.sort(expectedFew);
+                Sorts.sort(fewUnique);
+                if (!Arrays.equals(fewUnique, expectedFew)) {
+                    System.out.println("Sort with distinct percent " + percent + " did not match Arrays.sort");
+                    return false;
+                }
+            }
+        } finally {
+            Sorts.setDistinctPercent(distinctPercent);
+        }
+        return true;
+    }
+
+    private static boolean testSortMetrics() {
+        SortMetricsCollector metrics = new SortMetricsCollector();
+        metrics.record("quick", 100, 700, 300, 0, 4, 2_000_000);
+        metrics.record("quick", 50, 300, 100, 64, 7, 1_000_000);
+        String export = metrics.export();
+        if (!export.contains("sorts_calls_total{algorithm=\"quick\"} 2\n")
+                || !export.contains("sorts_comparisons_total{algorithm=\"quick\"} 1000\n")
+                || !export.contains("sorts_max_depth{algorithm=\"quick\"} 7\n")
+                || !export.contains("sorts_seconds_total{algorithm=\"quick\"} 0.003\n")) {
+            System.out.println("Metrics export was wrong:\n" + export);
+            return false;
+        }
+
+        metrics.clear();
+        SortMetrics listener = Sorts.getMetrics();
+        Sorts.setMetrics(metrics);
+        try {
+            Sorts.quickSort(new int[] {5, 3, 9, 1, 7, 2, 8});
+            Sorts.quickSort(new long[] {5, 3, 9, 1, 7, 2, 8});
+        } finally {
+            Sorts.setMetrics(listener);
+        }
+        // the counting is only compiled in with -Dsorts.metrics=true
+        long expected = Boolean.getBoolean("sorts.metrics") ? 2 : 0;
+        if (metrics.calls("quick") != expected
+                || (expected > 0) != (metrics.comparisons("quick") > 0)) {
+            System.out.println("Quick sort was not recorded as expected:\n" + metrics.export());
+            return false;
+        }
+        return true;
+    }
+
+    private static boolean testStreamingSorter() {
+        StreamingSorter sorter = new StreamingSorter(1000);
+        int[] chunk = new int[3000];
+        for (int i = 0; i < chunk.length; i++)
+            chunk[i] = (i * 7919) % 2003 - 1000;
+        sorter.accept(chunk);
+        sorter.accept(IntBuffer.wrap(chunk, 100, 500));
+        sorter.acceptAll(IntStream.range(0, 2500).map(i -> 2500 - i * 3));
+        sorter.accept(new int[0]);
+        sorter.accept(42);
+
+        int[] expected = new int[3000 + 500 + 2500 + 1];
+        System.arraycopy(chunk, 0, expected, 0, 3000);
+        System.arraycopy(chunk, 100, expected, 3000, 500);
+        for (int i = 0; i < 2500; i++)
+            expected[3500 + i] = 2500 - i * 3;
+        expected[6000] = 42;
+        Arrays.sort(expected);
+        if (sorter.size() != expected.length || !Arrays.equals(sorter.sorted().toArray(), expected)) {
+            System.out.println("Streaming sorter did not match Arrays.sort");
+            return false;
+        }
+        try {
+            sorter.accept(1);
+            System.out.println("Streaming sorter accepted a value after it was finished");
+            return false;
+        } catch (IllegalStateException e) {
+            // expected
+        }
+
+        // a budget of 3 chunks spills a run file every 4 chunks
+        try {
+            Path dir = Files.createTempDirectory("streaming-sort");
+            int[] values = new int[10000];
+            for (int i = 0; i < values.length; i++)
+                values[i] = i * 7919 ^ i << 13;
+            int[] sorted;
+            int spilled;
+            try (StreamingSorter spilling = new StreamingSorter(1000, 3 * 4000, dir)) {
+                spilling.acceptAll(Arrays.stream(values));
+                spilled = spilling.spilledRuns();
+                sorted = spilling.sorted().toArray();
+            }
+            boolean cleanedUp;
+            try (Stream<Path> files = Files.list(dir)) {
+                cleanedUp = files.count() == 0;
+            }
+            Files.delete(dir);
+            Arrays.sort(values);
+            if (spilled != 2 || !Arrays.equals(sorted, values) || !cleanedUp) {
+                System.out.println("Spilling streaming sorter did not match Arrays.sort or left run files behind");
+                return false;
+            }
+        } catch (IOException e) {
+            System.out.println("Spilling streaming sorter failed: " + e);
+            return false;
+        }
+
+        // every chunk spills, so the 100 run files are merged in groups before the output
+        try {
+            Path dir = Files.createTempDirectory("streaming-sort");
+            int[] values = new int[1000];
+            for (int i = 0; i < values.length; i++)
+                values[i] = i * 7919 ^ i << 13;
+            int[] sorted;
+            int spilled;
+            try (StreamingSorter spilling = new StreamingSorter(10, 4, dir)) {
+                spilling.acceptAll(Arrays.stream(values));
+                spilled = spilling.spilledRuns();
+                sorted = spilling.sorted().toArray();
+            }
+            boolean cleanedUp;
+            try (Stream<Path> files = Files.list(dir)) {
+                cleanedUp = files.count() == 0;
+            }
+            Files.delete(dir);
+            Arrays.sort(values);
+            if (spilled != 100 || !Arrays.equals(sorted, values) || !cleanedUp) {
+                System.out.println("Streaming sorter with many run files did not match Arrays.sort or left run files behind");
+                return false;
+            }
+        } catch (IOException e) {
+            System.out.println("Streaming sorter with many run files failed: " + e);
+            return false;
+        }
+        return true;
+    }
+
+    private static boolean testBranchless() {
+        int[][] inputs = new int[4][5000];
+        for (int i = 0; i < 5000; i++) {
+            inputs[0][i] = i * 7919 ^ i << 13;
+            inputs[1][i] = (i * 7919) % 3;
+            inputs[2][i] = i;
+            inputs[3][i] = -i;
+        }
+        for (int[] input : inputs) {
+            int[] expected = Arrays.copyOf(input, input.length);
+            Arrays.sort(expected);
+            int[] quick = Arrays.copyOf(input, input.length);
+            Sorts.branchlessQuickSort(quick);
+            int[] merge = Arrays.copyOf(input, input.length);
+            Sorts.branchlessMergeSort(merge);
+            if (!Arrays.equals(quick, expected) || !Arrays.equals(merge, expected)) {
+                System.out.println("Branchless sorts did not match Arrays.sort");
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean testBatchSorter() {
+        List<int[]> arrays = new ArrayList<>();
+        List<int[]> expected = new ArrayList<>();
+        for (int a = 0; a < 300; a++) {
+            // mostly tiny arrays with the odd one big enough for the radix sort
+            int[] array = new int[a % 50 == 0 ? 5000 + a : a % 40];
+            for (int i = 0; i < array.length; i++)
+                array[i] = (i * 7919 + a * 31) % 1013 * (a % 2 == 0 ? 1 : -1 << 20);
+            arrays.add(array);
+            int[] sorted = Arrays.copyOf(array, array.length);
+            Arrays.sort(sorted);
+            expected.add(sorted);
+        }
+        List<int[]> submitted = new ArrayList<>();
+        for (int[] array : arrays)
+            submitted.add(Arrays.copyOf(array, array.length));
+
+        BatchSorter sorter = new BatchSorter(ForkJoinPool.commonPool());
+        sorter.sortAll(arrays);
+        List<CompletableFuture<int[]>> futures = new ArrayList<>();
+        for (int[] array : submitted)
+            futures.add(sorter.submit(array));
+        for (int a = 0; a < arrays.size(); a++) {
+            if (!Arrays.equals(arrays.get(a), expected.get(a))
+                    || !Arrays.equals(futures.get(a).join(), expected.get(a))) {
+                System.out.println("Batch sorter did not match Arrays.sort for array " + a);
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean testPrimitiveSorts() {
+        long[] longs = {5L << 40, -3, Long.MIN_VALUE, 0, Long.MAX_VALUE, -3, 1L << 33, 7};
+        double[] doubles = {2.5, Double.NaN, -0.0, 0.0, Double.NEGATIVE_INFINITY, -1e300, 0.0, -0.0, 1e-300, -7};
+        float[] floats = {2.5f, Float.NaN, -0.0f, 0.0f, Float.POSITIVE_INFINITY, -1e30f, -7f};
+        short[] shorts = new short[100];
+        char[] chars = new char[100];
+        byte[] bytes = new byte[100];
+        for (int i = 0; i < 100; i++) {
+            shorts[i] = (short) (i * 0x9E37);
+            chars[i] = (char) (i * 0x9E37);
+            bytes[i] = (byte) (i * 0x9E);
+        }
+        long[] expectedLongs = Arrays.copyOf(longs, longs.length);
+        double[] expectedDoubles = Arrays.copyOf(doubles, doubles.length);
+        float[] expectedFloats = Arrays.copyOf(floats, floats.length);
+        short[] expectedShorts = Arrays.copyOf(shorts, shorts.length);
+        char[] expectedChars = Arrays.copyOf(chars, chars.length);
+        byte[] expectedBytes = Arrays.copyOf(bytes, bytes.length);
+        Arrays.sort(expectedLongs);
+        Arrays.sort(expectedDoubles);
+        Arrays.sort(expectedFloats);
+        Arrays.sort(expectedShorts);
+        Arrays.sort(expectedChars);
+        Arrays.sort(expectedBytes);
+
+        for (int sort = 0; sort < 7; sort++) {
+            long[] l = Arrays.copyOf(longs, longs.length);
+            double[] d = Arrays.copyOf(doubles, doubles.length);
+            float[] f = Arrays.copyOf(floats, floats.length);
+            short[] s = Arrays.copyOf(shorts, shorts.length);
+            char[] c = Arrays.copyOf(chars, chars.length);
+            byte[] b = Arrays.copyOf(bytes, bytes.length);
+            switch (sort) {
+                case 0:
+                    Sorts.bubbleSort(l); Sorts.bubbleSort(d); Sorts.bubbleSort(f);
+                    Sorts.bubbleSort(s); Sorts.bubbleSort(c); Sorts.bubbleSort(b);
+                    break;
+                case 1:
+                    Sorts.selectionSort(l); Sorts.selectionSort(d); Sorts.selectionSort(f);
+                    Sorts.selectionSort(s); Sorts.selectionSort(c); Sorts.selectionSort(b);
+                    break;
+                case 2:
+                    Sorts.insertionSort(l); Sorts.insertionSort(d); Sorts.insertionSort(f);
+                    Sorts.insertionSort(s); Sorts.insertionSort(c); Sorts.insertionSort(b);
+                    break;
+                case 3:
+                    Sorts.mergeSort(l); Sorts.mergeSort(d); Sorts.mergeSort(f);
+                    Sorts.mergeSort(s); Sorts.mergeSort(c); Sorts.mergeSort(b);
+                    break;
+                case 4:
+                    Sorts.quickSort(l); Sorts.quickSort(d); Sorts.quickSort(f);
+                    Sorts.quickSort(s); Sorts.quickSort(c); Sorts.quickSort(b);
+                    break;
+                case 5:
+                    Sorts.heapSort(l); Sorts.heapSort(d); Sorts.heapSort(f);
+                    Sorts.heapSort(s); Sorts.heapSort(c); Sorts.heapSort(b);
+                    break;
+                default:
+                    Sorts.lsdRadixSort(l); Sorts.lsdRadixSort(d); Sorts.lsdRadixSort(f);
+                    Sorts.countSort(s); Sorts.countSort(c); Sorts.countSort(b);
+                    break;
+            }
+            if (!Arrays.equals(l, expectedLongs) || !Arrays.equals(d, expectedDoubles)
+                    || !Arrays.equals(f, expectedFloats) || !Arrays.equals(s, expectedShorts)
+                    || !Arrays.equals(c, expectedChars) || !Arrays.equals(b, expectedBytes)) {
+                System.out.println("Primitive sort " + sort + " did not match Arrays.sort");
+                System.out.println("Actual doubles: " + Arrays.toString(d));
+                return false;
+            }
+        }
+
+        // long enough for the ninther pivot, and sorted as a range so both ends stay
+        long[] manyLongs = new long[3000];
+        double[] manyDoubles = new double[3000];
+        for (int i = 0; i < manyLongs.length; i++) {
+            manyLongs[i] = (i * 7919L) % 1009 * (1L << 40) - i % 7;
+            manyDoubles[i] = i % 97 == 0 ? Double.NaN : i % 89 == 0 ? -0.0 : (i * 7919) % 1009 - 500.5;
+        }
+        long[] expectedManyLongs = Arrays.copyOf(manyLongs, manyLongs.length);
+        double[] expectedManyDoubles = Arrays.copyOf(manyDoubles, manyDoubles.length);
+        Arrays.sort(expectedManyLongs, 100, 2900);
+        Arrays.sort(expectedManyDoubles, 100, 2900);
+        for (int sort = 0; sort < 6; sort++) {
+            long[] l = Arrays.copyOf(manyLongs, manyLongs.length);
+            double[] d = Arrays.copyOf(manyDoubles, manyDoubles.length);
+            switch (sort) {
+                case 0: Sorts.bubbleSort(l, 100, 2900); Sorts.bubbleSort(d, 100, 2900); break;
+                case 1: Sorts.selectionSort(l, 100, 2900); Sorts.selectionSort(d, 100, 2900); break;
+                case 2: Sorts.insertionSort(l, 100, 2900); Sorts.insertionSort(d, 100, 2900); break;
+                case 3: Sorts.mergeSort(l, 100, 2900); Sorts.mergeSort(d, 100, 2900); break;
+                case 4: Sorts.quickSort(l, 100, 2900); Sorts.quickSort(d, 100, 2900); break;
+                default: Sorts.heapSort(l, 100, 2900); Sorts.heapSort(d, 100, 2900); break;
+            }
+            if (!Arrays.equals(l, expectedManyLongs) || !Arrays.equals(d, expectedManyDoubles)) {
+                System.out.println("Primitive range sort " + sort + " did not match Arrays.sort");
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean testKeyValueSorts() {
+        int[] keys = {30, 10, 20, 10, 30, -5, 20, 10};
+        int[] expectedKeys = {-5, 10, 10, 10, 20, 20, 30, 30};
+        // equal keys keep their index order in the stable sorts
+        int[] expectedOrder = {5, 1, 3, 7, 2, 6, 0, 4};
+
+        int[] stableOrder = Sorts.stableArgsort(keys);
+        if (!Arrays.equals(stableOrder, expectedOrder)) {
+            printError(expectedOrder, stableOrder);
+            return false;
+        }
+        int[] sortedKeys = Arrays.copyOf(keys, keys.length);
+        int[] values = {0, 1, 2, 3, 4, 5, 6, 7};
+        Sorts.stableSort(sortedKeys, values);
+        if (!Arrays.equals(sortedKeys, expectedKeys) || !Arrays.equals(values, expectedOrder)) {
+            printError(expectedOrder, values);
+            return false;
+        }
+
+        // the unstable versions only have to pair every value with its key
+        int[] big = new int[1000];
+        for (int i = 0; i < big.length; i++)
+            big[i] = (i * 7919) % 101;
+        int[] order = Sorts.argsort(big);
+        int[] bigValues = Arrays.copyOf(big, big.length);
+        int[] bigKeys = Arrays.copyOf(big, big.length);
+        Sorts.sort(bigKeys, bigValues);
+        for (int i = 0; i < big.length; i++) {
+            if ((i > 0 && big[order[i - 1]] > big[order[i]]) || bigKeys[i] != bigValues[i]
+                    || (i > 0 && bigKeys[i - 1] > bigKeys[i])) {
+                System.out.println("Key value sort out of order at " + i);
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean testSortedRunFile() {
+        // duplicates, dense stretches, and gaps up to the full 2^32 - 1
+        int[] values = new int[10000];
+        for (int i = 0; i < values.length; i++)
+            values[i] = (i * 7919) % 4001 * (i % 3 == 0 ? 1 : 524287);
+        values[1] = Integer.MIN_VALUE;
+        values[2] = Integer.MAX_VALUE;
+        Sorts.sort(values);
+        int[] other = new int[3000];
+        for (int i = 0; i < other.length; i++)
+            other[i] = i * 0x9E3779B9;
+        Sorts.sort(other);
+        int[] merged = Arrays.copyOf(values, values.length + other.length);
+        System.arraycopy(other, 0, merged, values.length, other.length);
+        Arrays.sort(merged);
+        try {
+            Path dir = Files.createTempDirectory("sorted-run");
+            Path first = dir.resolve("first.run");
+            Path second = dir.resolve("second.run");
+            Path output = dir.resolve("merged.run");
+            try (SortedRunFile.Writer writer = new SortedRunFile.Writer(first, 16)) {
+                for (int value : values)
+                    writer.accept(value);
+            }
+            SortedRunFile.write(second, other);
+            SortedRunFile.merge(List.of(first, second), output);
+            boolean passed = true;
+            try (SortedRunFile run = SortedRunFile.open(first); SortedRunFile all = SortedRunFile.open(output)) {
+                if (run.size() != values.length || !Arrays.equals(toArray(all.iterator()), merged)) {
+                    System.out.println("Sorted run file did not read back what was written");
+                    passed = false;
+                }
+                for (int probe = -20; passed && probe < 5000; probe++) {
+                    int value = probe * 524287 + (probe & 1);
+                    long rank = IntStream.of(values).filter(v -> v < value).count();
+                    boolean present = Arrays.binarySearch(values, value) >= 0;
+                    int min = value, max = (int) Math.min((long) value + 1000000, Integer.MAX_VALUE);
+                    int[] range = IntStream.of(values).filter(v -> v >= min && v <= max).toArray();
+                    if (run.rank(value) != rank || run.contains(value) != present
+                            || !Arrays.equals(toArray(run.range(min, max)), range)) {
+                        System.out.println("Sorted run file lookup of " + value + " was wrong");
+                        passed = false;
+                    }
+                }
+                if (!run.contains(Integer.MIN_VALUE) || !run.contains(Integer.MAX_VALUE)
+                        || run.rank(Integer.MAX_VALUE) != values.length - 1) {
+                    System.out.println("Sorted run file lost the extreme values");
+                    passed = false;
+                }
+            }
+            // a failed write leaves no file, and a merge into one of its own inputs
+            // is refused before the input is touched
+            try {
+                SortedRunFile.write(output, new int[] {1, 2, 3, 0});
+                passed = false;
+            } catch (IllegalArgumentException e) {
+                passed &= !Files.exists(output);
+            }
+            try {
+                SortedRunFile.merge(List.of(first, second), first);
+                passed = false;
+            } catch (IllegalArgumentException e) {
+                try (SortedRunFile run = SortedRunFile.open(first)) {
+                    passed &= run.size() == values.length;
+                }
+            }
+            try {
+                new SortedRunFile.Writer(output, 100000).close();
+                passed = false;
+            } catch (IllegalArgumentException e) {
+                // expected
+            }
+            // a gap of 2^31 packs the first block of the largest size with 32 bits
+            try (SortedRunFile.Writer writer = new SortedRunFile.Writer(output, 16383)) {
+                writer.accept(Integer.MIN_VALUE);
+                for (int i = 0; i < 40000; i++)
+                    writer.accept(i);
+            }
+            try (SortedRunFile wide = SortedRunFile.open(output)) {
+                passed &= wide.size() == 40001 && wide.contains(Integer.MIN_VALUE) && wide.contains(39999)
+                        && wide.rank(20000) == 20001;
+            }
+            if (!passed)
+                System.out.println("Sorted run file kept a failed write or took a bad argument");
+            for (Path path : List.of(first, second, output))
+                Files.delete(path);
+            Files.delete(dir);
+            return passed;
+        } catch (IOException e) {
+            System.out.println("Sorted run file failed: " + e);
+            return false;
+        }
+    }
+
+    private static int[] toArray(PrimitiveIterator.OfInt iterator) {
+        IntStream.Builder values = IntStream.builder();
+        iterator.forEachRemaining(values);
+        return values.build().toArray();
+    }
+
+    private static boolean testObjectSorts() {
+        // records of {key, position}, with many equal keys to check stability
+        int[][] records = new int[5000][];
+        for (int i = 0; i < records.length; i++)
+            records[i] = new int[] {(i * 7919) % 1013 - 500, i};
+        Comparator<int[]> byKey = Comparator.comparingInt(r -> r[0]);
+        int[][] expected = records.clone();
+        Arrays.sort(expected, byKey);
+
+        int[][] byInt = records.clone();
+        Sorts.sortByInt(byInt, r -> r[0]);
+        int[][] byLong = records.clone();
+        Sorts.sortByLong(byLong, r -> r[0] * 1_000_000_007L);
+        int[][] compared = records.clone();
+        Sorts.sort(compared, byKey);
+        int[][] small = Arrays.copyOf(records, 20);
+        Sorts.sort(small, byKey);
+        int[][] smallExpected = Arrays.copyOf(records, 20);
+        Arrays.sort(smallExpected, byKey);
+        // Arrays.equals on int[][] compares the records by identity
+        if (!Arrays.equals(byInt, expected) || !Arrays.equals(byLong, expected)
+                || !Arrays.equals(compared, expected) || !Arrays.equals(small, smallExpected)) {
+            System.out.println("Object sorts did not match the stable Arrays.sort");
+            return false;
+        }
+        return true;
+    }
+
     private static <T> void printError(int[] expected, int[] actual) {
         System.out.println("Expected: " + Arrays.toString(expected));
         System.out.println("Actual:   " + Arrays.toString(actual));
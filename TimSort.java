@@ -0,0 +1,345 @@
+/**
+ * Adaptive, stable merge sort for ints that takes advantage of runs which are
+ * already in order, written from the published descriptions of Tim Peters' list
+ * sort ({@link https://github.com/python/cpython/blob/main/Objects/listsort.txt})
+ * and of the powersort merge policy that list sort has used since Python 3.11
+ * (J. I. Munro and S. Wild, "Nearly-Optimal Mergesorts", ESA 2018).
+ *
+ * The range is cut into natural runs: ascending ones are kept, strictly
+ * descending ones are reversed in place, and runs shorter than a minimum length
+ * (32 to 64 depending on n) are extended with binary insertion sort. Each run is
+ * given a power, the depth in a perfectly balanced merge tree at which it would
+ * meet the run before it, and runs are kept on a stack whose powers increase
+ * from the bottom; a run with a lower power first merges away the runs above it.
+ * So the merges stay close to balanced whatever the run lengths are. Merges copy
+ * only the shorter run into a buffer, skip the values at either end that are
+ * already in place, and gallop (exponential search and a bulk copy) once one
+ * run keeps supplying the next value. A sorted or reverse sorted range is a
+ * single run and costs O(n). Used through Sorts.timSort(int[]) and
+ * Sorts.timSort(int[], int, int).
+ */
+final class TimSort {
+
+    /** Values taken from one run in a row before a merge starts galloping. */
+    private static final int INITIAL_GALLOP_STREAK = 7;
+    /** A gallop that moves fewer values than this did not pay for the search. */
+    private static final int GALLOP_PAYOFF = 7;
+    /** Run powers are below 34 for any int length, and strictly increase up the stack. */
+    private static final int MAX_RUNS = 40;
+
+    private final int[] array;
+    private final int from;
+    private final int to;
+    private final int minRun;
+    private int[] buffer = new int[0];
+    // adapts to the data: lowered while galloping pays off, raised when it does not
+    private int gallopStreak = INITIAL_GALLOP_STREAK;
+
+    // the pending runs: run i starts at starts[i] and ends where run i + 1 starts
+    private final int[] starts = new int[MAX_RUNS];
+    private final int[] powers = new int[MAX_RUNS];
+
+    private TimSort(int[] array, int from, int to) {
+        this.array = array;
+        this.from = from;
+        this.to = to;
+        minRun = minRunLength(to - from);
+    }
+
+    /**
+     * Sorts array[from, to) in place. The range is not checked.
+     * @param array the array to sort
+     * @param from the first index to sort
+     * @param to the index after the last one to sort
+     */
+    static void sort(int[] array, int from, int to) {
+        if (to - from < 2)
+            return;
+        new TimSort(array, from, to).sortRuns();
+    }
+
+    private void sortRuns() {
+        int height = 0;
+        starts[0] = from;
+        int end = nextRun(from);
+        while (end < to) {
+            int nextEnd = nextRun(end);
+            int power = power(starts[height], end, nextEnd);
+            // everything above the new boundary's depth in the tree is merged first
+            for (; height > 0 && powers[height] > power; height--)
+                mergeRuns(starts[height - 1], starts[height], end);
+            height++;
+            starts[height] = end;
+            powers[height] = power;
+            end = nextEnd;
+        }
+        for (; height > 0; height--)
+            mergeRuns(starts[height - 1], starts[height], to);
+    }
+
+    /**
+     * The minimum run length for n values: the top six bits of n, plus one if any
+     * lower bit is set, so n / minRun is a power of two or just under one. All of
+     * n when it is below 64.
+     */
+    private static int minRunLength(int n) {
+        int lowBits = Math.max(0, Integer.SIZE - Integer.numberOfLeadingZeros(n) - 6);
+        int run = n >>> lowBits;
+        return (n & ((1 << lowBits) - 1)) == 0 ? run : run + 1;
+    }
+
+    /**
+     * Finds the natural run starting at start, reversing it if it is strictly
+     * descending, and extends it to minRun values with binary insertion sort.
+     * @return the index after the end of the run
+     */
+    private int nextRun(int start) {
+        int end = start + 1;
+        if (end < to) {
+            if (array[end] < array[start]) {
+                // strictly, so reversing keeps equal values in order
+                while (++end < to && array[end] < array[end - 1]) {
+                }
+                reverse(start, end);
+            } else {
+                while (++end < to && array[end] >= array[end - 1]) {
+                }
+            }
+        }
+        int extended = (int) Math.min(to, (long) start + minRun);
+        if (end < extended) {
+            insertionSort(start, end, extended);
+            end = extended;
+        }
+        return end;
+    }
+
+    private void reverse(int lo, int hi) {
+        for (hi--; lo < hi; lo++, hi--) {
+            int temp = array[lo];
+            array[lo] = array[hi];
+            array[hi] = temp;
+        }
+    }
+
+    /**
+     * Binary insertion sort of array[lo, hi), where array[lo, sorted) is already
+     * sorted. Each value goes after any equal ones, so the sort is stable.
+     */
+    private void insertionSort(int lo, int sorted, int hi) {
+        for (int i = sorted; i < hi; i++) {
+            int value = array[i];
+            int low = lo, high = i;
+            while (low < high) {
+                int m = (low + high) >>> 1;
+                if (array[m] <= value)
+                    low = m + 1;
+                else
+                    high = m;
+            }
+            int at = low;
+            System.arraycopy(array, at, array, at + 1, i - at);
+            array[at] = value;
+        }
+    }
+
+    /**
+     * The powersort power of the boundary between the adjacent runs [start1, end1)
+     * and [end1, end2): the first bit at which the midpoints of the two runs, as
+     * fractions of the range, differ. Runs that would meet near the root of a
+     * balanced merge tree get low powers.
+     */
+    private int power(int start1, int end1, int end2) {
+        long twiceLength = 2L * (to - from);
+        // twice the midpoints, relative to from, so they stay whole numbers
+        long a = (long) (start1 - from) + (end1 - from);
+        long b = (long) (end1 - from) + (end2 - from);
+        int power = 0;
+        while (true) {
+            power++;
+            a <<= 1;
+            b <<= 1;
+            boolean aBit = a >= twiceLength;
+            boolean bBit = b >= twiceLength;
+            if (aBit != bBit)
+                return power;
+            if (aBit) {
+                a -= twiceLength;
+                b -= twiceLength;
+            }
+        }
+    }
+
+    /**
+     * Merges the adjacent sorted runs array[lo, mid) and array[mid, hi).
+     */
+    private void mergeRuns(int lo, int mid, int hi) {
+        // values of the left run up to the right run's first are already in place,
+        // as are values of the right run from the left run's last on
+        lo = boundary(array, lo, mid, array[mid], true, false);
+        if (lo == mid)
+            return;
+        hi = boundary(array, mid, hi, array[mid - 1], false, true);
+        if (mid - lo <= hi - mid)
+            mergeForward(lo, mid, hi);
+        else
+            mergeBackward(lo, mid, hi);
+    }
+
+    /**
+     * Merges with the left run copied out, filling array from lo upwards. Ties go
+     * to the left run.
+     */
+    private void mergeForward(int lo, int mid, int hi) {
+        int leftLength = mid - lo;
+        int[] left = buffer(leftLength);
+        System.arraycopy(array, lo, left, 0, leftLength);
+        int i = 0, j = mid, k = lo;
+        while (i < leftLength && j < hi) {
+            // one value at a time until one run supplies gallopStreak in a row
+            int leftStreak = 0, rightStreak = 0;
+            do {
+                if (array[j] < left[i]) {
+                    array[k++] = array[j++];
+                    rightStreak++;
+                    leftStreak = 0;
+                } else {
+                    array[k++] = left[i++];
+                    leftStreak++;
+                    rightStreak = 0;
+                }
+            } while ((leftStreak | rightStreak) < gallopStreak && i < leftLength && j < hi);
+            boolean galloping = i < leftLength && j < hi;
+            while (galloping) {
+                // take every left value up to the next right one, then every right
+                // value below the next left one, each as one copy
+                int leftRun = boundary(left, i, leftLength, array[j], true, false) - i;
+                System.arraycopy(left, i, array, k, leftRun);
+                i += leftRun;
+                k += leftRun;
+                int rightRun = 0;
+                if (i < leftLength) {
+                    rightRun = boundary(array, j, hi, left[i], false, false) - j;
+                    System.arraycopy(array, j, array, k, rightRun);
+                    j += rightRun;
+                    k += rightRun;
+                }
+                galloping = updateGallop(leftRun, rightRun) && i < leftLength && j < hi;
+            }
+        }
+        // anything left of the right run is already in place
+        System.arraycopy(left, i, array, k, leftLength - i);
+    }
+
+    /**
+     * Merges with the right run copied out, filling array from hi downwards. Ties
+     * go to the right run, which keeps equal values in order.
+     */
+    private void mergeBackward(int lo, int mid, int hi) {
+        int rightLength = hi - mid;
+        int[] right = buffer(rightLength);
+        System.arraycopy(array, mid, right, 0, rightLength);
+        // i and j are the next values to place from the left and right runs
+        int i = mid - 1, j = rightLength - 1, k = hi - 1;
+        while (i >= lo && j >= 0) {
+            int leftStreak = 0, rightStreak = 0;
+            do {
+                if (right[j] < array[i]) {
+                    array[k--] = array[i--];
+                    leftStreak++;
+                    rightStreak = 0;
+                } else {
+                    array[k--] = right[j--];
+                    rightStreak++;
+                    leftStreak = 0;
+                }
+            } while ((leftStreak | rightStreak) < gallopStreak && i >= lo && j >= 0);
+            boolean galloping = i >= lo && j >= 0;
+            while (galloping) {
+                // right values not below the next left one, then left values above
+                // the next right one, each as one copy
+                int start = boundary(right, 0, j + 1, array[i], false, true);
+                int rightRun = j + 1 - start;
+                k -= rightRun;
+                System.arraycopy(right, start, array, k + 1, rightRun);
+                j = start - 1;
+                int leftRun = 0;
+                if (j >= 0) {
+                    start = boundary(array, lo, i + 1, right[j], true, true);
+                    leftRun = i + 1 - start;
+                    k -= leftRun;
+                    System.arraycopy(array, start, array, k + 1, leftRun);
+                    i = start - 1;
+                }
+                galloping = updateGallop(leftRun, rightRun) && i >= lo && j >= 0;
+            }
+        }
+        // anything left of the left run is already in place
+        System.arraycopy(right, 0, array, lo, j + 1);
+    }
+
+    /**
+     * Adapts how soon merges start galloping after a gallop moved the given
+     * numbers of values.
+     * @return true to keep galloping
+     */
+    private boolean updateGallop(int leftRun, int rightRun) {
+        if (leftRun >= GALLOP_PAYOFF || rightRun >= GALLOP_PAYOFF) {
+            gallopStreak = Math.max(1, gallopStreak - 1);
+            return true;
+        }
+        gallopStreak += 2;
+        return false;
+    }
+
+    /**
+     * @return the merge buffer, grown to hold at least length values
+     */
+    private int[] buffer(int length) {
+        if (buffer.length < length) {
+            int half = (to - from) >>> 1;
+            buffer = new int[Math.max(length, Math.min(half, buffer.length * 2))];
+        }
+        return buffer;
+    }
+
+    /**
+     * Finds where values stop being before key in the sorted a[lo, hi): the first
+     * value greater than key if inclusive (values equal to key count as before
+     * it), or the first value not less than key otherwise. Probes 1, 2, 4 ...
+     * values in from one end and binary searches the last step, so the cost is
+     * logarithmic in the distance from that end rather than in hi - lo.
+     * @param fromEnd true to probe from hi, when the answer is likely near it
+     * @return the index, from lo to hi
+     */
+    private static int boundary(int[] a, int lo, int hi, int key, boolean inclusive, boolean fromEnd) {
+        // the answer is in [low, high]
+        int low = lo, high = hi;
+        int step = 1;
+        if (fromEnd) {
+            while (step > 0 && step <= high - lo && !before(a[high - step], key, inclusive)) {
+                high -= step;
+                step <<= 1;
+            }
+            low = step > 0 && step <= high - lo ? high - step + 1 : lo;
+        } else {
+            while (step > 0 && step <= hi - low && before(a[low + step - 1], key, inclusive)) {
+                low += step;
+                step <<= 1;
+            }
+            high = step > 0 && step <= hi - low ? low + step - 1 : hi;
+        }
+        while (low < high) {
+            int m = (low + high) >>> 1;
+            if (before(a[m], key, inclusive))
+                low = m + 1;
+            else
+                high = m;
+        }
+        return low;
+    }
+
+    private static boolean before(int value, int key, boolean inclusive) {
+        return inclusive ? value <= key : value < key;
+    }
+}
@@ -0,0 +1,78 @@
+import java.util.Arrays;
+
+/**
+ * A sorted int array in run-length form: its distinct values in ascending order,
+ * each with the number of times it occurs. Made by Sorts.countDistinct, and much
+ * smaller than the sorted array when values repeat a lot.
+ */
+public final class ValueCounts {
+
+    private final int[] values;
+    private final int[] counts;
+
+    ValueCounts(int[] values, int[] counts) {
+        this.values = values;
+        this.counts = counts;
+    }
+
+    /**
+     * @return the number of distinct values
+     */
+    public int size() {
+        return values.length;
+    }
+
+    /**
+     * @param index which distinct value, 0 for the smallest
+     * @return the value
+     */
+    public int value(int index) {
+        return values[index];
+    }
+
+    /**
+     * @param index which distinct value, 0 for the smallest
+     * @return how many times it occurs
+     */
+    public int count(int index) {
+        return counts[index];
+    }
+
+    /**
+     * @return the total of the counts, the length of the array that was counted
+     */
+    public long total() {
+        long total = 0;
+        for (int count : counts)
+            total += count;
+        return total;
+    }
+
+    /**
+     * @return a copy of the distinct values, ascending
+     */
+    public int[] values() {
+        return values.clone();
+    }
+
+    /**
+     * @return a copy of the counts, in the same order as values()
+     */
+    public int[] counts() {
+        return counts.clone();
+    }
+
+    /**
+     * Expands the runs back into the sorted array.
+     * @return every counted value, ascending
+     */
+    public int[] toSortedArray() {
+        int[] sorted = new int[Math.toIntExact(total())];
+        int k = 0;
+        for (int i = 0; i < values.length; i++) {
+            Arrays.fill(sorted, k, k + counts[i], values[i]);
+            k += counts[i];
+        }
+        return sorted;
+    }
+}
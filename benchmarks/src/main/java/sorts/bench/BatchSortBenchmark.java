@@ -0,0 +1,88 @@
+package sorts.bench;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import sorts.BatchSorter;
+import sorts.Sorts;
+
+/**
+ * Time to sort a batch of many small arrays: one Sorts.sort(int[]) call per
+ * array on the calling thread, against BatchSorter.sortAll and
+ * BatchSorter.submit on the common pool.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class BatchSortBenchmark {
+
+    @Param({"10000"})
+    int arrays;
+
+    @Param({"16", "64", "1024", "8192"})
+    int size;
+
+    int[][] input;
+    List<int[]> work;
+    BatchSorter sorter;
+
+    @Setup
+    public void setup() {
+        input = new int[arrays][];
+        for (int i = 0; i < arrays; i++)
+            input[i] = BenchmarkData.RANDOM.generate(size, 42 + i);
+        work = new ArrayList<>(arrays);
+        for (int i = 0; i < arrays; i++)
+            work.add(new int[size]);
+        sorter = new BatchSorter();
+    }
+
+    private List<int[]> fresh() {
+        for (int i = 0; i < arrays; i++)
+            System.arraycopy(input[i], 0, work.get(i), 0, size);
+        return work;
+    }
+
+    @Benchmark
+    public List<int[]> loop() {
+        List<int[]> batch = fresh();
+        for (int[] array : batch)
+            Sorts.sort(array);
+        return batch;
+    }
+
+    @Benchmark
+    public List<int[]> sortAll() {
+        List<int[]> batch = fresh();
+        sorter.sortAll(batch);
+        return batch;
+    }
+
+    @Benchmark
+    public List<int[]> submit() {
+        List<int[]> batch = fresh();
+        List<CompletableFuture<int[]>> futures = new ArrayList<>(arrays);
+        for (int[] array : batch)
+            futures.add(sorter.submit(array));
+        for (CompletableFuture<int[]> future : futures)
+            future.join();
+        return batch;
+    }
+}
@@ -0,0 +1,89 @@
+package sorts.bench;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * The input distributions the benchmarks are run against. All values are non
+ * negative and below one billion, so every algorithm in Sorts can take them
+ * (radixSort needs a fixed number of decimal digits).
+ */
+public enum BenchmarkData {
+    RANDOM {
+        @Override
+        void fill(int[] array, Random random) {
+            for (int i = 0; i < array.length; i++)
+                array[i] = random.nextInt(MAX_VALUE);
+        }
+    },
+    SORTED {
+        @Override
+        void fill(int[] array, Random random) {
+            RANDOM.fill(array, random);
+            Arrays.sort(array);
+        }
+    },
+    REVERSE {
+        @Override
+        void fill(int[] array, Random random) {
+            SORTED.fill(array, random);
+            for (int i = 0, j = array.length - 1; i < j; i++, j--) {
+                int temp = array[i];
+                array[i] = array[j];
+                array[j] = temp;
+            }
+        }
+    },
+    ORGAN_PIPE {
+        @Override
+        void fill(int[] array, Random random) {
+            // ascending first half, descending second half
+            int half = array.length / 2;
+            for (int i = 0; i < array.length; i++)
+                array[i] = i < half ? i : array.length - 1 - i;
+        }
+    },
+    FEW_UNIQUE {
+        @Override
+        void fill(int[] array, Random random) {
+            int[] values = new int[16];
+            for (int i = 0; i < values.length; i++)
+                values[i] = random.nextInt(MAX_VALUE);
+            for (int i = 0; i < array.length; i++)
+                array[i] = values[random.nextInt(values.length)];
+        }
+    },
+    NEARLY_SORTED {
+        @Override
+        void fill(int[] array, Random random) {
+            SORTED.fill(array, random);
+            // swap about 1% of the values with a random partner
+            for (int k = array.length / 100 + 1; k > 0; k--) {
+                int i = random.nextInt(array.length);
+                int j = random.nextInt(array.length);
+                int temp = array[i];
+                array[i] = array[j];
+                array[j] = temp;
+            }
+        }
+    };
+
+    /** Exclusive upper bound of the generated values (nine decimal digits). */
+    static final int MAX_VALUE = 1_000_000_000;
+
+    /** Decimal digit count to pass to Sorts.radixSort for these values. */
+    static final int DIGITS = 9;
+
+    abstract void fill(int[] array, Random random);
+
+    /**
+     * @param size the number of values
+     * @param seed the random seed, so every run sorts the same input
+     * @return a new array of the given size with this distribution
+     */
+    int[] generate(int size, long seed) {
+        int[] array = new int[size];
+        fill(array, new Random(seed));
+        return array;
+    }
+}
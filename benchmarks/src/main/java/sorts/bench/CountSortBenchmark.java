@@ -0,0 +1,61 @@
+package sorts.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import sorts.Sorts;
+
+/**
+ * Throughput of countSort. The inputs are folded into a range of 65536 values,
+ * since countSort allocates one counter per possible value.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+@State(Scope.Thread)
+public class CountSortBenchmark {
+
+    @Param({"16", "1024", "65536", "1048576", "16777216", "100000000"})
+    int size;
+
+    @Param
+    BenchmarkData distribution;
+
+    int[] input;
+    int[] work;
+    int min;
+    int max;
+
+    @Setup
+    public void setup() {
+        input = distribution.generate(size, 42);
+        min = Integer.MAX_VALUE;
+        max = Integer.MIN_VALUE;
+        for (int i = 0; i < size; i++) {
+            input[i] = (int) ((long) input[i] * 65536 / BenchmarkData.MAX_VALUE);
+            min = Math.min(min, input[i]);
+            max = Math.max(max, input[i]);
+        }
+        work = new int[size];
+    }
+
+    @Benchmark
+    public int[] countSort() {
+        System.arraycopy(input, 0, work, 0, size);
+        Sorts.countSort(work, min, max);
+        return work;
+    }
+}
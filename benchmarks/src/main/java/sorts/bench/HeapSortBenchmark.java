@@ -0,0 +1,118 @@
+package sorts.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import sorts.Sorts;
+
+/**
+ * Time per sort of the iterative bottom-up heap sort at each arity (heapSort is
+ * the default 4-ary heap), against the old recursive binary heap sort it
+ * replaced. Only large arrays, where the heap no
+ * longer fits in cache and the layout matters.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+@State(Scope.Thread)
+public class HeapSortBenchmark {
+
+    @Param({"1000000", "10000000", "100000000"})
+    int size;
+
+    @Param({"RANDOM", "FEW_UNIQUE"})
+    BenchmarkData distribution;
+
+    int[] input;
+    int[] work;
+
+    @Setup
+    public void setup() {
+        input = distribution.generate(size, 42);
+        work = new int[size];
+    }
+
+    private int[] fresh() {
+        System.arraycopy(input, 0, work, 0, size);
+        return work;
+    }
+
+    @Benchmark
+    public int[] recursiveHeapSort() {
+        int[] array = fresh();
+        RecursiveHeapSort.sort(array);
+        return array;
+    }
+
+    @Benchmark
+    public int[] heapSort() {
+        int[] array = fresh();
+        Sorts.heapSort(array);
+        return array;
+    }
+
+    @Benchmark
+    public int[] heapSort2() {
+        int[] array = fresh();
+        Sorts.heapSort(array, 2);
+        return array;
+    }
+
+    @Benchmark
+    public int[] heapSort8() {
+        int[] array = fresh();
+        Sorts.heapSort(array, 8);
+        return array;
+    }
+
+    /**
+     * The heap sort Sorts used before, with the recursive top-down heapify, kept
+     * as the baseline.
+     */
+    static final class RecursiveHeapSort {
+
+        private RecursiveHeapSort() {
+        }
+
+        static void sort(int[] array) {
+            int n = array.length;
+            for (int i = n / 2 - 1; i >= 0; i--)
+                heapify(array, n, i);
+            for (int i = n - 1; i > 0; i--) {
+                int temp = array[0];
+                array[0] = array[i];
+                array[i] = temp;
+                heapify(array, i, 0);
+            }
+        }
+
+        private static void heapify(int[] array, int n, int i) {
+            int largest = i;
+            int l = 2 * i + 1;
+            int r = 2 * i + 2;
+            if (l < n && array[l] > array[largest])
+                largest = l;
+            if (r < n && array[r] > array[largest])
+                largest = r;
+            if (largest != i) {
+                int temp = array[i];
+                array[i] = array[largest];
+                array[largest] = temp;
+                heapify(array, n, largest);
+            }
+        }
+    }
+}
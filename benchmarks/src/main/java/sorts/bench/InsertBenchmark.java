@@ -0,0 +1,63 @@
+package sorts.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import sorts.Sorts;
+
+/**
+ * Throughput of inserting into a sorted array, one value at a time and as a
+ * batch of a hundredth of the array size, either into a new array or into the
+ * spare capacity of an existing one.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class InsertBenchmark {
+
+    @Param({"16", "1024", "65536", "1048576"})
+    int size;
+
+    int[] sorted;
+    int[] values;
+    int[] withRoom;
+    int value;
+
+    @Setup
+    public void setup() {
+        sorted = BenchmarkData.SORTED.generate(size, 42);
+        values = BenchmarkData.RANDOM.generate(Math.max(1, size / 100), 7);
+        value = values[0];
+        withRoom = new int[size + values.length];
+    }
+
+    @Benchmark
+    public int[] insertValue() {
+        return Sorts.insert(sorted, value);
+    }
+
+    @Benchmark
+    public int[] insertValues() {
+        return Sorts.insert(sorted, values);
+    }
+
+    @Benchmark
+    public int insertValuesInPlace() {
+        System.arraycopy(sorted, 0, withRoom, 0, size);
+        return Sorts.insert(withRoom, size, values);
+    }
+}
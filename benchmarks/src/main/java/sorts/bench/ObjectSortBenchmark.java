@@ -0,0 +1,102 @@
+package sorts.bench;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import sorts.Sorts;
+
+/**
+ * Time to sort records by an int or long field: Sorts.sortByInt and sortByLong,
+ * which radix sort the extracted keys, against Arrays.sort and Sorts.sort with a
+ * comparator. The records are allocated in a shuffled order, so following them
+ * misses the cache the way records from a real heap do.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+@State(Scope.Thread)
+public class ObjectSortBenchmark {
+
+    record Row(int id, long timestamp) {
+    }
+
+    private static final Comparator<Row> BY_ID = Comparator.comparingInt(Row::id);
+    private static final Comparator<Row> BY_TIMESTAMP = Comparator.comparingLong(Row::timestamp);
+
+    @Param({"1024", "65536", "1048576", "16777216"})
+    int size;
+
+    Row[] input;
+    Row[] work;
+
+    @Setup
+    public void setup() {
+        SplittableRandom random = new SplittableRandom(42);
+        input = new Row[size];
+        for (int i = 0; i < size; i++)
+            input[i] = new Row(random.nextInt(), random.nextLong());
+        for (int i = size - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            Row temp = input[i];
+            input[i] = input[j];
+            input[j] = temp;
+        }
+        work = new Row[size];
+    }
+
+    private Row[] fresh() {
+        System.arraycopy(input, 0, work, 0, size);
+        return work;
+    }
+
+    @Benchmark
+    public Row[] arraysSortById() {
+        Row[] rows = fresh();
+        Arrays.sort(rows, BY_ID);
+        return rows;
+    }
+
+    @Benchmark
+    public Row[] sortByInt() {
+        Row[] rows = fresh();
+        Sorts.sortByInt(rows, Row::id);
+        return rows;
+    }
+
+    @Benchmark
+    public Row[] comparatorSortById() {
+        Row[] rows = fresh();
+        Sorts.sort(rows, BY_ID);
+        return rows;
+    }
+
+    @Benchmark
+    public Row[] arraysSortByTimestamp() {
+        Row[] rows = fresh();
+        Arrays.sort(rows, BY_TIMESTAMP);
+        return rows;
+    }
+
+    @Benchmark
+    public Row[] sortByLong() {
+        Row[] rows = fresh();
+        Sorts.sortByLong(rows, Row::timestamp);
+        return rows;
+    }
+}
@@ -0,0 +1,71 @@
+package sorts.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import sorts.Sorts;
+
+/**
+ * Throughput of the O(n^2) sorts in Sorts. These are kept to small sizes, past
+ * a few thousand elements a single call takes seconds.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class QuadraticSortsBenchmark {
+
+    @Param({"16", "256", "4096"})
+    int size;
+
+    @Param
+    BenchmarkData distribution;
+
+    int[] input;
+    int[] work;
+
+    @Setup
+    public void setup() {
+        input = distribution.generate(size, 42);
+        work = new int[size];
+    }
+
+    private int[] fresh() {
+        System.arraycopy(input, 0, work, 0, size);
+        return work;
+    }
+
+    @Benchmark
+    public int[] bubbleSort() {
+        int[] array = fresh();
+        Sorts.bubbleSort(array);
+        return array;
+    }
+
+    @Benchmark
+    public int[] selectionSort() {
+        int[] array = fresh();
+        Sorts.selectionSort(array);
+        return array;
+    }
+
+    @Benchmark
+    public int[] insertionSort() {
+        int[] array = fresh();
+        Sorts.insertionSort(array);
+        return array;
+    }
+}
@@ -0,0 +1,111 @@
+package sorts.bench;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import sorts.SortedRunFile;
+import sorts.Sorts;
+
+/**
+ * Time per lookup of a random key in a sorted file: SortedRunFile.contains and
+ * rank, which search the in-memory block index and scan one compressed block,
+ * against a binary search of the same keys mapped as raw 4 byte ints.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class SortedRunFileBenchmark {
+
+    @Param({"1048576", "16777216"})
+    int size;
+
+    /** Keys are drawn from [0, size * spread), so the gaps average spread. */
+    @Param({"1", "16", "1024"})
+    int spread;
+
+    Path dir;
+    SortedRunFile run;
+    FileChannel rawChannel;
+    IntBuffer raw;
+    SplittableRandom random;
+    int bound;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        bound = (int) Math.min(Integer.MAX_VALUE, (long) size * spread);
+        random = new SplittableRandom(42);
+        int[] keys = new int[size];
+        for (int i = 0; i < size; i++)
+            keys[i] = random.nextInt(bound);
+        Sorts.sort(keys);
+        dir = Files.createTempDirectory("sorted-run-bench");
+        Path runPath = dir.resolve("keys.run");
+        Path rawPath = dir.resolve("keys.bin");
+        SortedRunFile.write(runPath, keys);
+        ByteBuffer bytes = ByteBuffer.allocate(size * Integer.BYTES);
+        bytes.asIntBuffer().put(keys);
+        Files.write(rawPath, bytes.array());
+        run = SortedRunFile.open(runPath);
+        rawChannel = FileChannel.open(rawPath);
+        raw = rawChannel.map(FileChannel.MapMode.READ_ONLY, 0, (long) size * Integer.BYTES).asIntBuffer();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        run.close();
+        rawChannel.close();
+        Files.delete(dir.resolve("keys.run"));
+        Files.delete(dir.resolve("keys.bin"));
+        Files.delete(dir);
+    }
+
+    @Benchmark
+    public boolean contains() {
+        return run.contains(random.nextInt(bound));
+    }
+
+    @Benchmark
+    public long rank() {
+        return run.rank(random.nextInt(bound));
+    }
+
+    @Benchmark
+    public boolean rawBinarySearch() {
+        int key = random.nextInt(bound);
+        int lo = 0, hi = size - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            int value = raw.get(mid);
+            if (value < key)
+                lo = mid + 1;
+            else if (value > key)
+                hi = mid - 1;
+            else
+                return true;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,192 @@
+package sorts.bench;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import sorts.Sorts;
+
+/**
+ * Throughput of the O(nlogn) and linear sorts in Sorts, with Arrays.sort and
+ * Arrays.parallelSort as baselines. Every benchmark copies the same input into a
+ * work array before sorting it, so copyOnly is the floor to subtract.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms6g", "-Xmx6g"})
+@State(Scope.Thread)
+public class SortsBenchmark {
+
+    @Param({"16", "1024", "65536", "1048576", "16777216", "100000000"})
+    int size;
+
+    @Param
+    BenchmarkData distribution;
+
+    int[] input;
+    int[] work;
+    int[] buffer;
+
+    @Setup
+    public void setup() {
+        input = distribution.generate(size, 42);
+        work = new int[size];
+        buffer = new int[size];
+    }
+
+    private int[] fresh() {
+        System.arraycopy(input, 0, work, 0, size);
+        return work;
+    }
+
+    @Benchmark
+    public int[] copyOnly() {
+        return fresh();
+    }
+
+    @Benchmark
+    public int[] sort() {
+        int[] array = fresh();
+        Sorts.sort(array);
+        return array;
+    }
+
+    @Benchmark
+    public int[] radixSort() {
+        int[] array = fresh();
+        Sorts.radixSort(array, BenchmarkData.DIGITS);
+        return array;
+    }
+
+    @Benchmark
+    public int[] lsdRadixSort8() {
+        int[] array = fresh();
+        Sorts.lsdRadixSort(array, 8);
+        return array;
+    }
+
+    @Benchmark
+    public int[] lsdRadixSort11() {
+        int[] array = fresh();
+        Sorts.lsdRadixSort(array, 11);
+        return array;
+    }
+
+    @Benchmark
+    public int[] lsdRadixSort16() {
+        int[] array = fresh();
+        Sorts.lsdRadixSort(array, 16);
+        return array;
+    }
+
+    @Benchmark
+    public int[] parallelRadixSort() {
+        int[] array = fresh();
+        Sorts.parallelRadixSort(array);
+        return array;
+    }
+
+    @Benchmark
+    public int[] parallelMsdRadixSort() {
+        int[] array = fresh();
+        Sorts.parallelMsdRadixSort(array);
+        return array;
+    }
+
+    @Benchmark
+    public int[] mergeSort() {
+        int[] array = fresh();
+        Sorts.mergeSort(array);
+        return array;
+    }
+
+    @Benchmark
+    public int[] bufferedMergeSort() {
+        int[] array = fresh();
+        Sorts.bufferedMergeSort(array);
+        return array;
+    }
+
+    @Benchmark
+    public int[] mergeSortWithBuffer() {
+        int[] array = fresh();
+        Sorts.mergeSort(array, buffer);
+        return array;
+    }
+
+    @Benchmark
+    public int[] timSort() {
+        int[] array = fresh();
+        Sorts.timSort(array);
+        return array;
+    }
+
+    @Benchmark
+    public int[] parallelMergeSort() {
+        int[] array = fresh();
+        Sorts.parallelMergeSort(array);
+        return array;
+    }
+
+    @Benchmark
+    public int[] quickSort() {
+        int[] array = fresh();
+        Sorts.quickSort(array);
+        return array;
+    }
+
+    @Benchmark
+    public int[] branchlessQuickSort() {
+        int[] array = fresh();
+        Sorts.branchlessQuickSort(array);
+        return array;
+    }
+
+    @Benchmark
+    public int[] branchlessMergeSort() {
+        int[] array = fresh();
+        Sorts.branchlessMergeSort(array);
+        return array;
+    }
+
+    @Benchmark
+    public int[] parallelSampleSort() {
+        int[] array = fresh();
+        Sorts.parallelSampleSort(array);
+        return array;
+    }
+
+    @Benchmark
+    public int[] heapSort() {
+        int[] array = fresh();
+        Sorts.heapSort(array);
+        return array;
+    }
+
+    @Benchmark
+    public int[] arraysSort() {
+        int[] array = fresh();
+        Arrays.sort(array);
+        return array;
+    }
+
+    @Benchmark
+    public int[] arraysParallelSort() {
+        int[] array = fresh();
+        Arrays.parallelSort(array);
+        return array;
+    }
+}
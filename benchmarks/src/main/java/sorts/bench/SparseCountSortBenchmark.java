@@ -0,0 +1,78 @@
+package sorts.bench;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import sorts.Sorts;
+import sorts.ValueCounts;
+
+/**
+ * Time to sort ids drawn from a fixed set of distinct values spread over the whole
+ * positive int range, where countSort(int[]) has to count in a hash table, against
+ * the sort(int[]) dispatcher and countDistinct.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+@State(Scope.Thread)
+public class SparseCountSortBenchmark {
+
+    @Param({"1048576", "16777216"})
+    int size;
+
+    @Param({"1024", "65536", "1048576"})
+    int distinct;
+
+    int[] input;
+    int[] work;
+
+    @Setup
+    public void setup() {
+        SplittableRandom random = new SplittableRandom(42);
+        int[] ids = new int[distinct];
+        for (int i = 0; i < distinct; i++)
+            ids[i] = random.nextInt(Integer.MAX_VALUE);
+        input = new int[size];
+        for (int i = 0; i < size; i++)
+            input[i] = ids[random.nextInt(distinct)];
+        work = new int[size];
+    }
+
+    private int[] fresh() {
+        System.arraycopy(input, 0, work, 0, size);
+        return work;
+    }
+
+    @Benchmark
+    public int[] countSort() {
+        int[] array = fresh();
+        Sorts.countSort(array);
+        return array;
+    }
+
+    @Benchmark
+    public int[] sort() {
+        int[] array = fresh();
+        Sorts.sort(array);
+        return array;
+    }
+
+    @Benchmark
+    public ValueCounts countDistinct() {
+        return Sorts.countDistinct(input);
+    }
+}
@@ -0,0 +1,86 @@
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes the long, double, float, short, char and byte sorts of Sorts.java from
+ * PrimitiveSorts.java.template, between the BEGIN and END marker comments, so the
+ * six copies can not drift apart from each other. Run from the repository root
+ * after changing the template:
+ *
+ *     java gen/GeneratePrimitiveSorts.java
+ *
+ * The template replaces $type$ with the primitive type, $Boxed$ with its wrapper
+ * class, $stable$ with "Stable, " where the sorts that are stable for int stay
+ * stable, $toRawBits$ and $suffix$ with the raw bits method and literal suffix of
+ * the floating point types. Lines from #if[floating] to #else[floating] or
+ * #end[floating] are only kept for float and double, and lines from
+ * #else[floating] to #end[floating] only for the others.
+ */
+public class GeneratePrimitiveSorts {
+
+    private static final String BEGIN = "    // BEGIN generated by gen/GeneratePrimitiveSorts.java, do not edit";
+    private static final String END = "    // END generated by gen/GeneratePrimitiveSorts.java";
+
+    private static final List<Map<String, String>> TYPES = List.of(
+            type("long", "Long", false),
+            type("double", "Double", true),
+            type("float", "Float", true),
+            type("short", "Short", false),
+            type("char", "Character", false),
+            type("byte", "Byte", false));
+
+    public static void main(String[] args) throws IOException {
+        Path sorts = Paths.get("Sorts.java");
+        String template = read(Paths.get("gen", "PrimitiveSorts.java.template"));
+        String source = read(sorts);
+        int begin = source.indexOf(BEGIN + "\n");
+        int end = source.indexOf(END + "\n");
+        if (begin < 0 || end < begin)
+            throw new IllegalStateException("Sorts.java has no generated section to replace");
+
+        StringBuilder generated = new StringBuilder(BEGIN).append("\n\n");
+        for (Map<String, String> type : TYPES)
+            generated.append(expand(template, type));
+        String result = source.substring(0, begin) + generated + source.substring(end);
+        // Sorts.java keeps its CRLF line endings
+        Files.write(sorts, result.replace("\n", "\r\n").getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static Map<String, String> type(String name, String boxed, boolean floating) {
+        return Map.of("type", name, "Boxed", boxed, "floating", Boolean.toString(floating),
+                "stable", floating ? "" : "Stable, ",
+                "toRawBits", name.equals("double") ? "doubleToRawLongBits" : "floatToRawIntBits",
+                "suffix", name.equals("double") ? "d" : "f");
+    }
+
+    private static String expand(String template, Map<String, String> type) {
+        boolean floating = Boolean.parseBoolean(type.get("floating"));
+        StringBuilder out = new StringBuilder();
+        boolean keep = true;
+        for (String line : template.split("\n", -1)) {
+            switch (line.trim()) {
+                case "#if[floating]": keep = floating; continue;
+                case "#else[floating]": keep = !floating; continue;
+                case "#end[floating]": keep = true; continue;
+                default: break;
+            }
+            if (!keep)
+                continue;
+            for (Map.Entry<String, String> entry : type.entrySet())
+                line = line.replace("$" + entry.getKey() + "$", entry.getValue());
+            out.append(line).append('\n');
+        }
+        // the template ends with a newline, which split leaves as an empty last line
+        out.setLength(out.length() - 1);
+        return out.toString();
+    }
+
+    private static String read(Path path) throws IOException {
+        return new String(Files.readAllBytes(path), StandardCharsets.UTF_8).replace("\r\n", "\n");
+    }
+}